@@ -0,0 +1,82 @@
+# Compares the services running on platform threads and on virtual threads.
+#
+# For each thread mode the whole project is started with docker-compose, then the showcase.py
+# scenario is run headless with every number of users. Locust statistics are stored in the
+# benchmark-results directory and the aggregated throughput and p99 response time are printed.
+#
+# Requires docker-compose and locust (pip install locust), run from the root folder of the project:
+#   python benchmark.py
+
+import csv
+import os
+import subprocess
+import time
+
+import requests
+
+USERS = [50, 500, 5000]
+THREAD_MODES = {"platform": "false", "virtual": "true"}
+RUN_TIME = "3m"
+RESULTS_DIR = "benchmark-results"
+SERVICES = [
+    "http://localhost:8081/actuator/health",
+    "http://localhost:8082/actuator/health",
+    "http://localhost:8083/actuator/health",
+    "http://localhost:8084/actuator/health",
+]
+
+
+def start_services(virtual_threads):
+    env = dict(os.environ, VIRTUAL_THREADS_ENABLED=virtual_threads)
+    subprocess.run(["docker-compose", "up", "--build", "-d"], env=env, check=True)
+    for url in SERVICES:
+        wait_until_up(url)
+
+
+def stop_services():
+    subprocess.run(["docker-compose", "down"], check=True)
+
+
+def wait_until_up(url, timeout=300):
+    deadline = time.time() + timeout
+    while time.time() < deadline:
+        try:
+            if requests.get(url).status_code == 200:
+                return
+        except requests.ConnectionError:
+            pass
+        time.sleep(2)
+    raise RuntimeError(f"Service {url} did not start within {timeout} seconds")
+
+
+def run_scenario(users, prefix):
+    subprocess.run(["locust", "-f", "showcase.py", "--host", "http://localhost:8081", "--headless",
+                    "--users", str(users), "--spawn-rate", str(max(users // 50, 1)),
+                    "--run-time", RUN_TIME, "--csv", prefix, "--only-summary"],
+                   check=False)
+
+
+def read_summary(prefix):
+    with open(f"{prefix}_stats.csv") as stats:
+        for row in csv.DictReader(stats):
+            if row["Name"] == "Aggregated":
+                return float(row["Requests/s"]), float(row["99%"]), int(row["Failure Count"])
+    raise RuntimeError(f"No aggregated statistics in {prefix}_stats.csv")
+
+
+if __name__ == "__main__":
+    os.makedirs(RESULTS_DIR, exist_ok=True)
+    results = []
+    for mode, virtual_threads in THREAD_MODES.items():
+        start_services(virtual_threads)
+        try:
+            for users in USERS:
+                prefix = os.path.join(RESULTS_DIR, f"{mode}-{users}")
+                run_scenario(users, prefix)
+                results.append((mode, users) + read_summary(prefix))
+        finally:
+            stop_services()
+
+    print(f"{'threads':<10}{'users':>8}{'req/s':>12}{'p99 [ms]':>12}{'failures':>12}")
+    for mode, users, throughput, p99, failures in results:
+        print(f"{mode:<10}{users:>8}{throughput:>12.1f}{p99:>12.0f}{failures:>12}")
@@ -25,4 +25,7 @@ public class CarViewDto {
     private Set<Long> testDrivers;
 
     private Set<Long> components;
+
+    @Schema(example = "0")
+    private Long version;
 }
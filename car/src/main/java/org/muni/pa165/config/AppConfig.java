@@ -1,36 +1,104 @@
 package org.muni.pa165.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import io.swagger.v3.oas.models.security.OAuthFlow;
 import io.swagger.v3.oas.models.security.OAuthFlows;
 import io.swagger.v3.oas.models.security.Scopes;
 import io.swagger.v3.oas.models.security.SecurityScheme;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springdoc.core.customizers.OpenApiCustomizer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     public static final String SECURITY_SCHEME_OAUTH2 = "MUNI";
     public static final String SECURITY_SCHEME_BEARER = "Bearer";
 
+    /**
+     * Pool of connections to other services, shared by all calls of {@link #restTemplate}.
+     * Connections are kept alive between calls and the number of connections per service is limited.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${car.http-client.max-connections:200}") int maxConnections,
+            @Value("${car.http-client.max-connections-per-route:64}") int maxConnectionsPerRoute,
+            @Value("${car.http-client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${car.http-client.read-timeout:5s}") Duration readTimeout,
+            @Value("${car.http-client.time-to-live:5m}") Duration timeToLive) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager,
+                                          @Value("${car.http-client.read-timeout:5s}") Duration readTimeout,
+                                          @Value("${car.http-client.pool-timeout:2s}") Duration poolTimeout,
+                                          @Value("${car.http-client.idle-timeout:30s}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    /**
+     * Publishes leased, pending and available connections of the pool as httpcomponents.httpclient.pool.* metrics.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "inter-service");
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 
         // Adding an interceptor to include the Authorization header
         restTemplate.getInterceptors().add((request, body, execution) -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication instanceof JwtAuthenticationToken jwtToken) {
-                request.getHeaders().setBearerAuth(jwtToken.getToken().getTokenValue());
+            // opaque tokens are authenticated as BearerTokenAuthentication, JWTs as JwtAuthenticationToken
+            if (authentication instanceof AbstractOAuth2TokenAuthenticationToken<?> token) {
+                request.getHeaders().setBearerAuth(token.getToken().getTokenValue());
             }
             return execution.execute(request, body);
         });
@@ -38,6 +106,31 @@ public class AppConfig {
         return restTemplate;
     }
 
+    /**
+     * Executor used to check references of a car in other services concurrently.
+     * At most max-concurrency checks run at once on platform or virtual threads, further checks wait in the queue
+     * and when the queue is full they run on the submitting thread, so a burst of writes cannot start unbounded threads.
+     * The security context of the submitting request is propagated to every task.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor validationExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${car.validation.max-concurrency:64}") int maxConcurrency,
+            @Value("${car.validation.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("validation-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("validation-", 0).factory());
+        }
+        executor.setTaskDecorator(DelegatingSecurityContextRunnable::new);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
     /**
      * Configure access restrictions to the API.
      * Introspection of opaque access token is configured, introspection endpoint is defined in application.yml.
@@ -46,9 +139,13 @@ public class AppConfig {
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(x -> x
+                        // reads by ids are public like the reads of a single car they batch, other services
+                        // call them from scheduled tasks and anonymous requests with no token to forward
+                        .requestMatchers(readByIds("/cars")).permitAll()
                         .requestMatchers(HttpMethod.GET, "/cars").hasAuthority("SCOPE_test_read")
                         .requestMatchers(HttpMethod.PUT, "/cars").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.POST, "/cars").hasAuthority("SCOPE_test_write")
+                        .requestMatchers(HttpMethod.POST, "/cars/batch").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.DELETE, "/cars").hasAuthority("SCOPE_test_1")
                         .anyRequest().permitAll()
                 )
@@ -57,6 +154,11 @@ public class AppConfig {
         return http.build();
     }
 
+    private static RequestMatcher readByIds(String path) {
+        RequestMatcher read = AntPathRequestMatcher.antMatcher(HttpMethod.GET, path);
+        return request -> read.matches(request) && request.getParameter("ids") != null;
+    }
+
     /**
      * Add security definitions to generated openapi.yaml.
      */
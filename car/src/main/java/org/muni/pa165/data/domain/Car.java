@@ -7,12 +7,16 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.io.Serializable;
 import java.util.Set;
@@ -22,11 +26,17 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "car")
+// every derived finder of the repository reads through an index instead of scanning the table
+@Table(name = "car", indexes = {
+        @Index(name = "car_car_make_idx", columnList = "carMake"),
+        @Index(name = "car_main_driver_idx", columnList = "mainDriver")
+})
 public class Car implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids are reserved in blocks, so inserts of a bulk create are sent in JDBC batches, which IDENTITY prevents
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_seq")
+    @SequenceGenerator(name = "car_seq", allocationSize = 50)
     private Long id;
 
     @Nullable
@@ -35,13 +45,20 @@ public class Car implements Serializable {
     @NotNull
     private String carMake;
 
+    // both collections are loaded for up to 1000 cars per query, so a page of cars costs as many queries as one car
     @Nullable
     @ElementCollection(targetClass = Long.class,
             fetch = FetchType.EAGER)
+    @BatchSize(size = 1000)
     private Set<Long> testDrivers;
 
     @NotNull
     @ElementCollection(targetClass = Long.class,
             fetch = FetchType.EAGER)
+    @BatchSize(size = 1000)
     private Set<Long> components;
+
+    // incremented by every update, identifies the state of the car in its ETag
+    @Version
+    private Long version;
 }
@@ -0,0 +1,33 @@
+package org.muni.pa165.data.repository;
+
+import org.muni.pa165.data.domain.CarChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CarChangeRepository extends JpaRepository<CarChange, Long> {
+
+    /**
+     * @return entries following the given sequence number together with entries recorded since the given time
+     */
+    @Query("SELECT c FROM CarChange c WHERE c.id > :after OR c.recordedAt >= :since ORDER BY c.id")
+    List<CarChange> findFeed(@Param("after") Long after, @Param("since") Instant since);
+
+    Optional<CarChange> findTopByOrderByIdAsc();
+
+    Optional<CarChange> findTopByOrderByIdDesc();
+
+    /**
+     * Deletes entries recorded before the given time, except the last one which keeps the sequence number.
+     */
+    @Modifying
+    @Query("DELETE FROM CarChange c WHERE c.recordedAt < :before AND c.id < (SELECT MAX(l.id) FROM CarChange l)")
+    int deleteRecordedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,33 @@
+package org.muni.pa165.data.repository;
+
+import org.muni.pa165.data.domain.CarDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CarDeletionRepository extends JpaRepository<CarDeletion, Long> {
+
+    /**
+     * @return entries following the given sequence number together with entries recorded since the given time
+     */
+    @Query("SELECT d FROM CarDeletion d WHERE d.id > :after OR d.recordedAt >= :since ORDER BY d.id")
+    List<CarDeletion> findFeed(@Param("after") Long after, @Param("since") Instant since);
+
+    Optional<CarDeletion> findTopByOrderByIdAsc();
+
+    Optional<CarDeletion> findTopByOrderByIdDesc();
+
+    /**
+     * Deletes entries recorded before the given time, except the last one which keeps the sequence number.
+     */
+    @Modifying
+    @Query("DELETE FROM CarDeletion d WHERE d.recordedAt < :before AND d.id < (SELECT MAX(l.id) FROM CarDeletion l)")
+    int deleteRecordedBefore(@Param("before") Instant before);
+}
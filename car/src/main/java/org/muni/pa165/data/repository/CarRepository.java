@@ -1,7 +1,13 @@
 package org.muni.pa165.data.repository;
 
 import org.muni.pa165.data.domain.Car;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +18,18 @@ public interface CarRepository extends JpaRepository<Car, Long> {
     List<Car> findByCarMake(String carMake);
 
     List<Car> findByMainDriver(Long mainDriverId);
+
+    /**
+     * Deletes the car with the given id in a single statement.
+     *
+     * @param id id of the car
+     * @return number of deleted rows, 0 when the car does not exist
+     */
+    @Modifying
+    @Query("DELETE FROM Car c WHERE c.id = :id")
+    int removeById(@Param("id") Long id);
+
+    Slice<Car> findAllBy(Pageable pageable);
+
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
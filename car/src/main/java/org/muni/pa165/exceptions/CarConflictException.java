@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class CarConflictException extends RuntimeException {
+
+    public CarConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class CarVersionRequiredException extends RuntimeException {
+
+    public CarVersionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -2,12 +2,19 @@ package org.muni.pa165.facade;
 
 import org.muni.pa165.api.CarCreateViewDto;
 import org.muni.pa165.api.CarViewDto;
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.data.domain.CarChange;
+import org.muni.pa165.data.domain.CarDeletion;
 import org.muni.pa165.mapper.CarMapper;
 import org.muni.pa165.service.CarService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 @Service
 public class CarFacade {
@@ -28,6 +35,15 @@ public class CarFacade {
         return carMapper.toCarViewDto(carService.save(carMapper.fromCarCreateViewDto(carCreateViewDto)));
     }
 
+    public List<CarViewDto> createAll(List<CarCreateViewDto> carCreateViewDtos) {
+        List<Car> cars = carCreateViewDtos.stream()
+                .map(carMapper::fromCarCreateViewDto)
+                .toList();
+        return carService.saveAll(cars).stream()
+                .map(carMapper::toCarViewDto)
+                .toList();
+    }
+
     public void delete(Long id) {
         carService.delete(id);
     }
@@ -42,6 +58,29 @@ public class CarFacade {
                 .toList();
     }
 
+    /**
+     * Returns a page of cars ordered by id. When after is given, the cars following the one
+     * with that id are returned instead, unlike an offset this stays fast deep into large tables.
+     */
+    public List<CarViewDto> findAll(int page, int size, Long after) {
+        List<Car> cars = after != null
+                ? carService.findAllAfter(after, size)
+                : carService.findPage(page, size);
+        return cars.stream()
+                .map(carMapper::toCarViewDto)
+                .toList();
+    }
+
+    public void exportAll(Consumer<CarViewDto> action) {
+        carService.streamAll(car -> action.accept(carMapper.toCarViewDto(car)));
+    }
+
+    public List<CarViewDto> findAllById(Collection<Long> ids) {
+        return carService.findAllById(ids).stream()
+                .map(carMapper::toCarViewDto)
+                .toList();
+    }
+
     public void update(Car car) {
         carService.update(car);
     }
@@ -57,4 +96,46 @@ public class CarFacade {
                 .map(carMapper::toCarViewDto)
                 .toList();
     }
+
+    /**
+     * Returns cars deleted after the given sequence number of the deletion log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all cars among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller drops everything it has cached.
+     */
+    public DeletionFeedDto findDeletions(Long after) {
+        long lastSequence = carService.findLastDeletionSequence();
+        if (after == null || after > lastSequence || after < carService.findFirstDeletionSequence() - 1) {
+            return new DeletionFeedDto(lastSequence, List.of(), true);
+        }
+        List<CarDeletion> deletions = carService.findDeletionsAfter(after);
+        return new DeletionFeedDto(
+                deletions.isEmpty() ? after : Math.max(after, deletions.get(deletions.size() - 1).getId()),
+                deletions.stream().map(CarDeletion::getCarId).filter(Objects::nonNull).toList(),
+                deletions.stream().anyMatch(deletion -> deletion.getCarId() == null));
+    }
+
+    /**
+     * Returns cars updated or deleted after the given sequence number of the change log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all cars among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller refreshes everything it has copied.
+     */
+    public ChangeFeedDto findChanges(Long after) {
+        long lastSequence = carService.findLastChangeSequence();
+        if (after == null || after > lastSequence || after < carService.findFirstChangeSequence() - 1) {
+            return new ChangeFeedDto(lastSequence, List.of(), true);
+        }
+        List<CarChange> changes = carService.findChangesAfter(after);
+        return new ChangeFeedDto(
+                changes.isEmpty() ? after : Math.max(after, changes.get(changes.size() - 1).getId()),
+                changes.stream().map(CarChange::getCarId).filter(Objects::nonNull).distinct().toList(),
+                changes.stream().anyMatch(change -> change.getCarId() == null));
+    }
 }
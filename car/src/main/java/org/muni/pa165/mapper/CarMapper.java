@@ -1,6 +1,7 @@
 package org.muni.pa165.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.muni.pa165.api.CarCreateViewDto;
 import org.muni.pa165.api.CarViewDto;
 import org.muni.pa165.data.domain.Car;
@@ -14,5 +15,6 @@ public interface CarMapper {
 
     CarCreateViewDto toCarCreateViewDto(Car entity);
 
+    @Mapping(target = "version", ignore = true)
     Car fromCarCreateViewDto(CarCreateViewDto dto);
 }
@@ -10,9 +10,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.muni.pa165.api.CarCreateViewDto;
 import org.muni.pa165.api.CarViewDto;
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.config.AppConfig;
 import org.muni.pa165.data.domain.Car;
 import org.muni.pa165.facade.CarFacade;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -22,8 +26,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -34,12 +41,17 @@ import java.util.List;
         description = "Controller for car operations")
 public class CarRestController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final CarFacade carFacade;
     private final UriBuilderService uriBuilderService;
+    private final NdjsonWriter ndjsonWriter;
 
-    public CarRestController(CarFacade carFacade, UriBuilderService uriBuilderService) {
+    public CarRestController(CarFacade carFacade, UriBuilderService uriBuilderService,
+                             NdjsonWriter ndjsonWriter) {
         this.carFacade = carFacade;
         this.uriBuilderService = uriBuilderService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @GetMapping("/{id}")
@@ -54,6 +66,8 @@ public class CarRestController {
                     @ApiResponse(responseCode = "200",
                             description = "Car found",
                             content = @Content(schema = @Schema(implementation = CarViewDto.class))),
+                    @ApiResponse(responseCode = "304",
+                            description = "Not modified - If-None-Match contains the current ETag"),
                     @ApiResponse(responseCode = "404",
                             description = "Car not found"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
@@ -61,7 +75,7 @@ public class CarRestController {
             })
     public ResponseEntity<CarViewDto> findCarById(@PathVariable("id") Long id) {
         CarViewDto car = carFacade.findById(id);
-        return ResponseEntity.ok(car);
+        return ResponseEntity.ok().eTag(String.valueOf(car.getVersion())).body(car);
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -91,6 +105,33 @@ public class CarRestController {
         return ResponseEntity.created(uriBuilderService.getLocationOfCreatedResource(carViewDto)).body(carViewDto);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create many cars at once",
+            description = "Validates all the cars first and stores them in a single transaction, "
+                    + "so either all of them are created or none. Meant for seeding large amounts of data.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_write"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_write"}),
+            },
+            responses = {
+                    @ApiResponse(responseCode = "201",
+                            description = "Cars created successfully",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CarViewDto.class)))),
+                    @ApiResponse(responseCode = "400",
+                            description = "Invalid data of any of the cars"),
+                    @ApiResponse(responseCode = "500",
+                            description = "Called external service failed, see message for more details"),
+                    @ApiResponse(responseCode = "502",
+                            description = "Called external service wrong response, see message for more details"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<CarViewDto>> saveCars(@RequestBody List<CarCreateViewDto> carCreateViewDtos) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(carFacade.createAll(carCreateViewDtos));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a car by ID",
             security = {
@@ -133,6 +174,10 @@ public class CarRestController {
 
     @GetMapping
     @Operation(summary = "Find all cars",
+            description = "Returns all cars when none of 'page', 'size' and 'after' is given. "
+                    + "Otherwise returns one page of cars ordered by ID, 'size' of them, 100 by default and at most 1000. "
+                    + "Pass the ID of the last returned car as 'after' to get the next page, "
+                    + "which stays fast on large tables, or pass the page number as 'page'.",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -146,11 +191,90 @@ public class CarRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<List<CarViewDto>> findAllCars() {
-        List<CarViewDto> cars = carFacade.findAll();
+    public ResponseEntity<List<CarViewDto>> findAllCars(
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "after", required = false) Long after) {
+        // clients written before paging pass none of the parameters and expect the whole list
+        List<CarViewDto> cars = page == null && size == null && after == null
+                ? carFacade.findAll()
+                : carFacade.findAll(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size, after);
         return ResponseEntity.ok(cars);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all cars",
+            description = "Streams all cars ordered by ID as newline delimited JSON, one car per line. "
+                    + "Cars are written while they are read from the database, so the export is not split into pages.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Cars streamed successfully",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = CarViewDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<StreamingResponseBody> exportCars() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.write(carFacade::exportAll));
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Find cars by IDs",
+            description = "Returns the cars with the given IDs in a single call, IDs that do not exist are skipped",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CarViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<CarViewDto>> findCarsByIds(@RequestParam("ids") List<Long> ids) {
+        List<CarViewDto> cars = carFacade.findAllById(ids);
+        return ResponseEntity.ok(cars);
+    }
+
+    @GetMapping("/deletions")
+    @Operation(summary = "Get cars deleted since a sequence number",
+            description = "Feed of deleted cars polled by other services to invalidate their caches. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = DeletionFeedDto.class)))
+            })
+    public ResponseEntity<DeletionFeedDto> findCarDeletions(@RequestParam(value = "after", required = false) Long after) {
+        DeletionFeedDto deletions = carFacade.findDeletions(after);
+        return ResponseEntity.ok(deletions);
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get cars updated or deleted since a sequence number",
+            description = "Feed of changed cars polled by other services to refresh their copies of cars. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = ChangeFeedDto.class)))
+            })
+    public ResponseEntity<ChangeFeedDto> findCarChanges(@RequestParam(value = "after", required = false) Long after) {
+        ChangeFeedDto changes = carFacade.findChanges(after);
+        return ResponseEntity.ok(changes);
+    }
+
     @GetMapping("/carMake/{carMake}")
     @Operation(summary = "Get cars by their car make",
             security = {
@@ -206,6 +330,10 @@ public class CarRestController {
                             description = "Invalid car data"),
                     @ApiResponse(responseCode = "404",
                             description = "Car not found"),
+                    @ApiResponse(responseCode = "409",
+                            description = "Car was changed by another update, the version sent is no longer current"),
+                    @ApiResponse(responseCode = "428",
+                            description = "Car version sent neither in the body nor in the If-Match header"),
                     @ApiResponse(responseCode = "500",
                             description = "Called external service failed, see message for more details"),
                     @ApiResponse(responseCode = "502",
@@ -213,8 +341,31 @@ public class CarRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<Void> updateCar(@RequestBody @Valid Car car) {
+    public ResponseEntity<Void> updateCar(@RequestBody @Valid Car car,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = versionOf(ifMatch);
+        if (version != null) {
+            car.setVersion(version);
+        }
         carFacade.update(car);
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * @return version carried by the ETag in an If-Match header, or null when there is no such ETag
+     */
+    private static Long versionOf(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        try {
+            return Long.valueOf(eTag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package org.muni.pa165.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes values as newline delimited JSON while they are produced, one value per line,
+ * so a response of any length is written without collecting its values first.
+ */
+@Component
+public class NdjsonWriter {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param source passes every value to write to the given consumer
+     * @return response body writing the values passed by the source
+     */
+    public <T> StreamingResponseBody write(Consumer<Consumer<T>> source) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                source.accept(value -> {
+                    try {
+                        objectWriter.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+}
@@ -1,7 +1,9 @@
 package org.muni.pa165.rest.exceptionhandling;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.muni.pa165.exceptions.CarConflictException;
 import org.muni.pa165.exceptions.CarNotFoundException;
+import org.muni.pa165.exceptions.CarVersionRequiredException;
 import org.muni.pa165.exceptions.DataStorageException;
 import org.muni.pa165.exceptions.ExternalCallException;
 import org.springframework.http.HttpHeaders;
@@ -51,6 +53,26 @@ public class CustomRestGlobalExceptionHandling {
         return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
     }
 
+    @ExceptionHandler({CarVersionRequiredException.class})
+    public ResponseEntity<ApiError> handleVersionRequired(final CarVersionRequiredException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.PRECONDITION_REQUIRED,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    @ExceptionHandler({CarConflictException.class})
+    public ResponseEntity<ApiError> handleConflict(final CarConflictException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.CONFLICT,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
     /**
      * Handle all the exceptions not matched by above-mentioned definitions.
      *
@@ -1,8 +1,12 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.data.domain.CarChange;
+import org.muni.pa165.data.domain.CarDeletion;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CarService {
 
@@ -10,6 +14,8 @@ public interface CarService {
 
     Car save(Car car);
 
+    List<Car> saveAll(List<Car> cars);
+
     Car findById(Long id);
 
     void delete(Long id);
@@ -20,7 +26,27 @@ public interface CarService {
 
     List<Car> findAll();
 
+    List<Car> findPage(int page, int size);
+
+    List<Car> findAllAfter(Long id, int size);
+
+    void streamAll(Consumer<Car> action);
+
+    List<Car> findAllById(Collection<Long> ids);
+
     List<Car> findByCarMake(String carMake);
 
     List<Car> findByMainDriver(Long mainDriverId);
+
+    List<CarDeletion> findDeletionsAfter(Long sequence);
+
+    long findFirstDeletionSequence();
+
+    long findLastDeletionSequence();
+
+    List<CarChange> findChangesAfter(Long sequence);
+
+    long findFirstChangeSequence();
+
+    long findLastChangeSequence();
 }
@@ -1,24 +1,60 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.data.domain.CarChange;
+import org.muni.pa165.data.domain.CarDeletion;
+import org.muni.pa165.data.repository.CarChangeRepository;
+import org.muni.pa165.data.repository.CarDeletionRepository;
 import org.muni.pa165.data.repository.CarRepository;
+import org.muni.pa165.exceptions.CarConflictException;
 import org.muni.pa165.exceptions.CarNotFoundException;
-import org.muni.pa165.exceptions.DataStorageException;
+import org.muni.pa165.exceptions.CarVersionRequiredException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class CarServiceImpl implements CarService {
 
-    private final CarRepository carRepository;
-    private final ExternalService externalService;
+    public static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Number of entities inserted in a single JDBC batch, the same as the number of ids reserved at once.
+     */
+    public static final int BATCH_SIZE = 50;
 
-    public CarServiceImpl(CarRepository carRepository, ExternalService externalService) {
+    private final CarRepository carRepository;
+    private final CarDeletionRepository carDeletionRepository;
+    private final CarChangeRepository carChangeRepository;
+    private final CarValidator carValidator;
+    private final EntityManager entityManager;
+    private final Duration feedTrailingWindow;
+    private final Duration feedRetention;
+
+    public CarServiceImpl(CarRepository carRepository, CarDeletionRepository carDeletionRepository,
+                          CarChangeRepository carChangeRepository, CarValidator carValidator,
+                          EntityManager entityManager,
+                          @Value("${car.feed.trailing-window:30s}") Duration feedTrailingWindow,
+                          @Value("${car.feed.retention:1d}") Duration feedRetention) {
         this.carRepository = carRepository;
-        this.externalService = externalService;
+        this.carDeletionRepository = carDeletionRepository;
+        this.carChangeRepository = carChangeRepository;
+        this.carValidator = carValidator;
+        this.entityManager = entityManager;
+        this.feedTrailingWindow = feedTrailingWindow;
+        this.feedRetention = feedRetention;
     }
 
     @Override
@@ -30,10 +66,23 @@ public class CarServiceImpl implements CarService {
 
     @Override
     public Car save(Car car) {
-        verifyParameters(car);
+        carValidator.validate(car);
         return carRepository.save(car);
     }
 
+    @Override
+    public List<Car> saveAll(List<Car> cars) {
+        carValidator.validateAll(cars);
+        for (int from = 0; from < cars.size(); from += BATCH_SIZE) {
+            List<Car> batch = cars.subList(from, Math.min(from + BATCH_SIZE, cars.size()));
+            carRepository.saveAll(batch);
+            // sends the inserts of the batch at once and keeps the persistence context small
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return cars;
+    }
+
     @Override
     public Car findById(Long id) {
         return carRepository.findById(id)
@@ -42,20 +91,39 @@ public class CarServiceImpl implements CarService {
 
     @Override
     public void delete(Long id) {
-        checkIfExists(id);
-        carRepository.deleteById(id);
+        if (carRepository.removeById(id) == 0) {
+            throw new CarNotFoundException("Car with id: " + id + " not found.");
+        }
+        carDeletionRepository.save(CarDeletion.builder().carId(id).build());
+        carChangeRepository.save(CarChange.builder().carId(id).build());
     }
 
     @Override
     public void deleteAll() {
-        carRepository.deleteAll();
+        // a single DELETE statement instead of loading and removing the cars one by one
+        carRepository.deleteAllInBatch();
+        carDeletionRepository.save(new CarDeletion());
+        carChangeRepository.save(new CarChange());
     }
 
     @Override
     public void update(Car car) {
-        verifyParameters(car);
-        checkIfExists(car.getId());
-        carRepository.save(car);
+        carValidator.validate(car);
+        if (car.getVersion() == null) {
+            throw new CarVersionRequiredException("Cannot update car with id: " + car.getId()
+                    + " without the version it was read in");
+        }
+        // the merge below copies the car onto the loaded one instead of reading it again
+        carRepository.findById(car.getId())
+                .orElseThrow(() -> new CarNotFoundException("Car with id: " + car.getId() + " not found."));
+        try {
+            // merged onto the current car and written as UPDATE ... WHERE id = ? AND version = ?
+            carRepository.saveAndFlush(car);
+        } catch (OptimisticLockingFailureException e) {
+            throw new CarConflictException("Car with id: " + car.getId() + " was changed by another update, "
+                    + "version " + car.getVersion() + " is no longer current");
+        }
+        carChangeRepository.save(CarChange.builder().carId(car.getId()).build());
     }
 
     @Override
@@ -64,42 +132,100 @@ public class CarServiceImpl implements CarService {
     }
 
     @Override
-    public List<Car> findByCarMake(String carMake) {
-        return carRepository.findByCarMake(carMake);
+    public List<Car> findPage(int page, int size) {
+        return carRepository.findAllBy(PageRequest.of(Math.max(page, 0), pageSize(size), Sort.by("id"))).getContent();
     }
 
     @Override
-    public List<Car> findByMainDriver(Long mainDriverId) {
-        return carRepository.findByMainDriver(mainDriverId);
+    public List<Car> findAllAfter(Long id, int size) {
+        return carRepository.findByIdGreaterThanOrderByIdAsc(id, Limit.of(pageSize(size)));
     }
 
-    private void verifyParameters(Car car) {
-        if (car.getComponents() == null || car.getComponents().isEmpty()) {
-            throw new DataStorageException("Car must have at least one component.");
-        }
-
-        for (long id : car.getComponents()) {
-            if (!externalService.componentExists(id)) {
-                throw new DataStorageException("Component with id: " + id + " does not exist.");
+    /**
+     * Passes all cars ordered by id to the given action while they are read from the database.
+     * Cars are read in keyset pages, so test drivers and components of a whole page are loaded
+     * by one batch query each instead of one query per car as with a row by row stream.
+     * Each page is detached once handled, so the persistence context does not grow with the table.
+     */
+    @Override
+    public void streamAll(Consumer<Car> action) {
+        List<Car> cars = carRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(MAX_PAGE_SIZE));
+        while (!cars.isEmpty()) {
+            cars.forEach(action);
+            cars.forEach(entityManager::detach);
+            if (cars.size() < MAX_PAGE_SIZE) {
+                return;
             }
+            Long lastId = cars.get(cars.size() - 1).getId();
+            cars = carRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(MAX_PAGE_SIZE));
         }
+    }
 
-        if (car.getMainDriver() != null) {
-            if (!externalService.driverExists(car.getMainDriver())) {
-                throw new DataStorageException("Driver with id: " + car.getMainDriver() + " does not exist.");
-            }
-        }
+    @Override
+    public List<Car> findAllById(Collection<Long> ids) {
+        return carRepository.findAllById(ids);
+    }
 
-        if (car.getTestDrivers() != null) {
-            for (long id : car.getTestDrivers()) {
-                if (!externalService.driverExists(id)) {
-                    throw new DataStorageException("Driver with id: " + id + " does not exist.");
-                }
-            }
-        }
+    @Override
+    public List<CarDeletion> findDeletionsAfter(Long sequence) {
+        return carDeletionRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
 
-        if (car.getCarMake() == null || car.getCarMake().isEmpty()) {
-            throw new DataStorageException("Car make cannot be null or empty.");
-        }
+    @Override
+    public long findFirstDeletionSequence() {
+        return carDeletionRepository.findTopByOrderByIdAsc()
+                .map(CarDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastDeletionSequence() {
+        return carDeletionRepository.findTopByOrderByIdDesc()
+                .map(CarDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public List<CarChange> findChangesAfter(Long sequence) {
+        return carChangeRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
+
+    @Override
+    public long findFirstChangeSequence() {
+        return carChangeRepository.findTopByOrderByIdAsc()
+                .map(CarChange::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastChangeSequence() {
+        return carChangeRepository.findTopByOrderByIdDesc()
+                .map(CarChange::getId)
+                .orElse(0L);
+    }
+
+    /**
+     * Deletes entries of the deletion and change logs older than the retention period.
+     * Consumers whose sequence number precedes the remaining entries are asked to reset.
+     */
+    @Scheduled(fixedDelayString = "${car.feed.prune-interval:3600000}")
+    public void pruneFeeds() {
+        Instant before = Instant.now().minus(feedRetention);
+        carDeletionRepository.deleteRecordedBefore(before);
+        carChangeRepository.deleteRecordedBefore(before);
+    }
+
+    @Override
+    public List<Car> findByCarMake(String carMake) {
+        return carRepository.findByCarMake(carMake);
+    }
+
+    @Override
+    public List<Car> findByMainDriver(Long mainDriverId) {
+        return carRepository.findByMainDriver(mainDriverId);
+    }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
     }
 }
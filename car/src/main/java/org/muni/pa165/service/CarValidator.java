@@ -0,0 +1,124 @@
+package org.muni.pa165.service;
+
+import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.exceptions.DataStorageException;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Validates cars before they are stored.
+ * Components and drivers referenced by the car are checked with one bulk call per service,
+ * both calls are issued concurrently, so the validation costs a single round trip regardless of the car size.
+ */
+@Service
+public class CarValidator {
+
+    private final ExternalService externalService;
+    private final Executor executor;
+    private final Duration timeout;
+
+    public CarValidator(ExternalService externalService,
+                        @Qualifier("validationExecutor") Executor executor,
+                        @Value("${car.validation.timeout:5s}") Duration timeout) {
+        this.externalService = externalService;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Checks that the car has components, that all its components and drivers exist and that it has a car make.
+     *
+     * @param car car to validate
+     * @throws DataStorageException when the car is not valid
+     * @throws ExternalCallException when the component or driver service cannot be reached in time
+     */
+    public void validate(Car car) {
+        validateAll(List.of(car));
+    }
+
+    /**
+     * Checks the given cars like {@link #validate(Car)}, references of all the cars are checked together,
+     * so a bulk create costs a single round trip as well.
+     *
+     * @param cars cars to validate
+     * @throws DataStorageException when any of the cars is not valid
+     * @throws ExternalCallException when the component or driver service cannot be reached in time
+     */
+    public void validateAll(Collection<Car> cars) {
+        Set<Long> componentIds = new LinkedHashSet<>();
+        Set<Long> driverIds = new LinkedHashSet<>();
+        for (Car car : cars) {
+            if (car.getComponents() == null || car.getComponents().isEmpty()) {
+                throw new DataStorageException("Car must have at least one component.");
+            }
+            componentIds.addAll(car.getComponents());
+            if (car.getMainDriver() != null) {
+                driverIds.add(car.getMainDriver());
+            }
+            if (car.getTestDrivers() != null) {
+                driverIds.addAll(car.getTestDrivers());
+            }
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletableFuture<Set<Long>> missingComponentsFuture = componentIds.isEmpty()
+                ? CompletableFuture.completedFuture(Set.of())
+                : CompletableFuture.supplyAsync(() -> externalService.findMissingComponents(componentIds), executor);
+        CompletableFuture<Set<Long>> missingDriversFuture = driverIds.isEmpty()
+                ? CompletableFuture.completedFuture(Set.of())
+                : CompletableFuture.supplyAsync(() -> externalService.findMissingDrivers(driverIds), executor);
+
+        Set<Long> missingComponents = await(missingComponentsFuture, deadline);
+        if (!missingComponents.isEmpty()) {
+            throw new DataStorageException("Component with id: " + missingComponents.iterator().next() + " does not exist.");
+        }
+
+        Set<Long> missingDrivers = await(missingDriversFuture, deadline);
+        if (!missingDrivers.isEmpty()) {
+            Long missingDriver = cars.stream()
+                    .map(Car::getMainDriver)
+                    .filter(Objects::nonNull)
+                    .filter(missingDrivers::contains)
+                    .findFirst()
+                    .orElse(missingDrivers.iterator().next());
+            throw new DataStorageException("Driver with id: " + missingDriver + " does not exist.");
+        }
+
+        for (Car car : cars) {
+            if (car.getCarMake() == null || car.getCarMake().isEmpty()) {
+                throw new DataStorageException("Car make cannot be null or empty.");
+            }
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ExternalCallException("Validation of car references did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalCallException("Validation of car references was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ExternalCallException("Error while calling external service: " + e.getCause());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.muni.pa165.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.muni.pa165.api.DeletionFeed;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Bounded cache of ids known to exist in another service.
+ * Only positive answers are cached, so an entity created in the meantime is never reported as missing.
+ * Entries expire after a fixed time and are dropped sooner when the owning service reports
+ * their deletion in its deletion feed, see {@link #apply(DeletionFeed)}.
+ */
+public class ExistenceCache {
+
+    private final Cache<Long, Boolean> existingIds;
+    private volatile Long lastSequence;
+
+    public ExistenceCache(Duration ttl, long maxSize) {
+        this.existingIds = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public boolean contains(Long id) {
+        return existingIds.getIfPresent(id) != null;
+    }
+
+    public void add(Long id) {
+        existingIds.put(id, Boolean.TRUE);
+    }
+
+    public void addAll(Collection<Long> ids) {
+        ids.forEach(this::add);
+    }
+
+    /**
+     * @return sequence number of the last applied deletion feed, null when no feed was applied yet
+     */
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Drops ids reported as deleted, or every id when the feed asks for a reset.
+     */
+    public void apply(DeletionFeed feed) {
+        if (feed.isReset()) {
+            existingIds.invalidateAll();
+        } else if (feed.getDeletedIds() != null) {
+            existingIds.invalidateAll(feed.getDeletedIds());
+        }
+        lastSequence = feed.getLastSequence();
+    }
+}
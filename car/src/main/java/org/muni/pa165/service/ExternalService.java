@@ -1,8 +1,15 @@
 package org.muni.pa165.service;
 
+import java.util.Collection;
+import java.util.Set;
+
 public interface ExternalService {
 
     boolean componentExists(Long id);
 
     boolean driverExists(Long id);
+
+    Set<Long> findMissingComponents(Collection<Long> ids);
+
+    Set<Long> findMissingDrivers(Collection<Long> ids);
 }
@@ -1,46 +1,168 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.api.Component;
+import org.muni.pa165.api.DeletionFeed;
 import org.muni.pa165.api.Driver;
 import org.muni.pa165.exceptions.ExternalCallException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 public class ExternalServiceImpl implements ExternalService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ExternalServiceImpl.class);
+
     private static final String DRIVER_URL = "http://driver-service:8082/drivers/";
     private static final String COMPONENT_URL = "http://component-service:8083/components/";
+    private static final String MISSING_DRIVERS_URL = "http://driver-service:8082/drivers/missing?ids={ids}";
+    private static final String MISSING_COMPONENTS_URL = "http://component-service:8083/components/missing?ids={ids}";
+    private static final String DRIVER_DELETIONS_URL = "http://driver-service:8082/drivers/deletions";
+    private static final String COMPONENT_DELETIONS_URL = "http://component-service:8083/components/deletions";
+
+    private static final String DRIVER_SERVICE = "driver";
+    private static final String COMPONENT_SERVICE = "component";
 
     private final RestTemplate restTemplate;
+    private final DownstreamGuard downstreamGuard;
+    private final ExistenceCache existingComponents;
+    private final ExistenceCache existingDrivers;
+    private final ValidatorCache<Component> components;
+    private final ValidatorCache<Driver> drivers;
+    private final int batchSize;
 
-    public ExternalServiceImpl(RestTemplate restTemplate) {
+    public ExternalServiceImpl(RestTemplate restTemplate,
+                               DownstreamGuard downstreamGuard,
+                               @Value("${car.existence-cache.ttl:10m}") Duration cacheTtl,
+                               @Value("${car.existence-cache.max-size:10000}") long cacheMaxSize,
+                               @Value("${car.validator-cache.max-size:10000}") long validatorCacheMaxSize,
+                               @Value("${car.validation.batch-size:100}") int batchSize) {
         this.restTemplate = restTemplate;
+        this.downstreamGuard = downstreamGuard;
+        this.existingComponents = new ExistenceCache(cacheTtl, cacheMaxSize);
+        this.existingDrivers = new ExistenceCache(cacheTtl, cacheMaxSize);
+        this.components = new ValidatorCache<>(validatorCacheMaxSize);
+        this.drivers = new ValidatorCache<>(validatorCacheMaxSize);
+        this.batchSize = batchSize;
     }
 
     public boolean componentExists(Long id) {
+        if (existingComponents.contains(id)) {
+            return true;
+        }
         try {
-            ResponseEntity<Component> response = restTemplate.getForEntity(
-                    COMPONENT_URL + id, Component.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (ResourceAccessException e) {
-            throw new ExternalCallException("Error while calling external service: " + e.toString());
+            ResponseEntity<Component> response = downstreamGuard.call(COMPONENT_SERVICE,
+                    () -> components.get(id, headers -> restTemplate.exchange(
+                            COMPONENT_URL + id, HttpMethod.GET, new HttpEntity<>(headers), Component.class)));
+            if (response.getStatusCode().is2xxSuccessful()) {
+                existingComponents.add(id);
+                return true;
+            }
+            return false;
+        } catch (ExternalCallException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
     }
 
     public boolean driverExists(Long id) {
+        if (existingDrivers.contains(id)) {
+            return true;
+        }
         try {
-            ResponseEntity<Driver> response = restTemplate.getForEntity(
-                    DRIVER_URL + id, Driver.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (ResourceAccessException e) {
-            throw new ExternalCallException("Error while calling external service: " + e.toString());
+            ResponseEntity<Driver> response = downstreamGuard.call(DRIVER_SERVICE,
+                    () -> drivers.get(id, headers -> restTemplate.exchange(
+                            DRIVER_URL + id, HttpMethod.GET, new HttpEntity<>(headers), Driver.class)));
+            if (response.getStatusCode().is2xxSuccessful()) {
+                existingDrivers.add(id);
+                return true;
+            }
+            return false;
+        } catch (ExternalCallException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public Set<Long> findMissingComponents(Collection<Long> ids) {
+        return findMissing(COMPONENT_SERVICE, MISSING_COMPONENTS_URL, ids, existingComponents);
+    }
+
+    @Override
+    public Set<Long> findMissingDrivers(Collection<Long> ids) {
+        return findMissing(DRIVER_SERVICE, MISSING_DRIVERS_URL, ids, existingDrivers);
+    }
+
+    /**
+     * Drops components and drivers deleted in their services from the existence caches.
+     */
+    @Scheduled(fixedDelayString = "${car.existence-cache.sync-interval:5000}")
+    public void syncDeletions() {
+        syncDeletions(COMPONENT_DELETIONS_URL, existingComponents);
+        syncDeletions(DRIVER_DELETIONS_URL, existingDrivers);
+    }
+
+    private Set<Long> findMissing(String service, String url, Collection<Long> ids, ExistenceCache cache) {
+        List<Long> unknownIds = ids.stream()
+                .distinct()
+                .filter(id -> !cache.contains(id))
+                .toList();
+        if (unknownIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> reported = new HashSet<>();
+        // ids are sent in the query string, batches keep it below the request header limit of the called service
+        for (int from = 0; from < unknownIds.size(); from += batchSize) {
+            String joinedIds = unknownIds.subList(from, Math.min(from + batchSize, unknownIds.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            Long[] response = downstreamGuard.call(service, () -> restTemplate.getForObject(url, Long[].class, joinedIds));
+            if (response != null) {
+                reported.addAll(Arrays.asList(response));
+            }
+        }
+        // missing ids are kept in the order they were asked for, so the first missing id is reported first
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : unknownIds) {
+            if (reported.contains(id)) {
+                missing.add(id);
+            } else {
+                cache.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private void syncDeletions(String url, ExistenceCache cache) {
+        Long lastSequence = cache.getLastSequence();
+        try {
+            DeletionFeed feed = lastSequence == null
+                    ? restTemplate.getForObject(url, DeletionFeed.class)
+                    : restTemplate.getForObject(url + "?after={after}", DeletionFeed.class, lastSequence);
+            if (feed != null) {
+                cache.apply(feed);
+            }
+        } catch (RestClientException e) {
+            logger.warn("Cannot read deletion feed {}: {}", url, e.getMessage());
+        }
+    }
+}
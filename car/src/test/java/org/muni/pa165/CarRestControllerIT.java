@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.muni.pa165.api.CarViewDto;
+import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.exceptions.CarConflictException;
 import org.muni.pa165.exceptions.CarNotFoundException;
+import org.muni.pa165.exceptions.CarVersionRequiredException;
 import org.muni.pa165.facade.CarFacade;
 import org.muni.pa165.utils.TestCarFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,17 +15,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = CarMain.class,
@@ -63,9 +75,22 @@ class CarRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(content().json(expectedJson, true));
     }
 
+    @Test
+    void findCarById_ifNoneMatchCurrentETag_returnsNotModified() throws Exception {
+        when(carFacade.findById(newCarViewDto.getId())).thenReturn(newCarViewDto);
+
+        mockMvc.perform(get("/cars/{id}", newCarViewDto.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void findAllCars_carsFound_returnsCars() throws Exception {
         List<CarViewDto> carViewDtos = Collections.singletonList(newCarViewDto);
@@ -98,5 +123,61 @@ class CarRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
     }
-}
 
+    @Test
+    void exportCars_ndjsonAccepted_streamsOneCarPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<CarViewDto> action = invocation.getArgument(0);
+            action.accept(newCarViewDto);
+            action.accept(newCarViewDto);
+            return null;
+        }).when(carFacade).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/cars")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expectedLine = objectMapper.writeValueAsString(newCarViewDto);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expectedLine + "\n" + expectedLine + "\n"));
+    }
+
+    @Test
+    void findAllCars_anyAccepted_returnsJsonPage() throws Exception {
+        when(carFacade.findAll()).thenReturn(List.of(newCarViewDto));
+
+        mockMvc.perform(get("/cars"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void updateCar_staleVersion_returnsConflict() throws Exception {
+        Car car = TestCarFactory.getCarEntity();
+        car.setVersion(2L);
+        doThrow(new CarConflictException("Car with id: " + car.getId() + " was changed by another update, "
+                + "version 2 is no longer current"))
+                .when(carFacade).update(any());
+
+        mockMvc.perform(put("/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(car)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateCar_withoutVersion_returnsPreconditionRequired() throws Exception {
+        Car car = TestCarFactory.getCarEntity();
+        doThrow(new CarVersionRequiredException("Cannot update car with id: " + car.getId()
+                + " without the version it was read in"))
+                .when(carFacade).update(any());
+
+        mockMvc.perform(put("/cars")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(car)))
+                .andExpect(status().isPreconditionRequired());
+    }
+}
@@ -0,0 +1,58 @@
+package org.muni.pa165;
+
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.facade.CarFacade;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionAuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends requests through the security filter chain, opaque tokens are introspected by a mock.
+ */
+@SpringBootTest(classes = CarMain.class)
+@AutoConfigureMockMvc
+class CarSecurityIT {
+
+    @MockBean
+    private OpaqueTokenIntrospector introspector;
+
+    @MockBean
+    private CarFacade carFacade;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void findCarsByIds_withoutToken_isAllowed() throws Exception {
+        mockMvc.perform(get("/cars").param("ids", "1", "2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void findAllCars_withoutToken_isRejected() throws Exception {
+        mockMvc.perform(get("/cars"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void findAllCars_withReadScope_isAllowed() throws Exception {
+        when(introspector.introspect("opaque-token")).thenReturn(new OAuth2IntrospectionAuthenticatedPrincipal(
+                Map.of("sub", "tester"), List.of(new SimpleGrantedAuthority("SCOPE_test_read"))));
+
+        mockMvc.perform(get("/cars").header(HttpHeaders.AUTHORIZATION, "Bearer opaque-token"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,63 @@
+package org.muni.pa165.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.data.domain.CarDeletion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class CarDeletionRepositoryTest {
+
+    @Autowired
+    private CarDeletionRepository carDeletionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findFeed_returnsEntriesAfterSequenceAndRecentEntriesBelowIt() {
+        CarDeletion old = record(1L, Instant.now().minus(1, ChronoUnit.HOURS));
+        CarDeletion recent = record(2L, Instant.now());
+        CarDeletion following = record(3L, Instant.now().minus(1, ChronoUnit.HOURS));
+
+        List<CarDeletion> feed = carDeletionRepository.findFeed(recent.getId(), Instant.now().minusSeconds(30));
+
+        assertThat(feed).as("Ensure a recent entry below the sequence is sent again while an old one is not")
+                .extracting(CarDeletion::getId)
+                .containsExactly(recent.getId(), following.getId())
+                .doesNotContain(old.getId());
+    }
+
+    @Test
+    void deleteRecordedBefore_keepsRecentEntriesAndTheLastOne() {
+        Instant old = Instant.now().minus(2, ChronoUnit.DAYS);
+        record(1L, old);
+        CarDeletion recent = record(2L, Instant.now());
+        CarDeletion last = record(3L, old);
+
+        int deleted = carDeletionRepository.deleteRecordedBefore(Instant.now().minus(1, ChronoUnit.DAYS));
+        entityManager.clear();
+
+        assertThat(deleted).as("Ensure only the old entry which is not the last one is deleted").isEqualTo(1);
+        assertThat(carDeletionRepository.findAll()).as("Ensure the last entry keeps the sequence number")
+                .extracting(CarDeletion::getId)
+                .containsExactly(recent.getId(), last.getId());
+    }
+
+    private CarDeletion record(Long carId, Instant recordedAt) {
+        CarDeletion deletion = entityManager.persistAndFlush(CarDeletion.builder().carId(carId).build());
+        entityManager.getEntityManager()
+                .createQuery("UPDATE CarDeletion d SET d.recordedAt = :recordedAt WHERE d.id = :id")
+                .setParameter("recordedAt", recordedAt)
+                .setParameter("id", deletion.getId())
+                .executeUpdate();
+        return deletion;
+    }
+}
@@ -0,0 +1,62 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures every finder of cars reads through an index instead of scanning the table.
+ * The statement generated for a finder is recorded and its plan is explained by the database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.muni.pa165.data.repository.CarRepositoryQueryPlanTest$LastStatement")
+class CarRepositoryQueryPlanTest {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findByCarMake_readsThroughIndex() {
+        carRepository.findByCarMake("Ferrari");
+
+        assertThat(explain("Ferrari")).as("Ensure cars are found by the car make index")
+                .contains("CAR_CAR_MAKE_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findByMainDriver_readsThroughIndex() {
+        carRepository.findByMainDriver(1L);
+
+        assertThat(explain(1L)).as("Ensure cars are found by the main driver index")
+                .contains("CAR_MAIN_DRIVER_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    private String explain(Object... parameters) {
+        Query explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + LastStatement.sql);
+        for (int i = 0; i < parameters.length; i++) {
+            explain.setParameter(i + 1, parameters[i]);
+        }
+        return (String) explain.getSingleResult();
+    }
+
+    public static class LastStatement implements StatementInspector {
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.data.domain.Car;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards against per car queries for test drivers and components: list queries must issue
+ * the same number of SQL statements for a few cars as for a full page of them.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CarRepositoryTest {
+
+    private static final int FEW_CARS = 3;
+    private static final int MANY_CARS = 300;
+
+    /**
+     * One query for the cars and one batch query for each of the two collections.
+     */
+    private static final long STATEMENTS_PER_LIST_QUERY = 3;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAll_statementCountDoesNotGrowWithCars() {
+        assertBoundedStatements(carRepository::findAll);
+    }
+
+    @Test
+    void findByCarMake_statementCountDoesNotGrowWithCars() {
+        assertBoundedStatements(() -> carRepository.findByCarMake("Ferrari"));
+    }
+
+    @Test
+    void findByMainDriver_statementCountDoesNotGrowWithCars() {
+        assertBoundedStatements(() -> carRepository.findByMainDriver(1L));
+    }
+
+    @Test
+    void findAllBy_statementCountDoesNotGrowWithPageSize() {
+        assertBoundedStatements(() -> carRepository.findAllBy(PageRequest.of(0, 1000, Sort.by("id"))).getContent());
+    }
+
+    @Test
+    void findByIdGreaterThan_statementCountDoesNotGrowWithLimit() {
+        assertBoundedStatements(() -> carRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(1000)));
+    }
+
+    @Test
+    void deleteAllInBatch_statementCountDoesNotGrowWithCars() {
+        persistCars(MANY_CARS);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        carRepository.deleteAllInBatch();
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("Ensure the cars and their collections are deleted by one statement per table").isEqualTo(3);
+        assertThat(countRows("car_test_drivers")).as("Ensure test drivers of the cars are deleted").isZero();
+        assertThat(countRows("car_components")).as("Ensure components of the cars are deleted").isZero();
+    }
+
+    @Test
+    void removeById_deletesCarWithItsCollections() {
+        persistCars(2);
+        Long id = carRepository.findAll().get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        int deleted = carRepository.removeById(id);
+
+        assertThat(deleted).as("Ensure the car is deleted").isEqualTo(1);
+        assertThat(carRepository.count()).as("Ensure the other car is kept").isEqualTo(1);
+        assertThat(countRows("car_test_drivers")).as("Ensure only test drivers of the deleted car are removed")
+                .isEqualTo(2);
+        assertThat(countRows("car_components")).as("Ensure only components of the deleted car are removed")
+                .isEqualTo(2);
+    }
+
+    private void assertBoundedStatements(Supplier<List<Car>> query) {
+        persistCars(FEW_CARS);
+        long fewCarsStatements = countStatements(query, FEW_CARS);
+        persistCars(MANY_CARS - FEW_CARS);
+        long manyCarsStatements = countStatements(query, MANY_CARS);
+
+        assertThat(fewCarsStatements).as("Ensure collections of a few cars are loaded in batches")
+                .isEqualTo(STATEMENTS_PER_LIST_QUERY);
+        assertThat(manyCarsStatements).as("Ensure the number of statements does not grow with the number of cars")
+                .isEqualTo(fewCarsStatements);
+    }
+
+    private long countStatements(Supplier<List<Car>> query, int expectedCars) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<Car> cars = query.get();
+
+        assertThat(cars).as("Ensure all persisted cars are found").hasSize(expectedCars);
+        assertThat(cars).as("Ensure collections of every car are loaded")
+                .allSatisfy(car -> {
+                    assertThat(car.getTestDrivers()).hasSize(2);
+                    assertThat(car.getComponents()).hasSize(2);
+                });
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countRows(String table) {
+        return ((Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT COUNT(*) FROM " + table)
+                .getSingleResult()).longValue();
+    }
+
+    private void persistCars(int count) {
+        for (long i = 0; i < count; i++) {
+            entityManager.persist(Car.builder()
+                    .carMake("Ferrari")
+                    .mainDriver(1L)
+                    .testDrivers(Set.of(i, i + 1))
+                    .components(Set.of(i + 100, i + 101))
+                    .build());
+        }
+    }
+}
@@ -8,16 +8,23 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.api.CarCreateViewDto;
 import org.muni.pa165.api.CarViewDto;
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.data.domain.CarChange;
+import org.muni.pa165.data.domain.CarDeletion;
 import org.muni.pa165.mapper.CarMapper;
 import org.muni.pa165.service.CarService;
 import org.muni.pa165.utils.TestCarFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -64,6 +71,17 @@ class CarFacadeTest {
         verify(carService, times(1)).save(testCar);
     }
 
+    @Test
+    void createAllCars_savesAndReturnsCarDtos() {
+        when(carMapper.fromCarCreateViewDto(testCarCreateViewDto)).thenReturn(testCar);
+        when(carService.saveAll(List.of(testCar))).thenReturn(List.of(testCar));
+        when(carMapper.toCarViewDto(testCar)).thenReturn(testCarViewDto);
+
+        List<CarViewDto> savedDtos = carFacade.createAll(List.of(testCarCreateViewDto));
+
+        assertThat(savedDtos).as("Verify a DTO is returned for every saved car").containsExactly(testCarViewDto);
+    }
+
     @Test
     void deleteCarById_carDeleted_invokesDeletion() {
         carFacade.delete(1L);
@@ -80,14 +98,38 @@ class CarFacadeTest {
 
     @Test
     void findAllCars_carsFound_returnsCarsList() {
-        when(carService.findAll()).thenReturn(TestCarFactory.getListOfCarEntities());
+        when(carService.findPage(0, 100)).thenReturn(TestCarFactory.getListOfCarEntities());
         when(carMapper.toCarViewDto(any())).thenReturn(testCarViewDto);
 
-        List<CarViewDto> foundDtos = carFacade.findAll();
+        List<CarViewDto> foundDtos = carFacade.findAll(0, 100, null);
 
         assertThat(foundDtos).as("Verify that the list of found car DTOs matches the expected list from TestDataFactory").isEqualTo(TestCarFactory.getListOfCarViewDto());
     }
 
+    @Test
+    void findAllCars_afterId_returnsCarsFollowingIt() {
+        when(carService.findAllAfter(1L, 10)).thenReturn(List.of(testCar));
+        when(carMapper.toCarViewDto(testCar)).thenReturn(testCarViewDto);
+
+        List<CarViewDto> foundDtos = carFacade.findAll(0, 10, 1L);
+
+        assertThat(foundDtos).as("Ensure the cars following the given id are returned").containsExactly(testCarViewDto);
+    }
+
+    @Test
+    void exportAll_passesEachCarAsDto() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Car>>getArgument(0).accept(testCar);
+            return null;
+        }).when(carService).streamAll(any());
+        when(carMapper.toCarViewDto(testCar)).thenReturn(testCarViewDto);
+        List<CarViewDto> exported = new ArrayList<>();
+
+        carFacade.exportAll(exported::add);
+
+        assertThat(exported).as("Ensure every car is passed as DTO").containsExactly(testCarViewDto);
+    }
+
     @Test
     void updateCar_carUpdated_invokesUpdate() {
         carFacade.update(testCar);
@@ -140,4 +182,91 @@ class CarFacadeTest {
         carFacade.update(testCar);
         verify(carService).update(testCar);
     }
+
+    @Test
+    void findDeletions_withoutSequence_returnsResetWithLastSequence() {
+        when(carService.findLastDeletionSequence()).thenReturn(5L);
+
+        DeletionFeedDto feed = carFacade.findDeletions(null);
+
+        assertThat(feed).as("Verify that a new consumer is asked to reset and continue from the last sequence")
+                .isEqualTo(new DeletionFeedDto(5L, List.of(), true));
+    }
+
+    @Test
+    void findDeletions_afterKnownSequence_returnsDeletedIds() {
+        when(carService.findLastDeletionSequence()).thenReturn(7L);
+        when(carService.findDeletionsAfter(5L)).thenReturn(List.of(
+                new CarDeletion(6L, 1L, null), new CarDeletion(7L, 2L, null)));
+
+        DeletionFeedDto feed = carFacade.findDeletions(5L);
+
+        assertThat(feed).as("Verify that ids deleted after the sequence are returned with the last sequence")
+                .isEqualTo(new DeletionFeedDto(7L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findDeletions_afterDeleteAll_returnsReset() {
+        when(carService.findLastDeletionSequence()).thenReturn(6L);
+        when(carService.findDeletionsAfter(5L)).thenReturn(List.of(new CarDeletion(6L, null, null)));
+
+        DeletionFeedDto feed = carFacade.findDeletions(5L);
+
+        assertThat(feed.isReset()).as("Verify that deleting all cars asks consumers to reset").isTrue();
+    }
+
+    @Test
+    void findDeletions_afterUnknownSequence_returnsReset() {
+        when(carService.findLastDeletionSequence()).thenReturn(2L);
+
+        DeletionFeedDto feed = carFacade.findDeletions(10L);
+
+        assertThat(feed).as("Verify that a sequence from before a restart asks consumers to reset")
+                .isEqualTo(new DeletionFeedDto(2L, List.of(), true));
+    }
+
+    @Test
+    void findDeletions_afterPrunedSequence_returnsReset() {
+        when(carService.findLastDeletionSequence()).thenReturn(20L);
+        when(carService.findFirstDeletionSequence()).thenReturn(12L);
+
+        DeletionFeedDto feed = carFacade.findDeletions(10L);
+
+        assertThat(feed).as("Verify that a consumer missing pruned entries is asked to reset")
+                .isEqualTo(new DeletionFeedDto(20L, List.of(), true));
+    }
+
+    @Test
+    void findDeletions_recentDeleteAllBelowSequence_keepsSequenceAndResets() {
+        when(carService.findLastDeletionSequence()).thenReturn(7L);
+        when(carService.findDeletionsAfter(7L)).thenReturn(List.of(
+                new CarDeletion(5L, null, null), new CarDeletion(6L, 3L, null)));
+
+        DeletionFeedDto feed = carFacade.findDeletions(7L);
+
+        assertThat(feed).as("Verify that entries sent again do not move the sequence back and a late delete of all resets")
+                .isEqualTo(new DeletionFeedDto(7L, List.of(3L), true));
+    }
+
+    @Test
+    void findChanges_afterKnownSequence_returnsEachChangedIdOnce() {
+        when(carService.findLastChangeSequence()).thenReturn(8L);
+        when(carService.findChangesAfter(5L)).thenReturn(List.of(
+                new CarChange(6L, 1L, null), new CarChange(7L, 2L, null), new CarChange(8L, 1L, null)));
+
+        ChangeFeedDto feed = carFacade.findChanges(5L);
+
+        assertThat(feed).as("Verify that ids changed after the sequence are returned once with the last sequence")
+                .isEqualTo(new ChangeFeedDto(8L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findChanges_afterUnknownSequence_returnsReset() {
+        when(carService.findLastChangeSequence()).thenReturn(3L);
+
+        ChangeFeedDto feed = carFacade.findChanges(10L);
+
+        assertThat(feed).as("Verify that a consumer ahead of this instance is asked to refresh everything")
+                .isEqualTo(new ChangeFeedDto(3L, List.of(), true));
+    }
 }
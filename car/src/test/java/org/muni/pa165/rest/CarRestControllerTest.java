@@ -30,8 +30,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -81,6 +85,16 @@ class CarRestControllerTest {
         assertThat(response.getBody()).as("Ensure the body matches the expected car after successful creation").isEqualTo(carViewDto);
     }
 
+    @Test
+    void saveCars_validData_createsAllCars() {
+        when(carFacade.createAll(List.of(carCreateViewDto))).thenReturn(List.of(carViewDto));
+
+        ResponseEntity<List<CarViewDto>> response = carRestController.saveCars(List.of(carCreateViewDto));
+
+        assertThat(response.getStatusCode()).as("Verify status code is CREATED when all cars are created").isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).as("Ensure the body contains all the created cars").containsExactly(carViewDto);
+    }
+
     @Test
     void deleteCarById_whenFound_deletesCar() {
         ResponseEntity<?> response = carRestController.deleteCarById(1L);
@@ -100,23 +114,55 @@ class CarRestControllerTest {
     @Test
     void findAllCars_returnsAllCars() {
         List<CarViewDto> cars = Collections.singletonList(carViewDto);
-        when(carFacade.findAll()).thenReturn(cars);
+        when(carFacade.findAll(0, 100, null)).thenReturn(cars);
 
-        ResponseEntity<List<CarViewDto>> response = carRestController.findAllCars();
+        ResponseEntity<List<CarViewDto>> response = carRestController.findAllCars(0, 100, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when retrieving all cars").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body matches the expected list of cars when all are found").isEqualTo(cars);
     }
 
+    @Test
+    void findAllCars_withoutPagingParameters_returnsWholeList() {
+        List<CarViewDto> cars = Collections.singletonList(carViewDto);
+        when(carFacade.findAll()).thenReturn(cars);
+
+        ResponseEntity<?> response = carRestController.findAllCars(null, null, null);
+
+        assertThat(response.getBody()).as("Ensure clients passing no paging parameters get all cars as before")
+                .isEqualTo(cars);
+        verify(carFacade, never()).findAll(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void findCarsByIds_returnsFoundCars() {
+        List<CarViewDto> cars = Collections.singletonList(carViewDto);
+        when(carFacade.findAllById(List.of(1L, 2L))).thenReturn(cars);
+
+        ResponseEntity<List<CarViewDto>> response = carRestController.findCarsByIds(List.of(1L, 2L));
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when cars are looked up by IDs").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body contains the cars found by IDs").isEqualTo(cars);
+    }
+
     @Test
     void updateCar_whenFound_updatesCar() {
         doNothing().when(carFacade).update(carEntity);
 
-        ResponseEntity<?> response = carRestController.updateCar(carEntity);
+        ResponseEntity<?> response = carRestController.updateCar(carEntity, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when a car is found and updated").isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    void updateCar_withIfMatch_usesVersionOfETag() {
+        carEntity.setVersion(1L);
+
+        carRestController.updateCar(carEntity, "W/\"3\"");
+
+        verify(carFacade).update(argThat(car -> car.getVersion() == 3L));
+    }
+
     @Test
     void findCarsByCarMake_whenCarsFound_returnsCars() {
         List<CarViewDto> cars = Collections.singletonList(carViewDto);
@@ -1,27 +1,42 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.data.domain.CarChange;
+import org.muni.pa165.data.domain.CarDeletion;
+import org.muni.pa165.data.repository.CarChangeRepository;
+import org.muni.pa165.data.repository.CarDeletionRepository;
 import org.muni.pa165.data.repository.CarRepository;
+import org.muni.pa165.exceptions.CarConflictException;
 import org.muni.pa165.exceptions.CarNotFoundException;
+import org.muni.pa165.exceptions.CarVersionRequiredException;
 import org.muni.pa165.exceptions.DataStorageException;
 import org.muni.pa165.utils.TestCarFactory;
-
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,10 +46,18 @@ class CarServiceImplTest {
     @Mock
     private CarRepository carRepository;
 
+    @Mock
+    private CarDeletionRepository carDeletionRepository;
+
+    @Mock
+    private CarChangeRepository carChangeRepository;
+
     @Mock
     private ExternalService externalService;
 
-    @InjectMocks
+    @Mock
+    private EntityManager entityManager;
+
     private CarServiceImpl carService;
 
     private Car testCar;
@@ -42,13 +65,16 @@ class CarServiceImplTest {
     @BeforeEach
     void setUp() {
         testCar = TestCarFactory.getCarEntity();
+        carService = new CarServiceImpl(carRepository, carDeletionRepository, carChangeRepository,
+                new CarValidator(externalService, Runnable::run, Duration.ofSeconds(5)), entityManager,
+                Duration.ofSeconds(30), Duration.ofDays(1));
     }
 
     @Test
     void saveCar_savesAndReturnsCar() {
         when(carRepository.save(any(Car.class))).thenReturn(testCar);
-        when(externalService.driverExists(any())).thenReturn(true);
-        when(externalService.componentExists(any())).thenReturn(true);
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
 
         Car result = carService.save(testCar);
 
@@ -78,17 +104,17 @@ class CarServiceImplTest {
     @Test
     void deleteCarById_whenCarFound_deletesCar() {
         Long carId = testCar.getId();
-        when(carRepository.existsById(carId)).thenReturn(true);
+        when(carRepository.removeById(carId)).thenReturn(1);
 
         carService.delete(carId);
 
-        verify(carRepository).deleteById(carId);
+        verify(carRepository).removeById(carId);
     }
 
     @Test
     void deleteCarById_whenCarNotFound_ThrowsCarNotFoundException() {
         Long carId = testCar.getId();
-        when(carRepository.existsById(carId)).thenReturn(false);
+        when(carRepository.removeById(carId)).thenReturn(0);
 
         assertThatThrownBy(() -> carService.delete(carId))
                 .isInstanceOf(CarNotFoundException.class);
@@ -98,31 +124,59 @@ class CarServiceImplTest {
     void deleteAllCars_deletesAllCars() {
         carService.deleteAll();
 
-        verify(carRepository).deleteAll();
+        verify(carRepository).deleteAllInBatch();
     }
 
     @Test
     void updateCar_whenCarFound_updatesAndSavesCar() {
-        when(carRepository.existsById(testCar.getId())).thenReturn(true);
-        when(carRepository.save(any(Car.class))).thenReturn(testCar);
-        when(externalService.driverExists(any())).thenReturn(true);
-        when(externalService.componentExists(any())).thenReturn(true);
+        testCar.setVersion(3L);
+        when(carRepository.findById(testCar.getId()))
+                .thenReturn(Optional.of(Car.builder().id(testCar.getId()).version(3L).build()));
+        when(carRepository.saveAndFlush(any(Car.class))).thenReturn(testCar);
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
 
         carService.update(testCar);
 
-        verify(carRepository).save(testCar);
+        verify(carRepository).saveAndFlush(testCar);
+    }
+
+    @Test
+    void updateCar_withoutVersion_throwsCarVersionRequiredException() {
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+
+        assertThatThrownBy(() -> carService.update(testCar))
+                .isInstanceOf(CarVersionRequiredException.class);
+        verify(carRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void updateCar_whenCarNotFound_throwsCarNotFoundException() {
-        when(externalService.driverExists(any())).thenReturn(true);
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(carRepository.existsById(testCar.getId())).thenReturn(false);
+        testCar.setVersion(3L);
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(carRepository.findById(testCar.getId())).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> carService.update(testCar))
                 .isInstanceOf(CarNotFoundException.class);
     }
 
+    @Test
+    void updateCar_whenVersionIsStale_throwsCarConflictException() {
+        testCar.setVersion(2L);
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(carRepository.findById(testCar.getId()))
+                .thenReturn(Optional.of(Car.builder().id(testCar.getId()).version(3L).build()));
+        when(carRepository.saveAndFlush(testCar))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Car.class, testCar.getId()));
+
+        assertThatThrownBy(() -> carService.update(testCar))
+                .isInstanceOf(CarConflictException.class)
+                .hasMessageContaining("version 2 is no longer current");
+    }
+
     @Test
     void findAllCars_returnsAllCars() {
         List<Car> expectedCars = Arrays.asList(testCar, TestCarFactory.getCarEntity());
@@ -134,6 +188,53 @@ class CarServiceImplTest {
         assertThat(result).as("Check if the list of all cars matches the expected list").isEqualTo(expectedCars);
     }
 
+    @Test
+    void findPage_sizeOverLimit_readsAtMostMaxPageSize() {
+        when(carRepository.findAllBy(PageRequest.of(2, CarServiceImpl.MAX_PAGE_SIZE, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(List.of(testCar)));
+
+        List<Car> result = carService.findPage(2, 5000);
+
+        assertThat(result).as("Ensure only the requested slice is read").containsExactly(testCar);
+    }
+
+    @Test
+    void findAllAfter_returnsCarsFollowingId() {
+        when(carRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(List.of(testCar));
+
+        List<Car> result = carService.findAllAfter(5L, 10);
+
+        assertThat(result).as("Ensure the cars following the given id are returned").containsExactly(testCar);
+    }
+
+    @Test
+    void streamAll_readsCarsInKeysetPagesAndDetachesThem() {
+        List<Car> firstPage = LongStream.rangeClosed(1, CarServiceImpl.MAX_PAGE_SIZE)
+                .mapToObj(id -> Car.builder().id(id).build())
+                .toList();
+        when(carRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(CarServiceImpl.MAX_PAGE_SIZE)))
+                .thenReturn(firstPage);
+        when(carRepository.findByIdGreaterThanOrderByIdAsc((long) CarServiceImpl.MAX_PAGE_SIZE,
+                Limit.of(CarServiceImpl.MAX_PAGE_SIZE))).thenReturn(List.of(testCar));
+        List<Car> passed = new ArrayList<>();
+
+        carService.streamAll(passed::add);
+
+        assertThat(passed).as("Ensure cars of all pages are passed to the action")
+                .hasSize(CarServiceImpl.MAX_PAGE_SIZE + 1)
+                .endsWith(testCar);
+        verify(entityManager).detach(testCar);
+    }
+
+    @Test
+    void findAllCarsById_returnsFoundCars() {
+        when(carRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testCar));
+
+        List<Car> result = carService.findAllById(List.of(1L, 2L));
+
+        assertThat(result).as("Check that only the cars found by the repository are returned").containsExactly(testCar);
+    }
+
     @Test
     void findCarsByCarMake_whenCarsFound_returnsCarList() {
         List<Car> expectedCars = List.of(testCar);
@@ -178,7 +279,7 @@ class CarServiceImplTest {
 
     @Test
     void saveCar_withInvalidComponent_throwsDataStorageException() {
-        when(externalService.componentExists(any())).thenReturn(false);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of(100L));
 
         assertThatThrownBy(() -> carService.save(testCar))
                 .isInstanceOf(DataStorageException.class)
@@ -188,22 +289,22 @@ class CarServiceImplTest {
     @Test
     void saveCar_withInvalidDriver_throwsDataStorageException() {
         Car carWithInvalidDriver = TestCarFactory.getCarEntity();
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(externalService.driverExists(carWithInvalidDriver.getMainDriver())).thenReturn(false);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of(carWithInvalidDriver.getMainDriver()));
 
         assertThatThrownBy(() -> carService.save(carWithInvalidDriver))
                 .isInstanceOf(DataStorageException.class)
                 .hasMessageContaining("Driver with id: " + carWithInvalidDriver.getMainDriver() + " does not exist.");
 
-        verify(externalService, atLeastOnce()).componentExists(any());
-        verify(externalService).driverExists(carWithInvalidDriver.getMainDriver());
+        verify(externalService).findMissingComponents(carWithInvalidDriver.getComponents());
+        verify(externalService).findMissingDrivers(Set.of(1L, 2L));
     }
 
     @Test
     void saveCar_withNullCarMake_throwsDataStorageException() {
         testCar.setCarMake(null);
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(externalService.driverExists(any())).thenReturn(true);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> carService.save(testCar))
                 .isInstanceOf(DataStorageException.class)
@@ -212,7 +313,7 @@ class CarServiceImplTest {
 
     @Test
     void updateCar_withInvalidComponent_throwsDataStorageException() {
-        when(externalService.componentExists(any())).thenReturn(false);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of(100L));
 
         assertThatThrownBy(() -> carService.update(testCar))
                 .isInstanceOf(DataStorageException.class)
@@ -221,8 +322,8 @@ class CarServiceImplTest {
 
     @Test
     void updateCar_withInvalidDriver_throwsDataStorageException() {
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(externalService.driverExists(any())).thenReturn(false);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of(testCar.getMainDriver()));
 
         assertThatThrownBy(() -> carService.update(testCar))
                 .isInstanceOf(DataStorageException.class)
@@ -232,8 +333,8 @@ class CarServiceImplTest {
     @Test
     void updateCar_withNullCarMake_throwsDataStorageException() {
         testCar.setCarMake("");
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(externalService.driverExists(any())).thenReturn(true);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> carService.update(testCar))
                 .isInstanceOf(DataStorageException.class)
@@ -253,14 +354,103 @@ class CarServiceImplTest {
     void saveCar_withNonExistingTestDriver_throwsDataStorageException() {
         testCar.setTestDrivers(new HashSet<>(Arrays.asList(1L, 2L))); // Assuming 2L does not exist
 
-        when(externalService.componentExists(any())).thenReturn(true);
-        when(externalService.driverExists(1L)).thenReturn(true);
-        when(externalService.driverExists(2L)).thenReturn(false); // Mock that driver 2L does not exist
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of(2L)); // Mock that driver 2L does not exist
 
         assertThatThrownBy(() -> carService.save(testCar))
                 .isInstanceOf(DataStorageException.class)
                 .hasMessageContaining("Driver with id: 2 does not exist.");
 
-        verify(externalService).driverExists(2L);
+        verify(externalService).findMissingDrivers(Set.of(1L, 2L));
+    }
+
+    @Test
+    void saveCar_checksAllDriversInOneCall() {
+        when(carRepository.save(any(Car.class))).thenReturn(testCar);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+
+        carService.save(testCar);
+
+        verify(externalService).findMissingComponents(Set.of(100L, 101L));
+        verify(externalService).findMissingDrivers(Set.of(1L, 2L));
+    }
+
+    @Test
+    void saveAllCars_checksReferencesOfAllCarsInOneCall() {
+        Car otherCar = TestCarFactory.getCarEntity();
+        otherCar.setMainDriver(3L);
+        otherCar.setComponents(Set.of(102L));
+        List<Car> cars = List.of(testCar, otherCar);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of());
+
+        List<Car> result = carService.saveAll(cars);
+
+        verify(externalService).findMissingComponents(Set.of(100L, 101L, 102L));
+        verify(externalService).findMissingDrivers(Set.of(1L, 2L, 3L));
+        verify(carRepository).saveAll(cars);
+        verify(entityManager).flush();
+        assertThat(result).as("Ensure all the saved cars are returned").isEqualTo(cars);
+    }
+
+    @Test
+    void saveAllCars_withMissingDriver_savesNothing() {
+        Car otherCar = TestCarFactory.getCarEntity();
+        otherCar.setMainDriver(3L);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenReturn(Set.of(3L));
+
+        assertThatThrownBy(() -> carService.saveAll(List.of(testCar, otherCar)))
+                .isInstanceOf(DataStorageException.class)
+                .hasMessageContaining("Driver with id: 3 does not exist.");
+        verify(carRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void delete_whenExists_recordsDeletion() {
+        when(carRepository.removeById(1L)).thenReturn(1);
+
+        carService.delete(1L);
+
+        verify(carDeletionRepository).save(CarDeletion.builder().carId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsDeletionOfAllCars() {
+        carService.deleteAll();
+
+        verify(carDeletionRepository).save(new CarDeletion());
+    }
+
+    @Test
+    void findLastDeletionSequence_whenNoDeletion_returnsZero() {
+        when(carDeletionRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+
+        assertThat(carService.findLastDeletionSequence()).as("Check that the sequence starts at zero").isZero();
+    }
+
+    @Test
+    void pruneFeeds_deletesEntriesOfBothLogs() {
+        carService.pruneFeeds();
+
+        verify(carDeletionRepository).deleteRecordedBefore(any());
+        verify(carChangeRepository).deleteRecordedBefore(any());
+    }
+
+    @Test
+    void delete_whenExists_recordsChange() {
+        when(carRepository.removeById(1L)).thenReturn(1);
+
+        carService.delete(1L);
+
+        verify(carChangeRepository).save(CarChange.builder().carId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsChangeOfAllCars() {
+        carService.deleteAll();
+
+        verify(carChangeRepository).save(new CarChange());
     }
 }
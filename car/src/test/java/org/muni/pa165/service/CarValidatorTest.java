@@ -0,0 +1,118 @@
+package org.muni.pa165.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.data.domain.Car;
+import org.muni.pa165.exceptions.DataStorageException;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestCarFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatCode;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CarValidatorTest {
+
+    @Mock
+    private ExternalService externalService;
+
+    private ExecutorService executor;
+
+    private CarValidator carValidator;
+
+    private Car testCar;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        carValidator = new CarValidator(externalService, executor, Duration.ofSeconds(5));
+        testCar = TestCarFactory.getCarEntity();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void validate_checksComponentsAndDriversConcurrently() {
+        CountDownLatch bothChecksStarted = new CountDownLatch(2);
+        when(externalService.findMissingComponents(any())).thenAnswer(invocation -> awaitOther(bothChecksStarted));
+        when(externalService.findMissingDrivers(any())).thenAnswer(invocation -> awaitOther(bothChecksStarted));
+
+        assertThatCode(() -> carValidator.validate(testCar))
+                .as("Expect a valid car to pass when both checks run at the same time")
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void validate_carWithoutDrivers_checksOnlyComponents() {
+        testCar.setMainDriver(null);
+        testCar.setTestDrivers(null);
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+
+        carValidator.validate(testCar);
+
+        verify(externalService, never()).findMissingDrivers(any());
+    }
+
+    @Test
+    void validate_whenChecksExceedTimeout_throwsExternalCallException() {
+        carValidator = new CarValidator(externalService, executor, Duration.ofMillis(100));
+        when(externalService.findMissingComponents(any())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return Set.of();
+        });
+
+        assertThatThrownBy(() -> carValidator.validate(testCar))
+                .as("Expect ExternalCallException when the checks miss their deadline")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("did not finish within");
+    }
+
+    @Test
+    void validate_whenDriverServiceFails_propagatesException() {
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of());
+        when(externalService.findMissingDrivers(any())).thenThrow(new ExternalCallException("Service unavailable"));
+
+        assertThatThrownBy(() -> carValidator.validate(testCar))
+                .as("Expect the original exception of a failed check to be rethrown")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("Service unavailable");
+    }
+
+    @Test
+    void validate_missingComponentAndDriver_reportsComponentFirst() {
+        when(externalService.findMissingComponents(any())).thenReturn(Set.of(101L));
+        lenient().when(externalService.findMissingDrivers(any())).thenReturn(Set.of(2L));
+
+        assertThatThrownBy(() -> carValidator.validate(testCar))
+                .as("Expect the missing component to be reported before the missing driver")
+                .isInstanceOf(DataStorageException.class)
+                .hasMessageContaining("Component with id: 101 does not exist.");
+    }
+
+    private static Set<Long> awaitOther(CountDownLatch bothChecksStarted) throws InterruptedException {
+        bothChecksStarted.countDown();
+        if (!bothChecksStarted.await(2, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Checks were not issued concurrently");
+        }
+        return Set.of();
+    }
+}
@@ -1,24 +1,38 @@
 package org.muni.pa165.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.muni.pa165.api.Component;
+import org.muni.pa165.api.DeletionFeed;
 import org.muni.pa165.api.Driver;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExternalServiceImplTest {
@@ -47,7 +61,9 @@ public class ExternalServiceImplTest {
         when(mockRequestHeadersSpec.retrieve()).thenReturn(mockResponseSpec);
 
         mockRestTemplate = mock(RestTemplate.class);
-        externalService = new ExternalServiceImpl(mockRestTemplate);
+        externalService = new ExternalServiceImpl(mockRestTemplate, new DownstreamGuard(new SimpleMeterRegistry(),
+                50, Duration.ofSeconds(3), 20, Duration.ofSeconds(10), 32, Duration.ofMillis(100)),
+                Duration.ofMinutes(10), 100, 100, 2);
     }
 
     @AfterEach
@@ -58,7 +74,7 @@ public class ExternalServiceImplTest {
     @Test
     void componentExists_WhenComponentExists_ReturnsTrue() {
         when(mockResponseSpec.toEntity(Component.class)).thenReturn(ResponseEntity.ok(new Component()));
-        when(mockRestTemplate.getForEntity(anyString(), eq(Component.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
                 .thenReturn(new ResponseEntity<>(new Component(), HttpStatus.OK));
         assertTrue(externalService.componentExists(1L));
     }
@@ -66,7 +82,7 @@ public class ExternalServiceImplTest {
     @Test
     void componentExists_WhenComponentDoesNotExist_ReturnsFalse() {
         when(mockResponseSpec.toEntity(Component.class)).thenReturn(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
-        when(mockRestTemplate.getForEntity(anyString(), eq(Component.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
                 .thenReturn(new ResponseEntity<>(new Component(), HttpStatus.NOT_FOUND));
         assertFalse(externalService.componentExists(99L));
     }
@@ -74,7 +90,7 @@ public class ExternalServiceImplTest {
     @Test
     void driverExists_WhenDriverExists_ReturnsTrue() {
         when(mockResponseSpec.toEntity(Driver.class)).thenReturn(ResponseEntity.ok(new Driver()));
-        when(mockRestTemplate.getForEntity(anyString(), eq(Driver.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
                 .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.OK));
         assertTrue(externalService.driverExists(1L));
     }
@@ -82,8 +98,117 @@ public class ExternalServiceImplTest {
     @Test
     void driverExists_WhenDriverDoesNotExist_ReturnsFalse() {
         when(mockResponseSpec.toEntity(Driver.class)).thenReturn(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
-        when(mockRestTemplate.getForEntity(anyString(), eq(Driver.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
                 .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.NOT_FOUND));
         assertFalse(externalService.driverExists(99L));
     }
+
+    @Test
+    void findMissingComponents_returnsIdsReportedMissingByComponentService() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("2,1")))
+                .thenReturn(new Long[]{2L});
+
+        assertEquals(Set.of(2L), externalService.findMissingComponents(List.of(2L, 1L)));
+    }
+
+    @Test
+    void findMissingComponents_checksIdsInBatchesKeepingTheirOrder() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("5,3")))
+                .thenReturn(new Long[]{3L, 5L});
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("4")))
+                .thenReturn(new Long[]{4L});
+
+        assertEquals(List.of(5L, 3L, 4L), List.copyOf(externalService.findMissingComponents(List.of(5L, 3L, 4L))));
+    }
+
+    @Test
+    void findMissingDrivers_whenAllDriversExist_returnsEmptySet() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("1")))
+                .thenReturn(new Long[0]);
+
+        assertTrue(externalService.findMissingDrivers(List.of(1L)).isEmpty());
+    }
+
+    @Test
+    void findMissingDrivers_whenDriverServiceUnavailable_throwsExternalCallException() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        assertThrows(ExternalCallException.class, () -> externalService.findMissingDrivers(List.of(1L)));
+    }
+
+    @Test
+    void findMissingComponents_secondCheck_skipsIdsKnownToExist() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("1,2")))
+                .thenReturn(new Long[]{2L});
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("2")))
+                .thenReturn(new Long[]{2L});
+
+        externalService.findMissingComponents(List.of(1L, 2L));
+        Set<Long> missing = externalService.findMissingComponents(List.of(1L, 2L));
+
+        assertEquals(Set.of(2L), missing);
+        verify(mockRestTemplate).getForObject(anyString(), eq(Long[].class), eq("2"));
+    }
+
+    @Test
+    void driverExists_whenCached_doesNotCallDriverService() {
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
+                .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.OK));
+
+        externalService.driverExists(1L);
+
+        assertTrue(externalService.driverExists(1L));
+        verify(mockRestTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class));
+    }
+
+    @Test
+    void syncDeletions_deletedComponent_isCheckedAgain() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Long[].class), eq("1")))
+                .thenReturn(new Long[0], new Long[]{1L});
+        when(mockRestTemplate.getForObject(anyString(), eq(DeletionFeed.class)))
+                .thenReturn(new DeletionFeed(3L, List.of(), true));
+        when(mockRestTemplate.getForObject(anyString(), eq(DeletionFeed.class), eq(3L)))
+                .thenReturn(new DeletionFeed(4L, List.of(1L), false));
+
+        externalService.syncDeletions();
+        externalService.findMissingComponents(List.of(1L));
+        externalService.syncDeletions();
+
+        assertEquals(Set.of(1L), externalService.findMissingComponents(List.of(1L)));
+    }
+
+    @Test
+    void syncDeletions_whenFeedUnavailable_keepsCache() {
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
+                .thenReturn(new ResponseEntity<>(new Component(), HttpStatus.OK));
+        when(mockRestTemplate.getForObject(anyString(), eq(DeletionFeed.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        externalService.componentExists(1L);
+        externalService.syncDeletions();
+
+        assertTrue(externalService.componentExists(1L));
+        verify(mockRestTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class));
+    }
+
+    @Test
+    void componentExists_whenComponentServiceKeepsFailing_rejectsCallsWithoutCallingIt() {
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+        for (long id = 1; id <= 20; id++) {
+            long componentId = id;
+            assertThrows(ExternalCallException.class, () -> externalService.componentExists(componentId));
+        }
+
+        ExternalCallException exception = assertThrows(ExternalCallException.class,
+                () -> externalService.componentExists(21L));
+
+        assertTrue(exception.getMessage().contains("suspended"));
+        verify(mockRestTemplate, times(20)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class));
+
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
+                .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.OK));
+        assertTrue(externalService.driverExists(1L));
+    }
 }
@@ -27,6 +27,7 @@ public class TestCarFactory {
                 .carMake("Toyota")
                 .testDrivers(testDrivers)
                 .components(components)
+                .version(0L)
                 .build();
     }
 
@@ -30,4 +30,8 @@ public class ComponentViewDto {
 
     @Schema(example = "ENGINE")
     private ComponentType type;
+
+    @Schema(description = "revision of the component record, incremented by every update",
+            example = "0")
+    private Long revision;
 }
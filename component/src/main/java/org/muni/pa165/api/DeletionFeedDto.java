@@ -0,0 +1,26 @@
+package org.muni.pa165.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeletionFeedDto {
+
+    @Schema(description = "Sequence number to pass as 'after' in the next request", example = "42")
+    private Long lastSequence;
+
+    @Schema(description = "IDs of components deleted since the requested sequence number", example = "[1, 2]")
+    private List<Long> deletedIds;
+
+    @Schema(description = "True when all cached components must be dropped, e.g. after all components were deleted "
+            + "or when the requested sequence number is unknown")
+    private boolean reset;
+}
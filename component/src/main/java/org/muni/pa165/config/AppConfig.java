@@ -8,15 +8,19 @@ import org.springdoc.core.customizers.OpenApiCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     public static final String SECURITY_SCHEME_OAUTH2 = "MUNI";
@@ -46,9 +50,13 @@ public class AppConfig {
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(x -> x
+                        // reads by ids are public like the reads of a single component they batch, other services
+                        // call them from scheduled tasks and anonymous requests with no token to forward
+                        .requestMatchers(readByIds("/components")).permitAll()
                         .requestMatchers(HttpMethod.GET, "/components").hasAuthority("SCOPE_test_read")
                         .requestMatchers(HttpMethod.PUT, "/components").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.POST, "/components").hasAuthority("SCOPE_test_write")
+                        .requestMatchers(HttpMethod.POST, "/components/batch").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.DELETE, "/components").hasAuthority("SCOPE_test_1")
                         .anyRequest().permitAll()
                 )
@@ -57,6 +65,11 @@ public class AppConfig {
         return http.build();
     }
 
+    private static RequestMatcher readByIds(String path) {
+        RequestMatcher read = AntPathRequestMatcher.antMatcher(HttpMethod.GET, path);
+        return request -> read.matches(request) && request.getParameter("ids") != null;
+    }
+
     /**
      * Add security definitions to generated openapi.yaml.
      */
@@ -0,0 +1,60 @@
+package org.muni.pa165.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.muni.pa165.data.domain.Component;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Second-level cache of components and of cached query results, kept in Caffeine caches behind JCache.
+ * Components and query results are bounded by size, Caffeine evicts the entries least likely to be read again
+ * (Window TinyLFU), and entries expire after a while so that rows changed directly in the database are not
+ * served forever. Update timestamps are never evicted, otherwise stale query results could be returned.
+ * Hits and misses of every region are exported under the hibernate metrics.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${component.cache.max-size:10000}") long maxSize,
+                                                @Value("${component.cache.expire-after-write:1h}") Duration expireAfterWrite) {
+        // every application context gets its own cache manager, so contexts in the same JVM do not share entries
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("component-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(Component.class.getName(), bounded(maxSize, expireAfterWrite));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                bounded(maxSize, expireAfterWrite));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, unbounded());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = unbounded();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        return configuration;
+    }
+
+    private static CaffeineConfiguration<Object, Object> unbounded() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -1,17 +1,23 @@
 package org.muni.pa165.data.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.muni.pa165.data.enums.ComponentType;
 
 import java.io.Serializable;
@@ -21,11 +27,19 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "component")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// every derived finder of the repository reads through an index instead of scanning the table
+@Table(name = "component", indexes = {
+        @Index(name = "component_type_idx", columnList = "type"),
+        @Index(name = "component_manufacturer_idx", columnList = "manufacturer")
+})
 public class Component implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids are reserved in blocks, so inserts of a bulk create are sent in JDBC batches, which IDENTITY prevents
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "component_seq")
+    @SequenceGenerator(name = "component_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -43,4 +57,9 @@ public class Component implements Serializable {
     @NotNull
     @Enumerated(EnumType.STRING)
     private ComponentType type;
+
+    // incremented by every update, identifies the state of the component in its ETag;
+    // not named version, which is the version of the part itself
+    @Version
+    private Long revision;
 }
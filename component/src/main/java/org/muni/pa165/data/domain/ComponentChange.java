@@ -0,0 +1,40 @@
+package org.muni.pa165.data.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Entry of the log of updated and deleted components, consumed by other services keeping copies of components.
+ * The id is increasing and serves as the sequence number of the entry. Ids are assigned before commit,
+ * so an entry may become visible after entries with higher ids, entries recorded recently are therefore
+ * sent again to consumers whose sequence number already passed them.
+ * An entry without component id records that all components were deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "component_change")
+public class ComponentChange implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long componentId;
+
+    @CreationTimestamp
+    private Instant recordedAt;
+}
@@ -0,0 +1,33 @@
+package org.muni.pa165.data.repository;
+
+import org.muni.pa165.data.domain.ComponentDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ComponentDeletionRepository extends JpaRepository<ComponentDeletion, Long> {
+
+    /**
+     * @return entries following the given sequence number together with entries recorded since the given time
+     */
+    @Query("SELECT d FROM ComponentDeletion d WHERE d.id > :after OR d.recordedAt >= :since ORDER BY d.id")
+    List<ComponentDeletion> findFeed(@Param("after") Long after, @Param("since") Instant since);
+
+    Optional<ComponentDeletion> findTopByOrderByIdAsc();
+
+    Optional<ComponentDeletion> findTopByOrderByIdDesc();
+
+    /**
+     * Deletes entries recorded before the given time, except the last one which keeps the sequence number.
+     */
+    @Modifying
+    @Query("DELETE FROM ComponentDeletion d WHERE d.recordedAt < :before AND d.id < (SELECT MAX(l.id) FROM ComponentDeletion l)")
+    int deleteRecordedBefore(@Param("before") Instant before);
+}
@@ -1,16 +1,49 @@
 package org.muni.pa165.data.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.muni.pa165.data.domain.Component;
 import org.muni.pa165.data.enums.ComponentType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ComponentRepository extends JpaRepository<Component, Long> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Component> findByType(ComponentType type);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Component> findByManufacturer(String manufacturer);
+
+    /**
+     * Deletes the component with the given id in a single statement.
+     *
+     * @param id id of the component
+     * @return number of deleted rows, 0 when the component does not exist
+     */
+    @Modifying
+    @Query("DELETE FROM Component c WHERE c.id = :id")
+    int removeById(@Param("id") Long id);
+
+    Slice<Component> findAllBy(Pageable pageable);
+
+    List<Component> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "GET")
+    })
+    Stream<Component> streamAllByOrderByIdAsc();
 }
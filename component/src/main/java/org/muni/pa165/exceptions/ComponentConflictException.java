@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class ComponentConflictException extends RuntimeException {
+
+    public ComponentConflictException(String message) {
+        super(message);
+    }
+}
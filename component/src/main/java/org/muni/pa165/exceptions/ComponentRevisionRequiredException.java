@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class ComponentRevisionRequiredException extends RuntimeException {
+
+    public ComponentRevisionRequiredException(String message) {
+        super(message);
+    }
+}
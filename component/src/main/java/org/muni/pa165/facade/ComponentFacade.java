@@ -1,14 +1,23 @@
 package org.muni.pa165.facade;
 
+import org.muni.pa165.api.ChangeFeedDto;
 import org.muni.pa165.api.ComponentCreateViewDto;
 import org.muni.pa165.api.ComponentViewDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.domain.ComponentChange;
+import org.muni.pa165.data.domain.ComponentDeletion;
 import org.muni.pa165.data.enums.ComponentType;
 import org.muni.pa165.mapper.ComponentMapper;
+import org.muni.pa165.service.ComponentFilter;
 import org.muni.pa165.service.ComponentService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class ComponentFacade {
@@ -41,6 +50,10 @@ public class ComponentFacade {
         return componentService.findByManufacturer(manufacturer).stream().map(componentMapper::toComponentViewDto).toList();
     }
 
+    public List<ComponentViewDto> findByFilter(ComponentFilter filter, Long after, int size) {
+        return componentService.findByFilter(filter, after, size).stream().map(componentMapper::toComponentViewDto).toList();
+    }
+
     public ComponentViewDto findById(Long id) {
         return componentMapper.toComponentViewDto(componentService.findById(id));
     }
@@ -49,7 +62,83 @@ public class ComponentFacade {
         return componentMapper.toComponentViewDto(componentService.save(componentMapper.fromComponentCreateViewDto(componentCreateViewDto)));
     }
 
+    public List<ComponentViewDto> saveAll(List<ComponentCreateViewDto> componentCreateViewDtos) {
+        List<Component> components = componentCreateViewDtos.stream()
+                .map(componentMapper::fromComponentCreateViewDto)
+                .toList();
+        return componentService.saveAll(components).stream()
+                .map(componentMapper::toComponentViewDto)
+                .toList();
+    }
+
     public List<ComponentViewDto> findAll() {
-        return componentService.findAll().stream().map(componentMapper::toComponentViewDto).toList();
+        return componentService.findAll().stream()
+                .map(componentMapper::toComponentViewDto)
+                .toList();
+    }
+
+    /**
+     * Returns a page of components ordered by id. When after is given, the components following the one
+     * with that id are returned instead, unlike an offset this stays fast deep into large tables.
+     */
+    public List<ComponentViewDto> findAll(int page, int size, Long after) {
+        List<Component> components = after != null
+                ? componentService.findAllAfter(after, size)
+                : componentService.findPage(page, size);
+        return components.stream().map(componentMapper::toComponentViewDto).toList();
+    }
+
+    public void exportAll(Consumer<ComponentViewDto> action) {
+        componentService.streamAll(component -> action.accept(componentMapper.toComponentViewDto(component)));
+    }
+
+    public List<ComponentViewDto> findAllById(Collection<Long> ids) {
+        return componentService.findAllById(ids).stream().map(componentMapper::toComponentViewDto).toList();
+    }
+
+    public Set<Long> findMissingIds(Collection<Long> ids) {
+        return componentService.findMissingIds(ids);
+    }
+
+    /**
+     * Returns components deleted after the given sequence number of the deletion log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all components among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller drops everything it has cached.
+     */
+    public DeletionFeedDto findDeletions(Long after) {
+        long lastSequence = componentService.findLastDeletionSequence();
+        if (after == null || after > lastSequence || after < componentService.findFirstDeletionSequence() - 1) {
+            return new DeletionFeedDto(lastSequence, List.of(), true);
+        }
+        List<ComponentDeletion> deletions = componentService.findDeletionsAfter(after);
+        return new DeletionFeedDto(
+                deletions.isEmpty() ? after : Math.max(after, deletions.get(deletions.size() - 1).getId()),
+                deletions.stream().map(ComponentDeletion::getComponentId).filter(Objects::nonNull).toList(),
+                deletions.stream().anyMatch(deletion -> deletion.getComponentId() == null));
+    }
+
+    /**
+     * Returns components updated or deleted after the given sequence number of the change log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all components among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller refreshes everything it has copied.
+     */
+    public ChangeFeedDto findChanges(Long after) {
+        long lastSequence = componentService.findLastChangeSequence();
+        if (after == null || after > lastSequence || after < componentService.findFirstChangeSequence() - 1) {
+            return new ChangeFeedDto(lastSequence, List.of(), true);
+        }
+        List<ComponentChange> changes = componentService.findChangesAfter(after);
+        return new ChangeFeedDto(
+                changes.isEmpty() ? after : Math.max(after, changes.get(changes.size() - 1).getId()),
+                changes.stream().map(ComponentChange::getComponentId).filter(Objects::nonNull).distinct().toList(),
+                changes.stream().anyMatch(change -> change.getComponentId() == null));
     }
 }
@@ -1,6 +1,7 @@
 package org.muni.pa165.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.muni.pa165.api.ComponentCreateViewDto;
 import org.muni.pa165.api.ComponentViewDto;
 import org.muni.pa165.data.domain.Component;
@@ -14,5 +15,6 @@ public interface ComponentMapper {
 
     ComponentCreateViewDto toComponentCreateViewDto(Component component);
 
+    @Mapping(target = "revision", ignore = true)
     Component fromComponentCreateViewDto(ComponentCreateViewDto componentViewDto);
 }
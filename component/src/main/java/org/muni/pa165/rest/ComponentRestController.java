@@ -6,13 +6,19 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.muni.pa165.api.ChangeFeedDto;
 import org.muni.pa165.api.ComponentCreateViewDto;
 import org.muni.pa165.api.ComponentViewDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.config.AppConfig;
 import org.muni.pa165.data.domain.Component;
 import org.muni.pa165.data.enums.ComponentType;
 import org.muni.pa165.facade.ComponentFacade;
+import org.muni.pa165.service.ComponentFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,22 +26,31 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/components")
 public class ComponentRestController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final ComponentFacade componentFacade;
     private final UriBuilderService uriBuilderService;
+    private final NdjsonWriter ndjsonWriter;
 
     @Autowired
-    public ComponentRestController(ComponentFacade componentFacade, UriBuilderService uriBuilderService) {
+    public ComponentRestController(ComponentFacade componentFacade, UriBuilderService uriBuilderService,
+                                   NdjsonWriter ndjsonWriter) {
         this.componentFacade = componentFacade;
         this.uriBuilderService = uriBuilderService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @GetMapping("/{id}")
@@ -50,6 +65,8 @@ public class ComponentRestController {
                     @ApiResponse(description = "Successful retrieval",
                             responseCode = "200",
                             content = @Content(schema = @Schema(implementation = ComponentViewDto.class))),
+                    @ApiResponse(description = "Not modified - If-None-Match contains the current ETag",
+                            responseCode = "304"),
                     @ApiResponse(description = "Component not found",
                             responseCode = "404"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
@@ -57,7 +74,7 @@ public class ComponentRestController {
             })
     public ResponseEntity<ComponentViewDto> findComponentById(@PathVariable Long id) {
         ComponentViewDto component = componentFacade.findById(id);
-        return ResponseEntity.ok(component);
+        return ResponseEntity.ok().eTag(String.valueOf(component.getRevision())).body(component);
     }
 
     @PostMapping
@@ -82,6 +99,29 @@ public class ComponentRestController {
         return ResponseEntity.created(uriBuilderService.getLocationOfCreatedResource(createdComponent)).body(createdComponent);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create many components at once",
+            description = "Validates all the components first and stores them in a single transaction, "
+                    + "so either all of them are created or none. Meant for seeding large amounts of data.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_write"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_write"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Components created successfully",
+                            responseCode = "201",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ComponentViewDto.class)))),
+                    @ApiResponse(description = "Invalid data of any of the components",
+                            responseCode = "400"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<ComponentViewDto>> saveComponents(@RequestBody List<ComponentCreateViewDto> componentCreateViewDtos) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(componentFacade.saveAll(componentCreateViewDtos));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a component by ID",
             security = {
@@ -105,6 +145,61 @@ public class ComponentRestController {
 
     @GetMapping
     @Operation(summary = "Find all components",
+            description = "Returns all components when none of 'page', 'size' and 'after' is given. "
+                    + "Otherwise returns one page of components ordered by ID, 'size' of them, 100 by default and at most 1000. "
+                    + "Pass the ID of the last returned component as 'after' to get the next page, "
+                    + "which stays fast on large tables, or pass the page number as 'page'.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ComponentViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<ComponentViewDto>> findAllComponents(
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "after", required = false) Long after) {
+        // clients written before paging pass none of the parameters and expect the whole list
+        List<ComponentViewDto> components = page == null && size == null && after == null
+                ? componentFacade.findAll()
+                : componentFacade.findAll(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size, after);
+        return ResponseEntity.ok(components);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all components",
+            description = "Streams all components ordered by ID as newline delimited JSON, one component per line. "
+                    + "Components are written while they are read from the database, so the export is not split into pages.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Components streamed successfully",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ComponentViewDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<StreamingResponseBody> exportComponents() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.write(componentFacade::exportAll));
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Find components by IDs",
+            description = "Returns the components with the given IDs in a single call, IDs that do not exist are skipped",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -118,11 +213,60 @@ public class ComponentRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<List<ComponentViewDto>> findAllComponents() {
-        List<ComponentViewDto> components = componentFacade.findAll();
+    public ResponseEntity<List<ComponentViewDto>> findComponentsByIds(@RequestParam("ids") List<Long> ids) {
+        List<ComponentViewDto> components = componentFacade.findAllById(ids);
         return ResponseEntity.ok(components);
     }
 
+    @GetMapping("/deletions")
+    @Operation(summary = "Get components deleted since a sequence number",
+            description = "Feed of deleted components polled by other services to invalidate their caches. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = DeletionFeedDto.class)))
+            })
+    public ResponseEntity<DeletionFeedDto> findComponentDeletions(@RequestParam(value = "after", required = false) Long after) {
+        DeletionFeedDto deletions = componentFacade.findDeletions(after);
+        return ResponseEntity.ok(deletions);
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get components updated or deleted since a sequence number",
+            description = "Feed of changed components polled by other services to refresh their copies of components. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = ChangeFeedDto.class)))
+            })
+    public ResponseEntity<ChangeFeedDto> findComponentChanges(@RequestParam(value = "after", required = false) Long after) {
+        ChangeFeedDto changes = componentFacade.findChanges(after);
+        return ResponseEntity.ok(changes);
+    }
+
+    @GetMapping("/missing")
+    @Operation(summary = "Find IDs of components that do not exist",
+            description = "Checks existence of all given IDs in a single call and returns only those that do not exist",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful check",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = Long.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<Set<Long>> findMissingComponentIds(@RequestParam("ids") List<Long> ids) {
+        Set<Long> missingIds = componentFacade.findMissingIds(ids);
+        return ResponseEntity.ok(missingIds);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update a component",
             security = {
@@ -136,12 +280,21 @@ public class ComponentRestController {
                             responseCode = "200"),
                     @ApiResponse(description = "Component not found",
                             responseCode = "404"),
+                    @ApiResponse(description = "Component was changed by another update, the revision sent is no longer current",
+                            responseCode = "409"),
+                    @ApiResponse(description = "Component revision sent neither in the body nor in the If-Match header",
+                            responseCode = "428"),
                     @ApiResponse(description = "Invalid component data",
                             responseCode = "400"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<Void> updateComponent(@RequestBody Component component) {
+    public ResponseEntity<Void> updateComponent(@RequestBody Component component,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long revision = revisionOf(ifMatch);
+        if (revision != null) {
+            component.setRevision(revision);
+        }
         componentFacade.update(component);
         return ResponseEntity.ok(null);
     }
@@ -204,4 +357,54 @@ public class ComponentRestController {
         List<ComponentViewDto> components = componentFacade.findByManufacturer(manufacturer);
         return ResponseEntity.ok(components);
     }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter components by type, manufacturer, weight and price",
+            description = "Returns components matching all given criteria ordered by id, at most 'size' of them. "
+                    + "Several types or manufacturers match components of any of them, weight and price bounds are inclusive. "
+                    + "Pass the ID of the last returned component as 'after' to get the next page.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ComponentViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<ComponentViewDto>> filterComponents(
+            @RequestParam(value = "type", required = false) Set<ComponentType> types,
+            @RequestParam(value = "manufacturer", required = false) Set<String> manufacturers,
+            @RequestParam(value = "minWeight", required = false) Integer minWeight,
+            @RequestParam(value = "maxWeight", required = false) Integer maxWeight,
+            @RequestParam(value = "minPrice", required = false) Integer minPrice,
+            @RequestParam(value = "maxPrice", required = false) Integer maxPrice,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            @RequestParam(value = "after", required = false) Long after) {
+        ComponentFilter filter = new ComponentFilter(types, manufacturers, minWeight, maxWeight, minPrice, maxPrice);
+        List<ComponentViewDto> components = componentFacade.findByFilter(filter, after, size);
+        return ResponseEntity.ok(components);
+    }
+
+    /**
+     * @return revision carried by the ETag in an If-Match header, or null when there is no such ETag
+     */
+    private static Long revisionOf(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        try {
+            return Long.valueOf(eTag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package org.muni.pa165.rest.exceptionhandling;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.muni.pa165.exceptions.ComponentConflictException;
 import org.muni.pa165.exceptions.ComponentNotFoundException;
+import org.muni.pa165.exceptions.ComponentRevisionRequiredException;
 import org.muni.pa165.exceptions.ComponentValidationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -38,6 +40,26 @@ public class CustomRestGlobalExceptionHandling {
         return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
     }
 
+    @ExceptionHandler({ComponentRevisionRequiredException.class})
+    public ResponseEntity<ApiError> handleRevisionRequired(final ComponentRevisionRequiredException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.PRECONDITION_REQUIRED,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    @ExceptionHandler({ComponentConflictException.class})
+    public ResponseEntity<ApiError> handleConflict(final ComponentConflictException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.CONFLICT,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
     /**
      * Handle all the exceptions not matched by above-mentioned definitions.
      *
@@ -0,0 +1,29 @@
+package org.muni.pa165.service;
+
+import org.muni.pa165.data.enums.ComponentType;
+
+import java.util.Set;
+
+/**
+ * Criteria of a component search, a component matches when it matches every given criterion.
+ * Empty sets and missing bounds do not restrict the search, bounds are inclusive.
+ *
+ * @param types         component is of one of the types
+ * @param manufacturers component is made by one of the manufacturers
+ * @param minWeight     lowest weight of the component
+ * @param maxWeight     highest weight of the component
+ * @param minPrice      lowest price of the component
+ * @param maxPrice      highest price of the component
+ */
+public record ComponentFilter(Set<ComponentType> types,
+                              Set<String> manufacturers,
+                              Integer minWeight,
+                              Integer maxWeight,
+                              Integer minPrice,
+                              Integer maxPrice) {
+
+    public ComponentFilter {
+        types = types == null ? Set.of() : Set.copyOf(types);
+        manufacturers = manufacturers == null ? Set.of() : Set.copyOf(manufacturers);
+    }
+}
@@ -0,0 +1,275 @@
+package org.muni.pa165.service;
+
+import jakarta.annotation.PostConstruct;
+import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.enums.ComponentType;
+import org.muni.pa165.data.repository.ComponentRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type, manufacturer, weight and price of every component kept in memory to filter components by any combination of them.
+ * Every component holds a slot, types and manufacturers map to bitsets of the slots of their components,
+ * and weights and prices are kept in sorted arrays searched for the slots in a range, so a filter is answered
+ * by intersecting a few bitsets instead of querying the database.
+ * The components are loaded at startup and writes are applied once their transaction commits,
+ * so rolled back writes are never visible. Sorted arrays are rebuilt by the first search after a write.
+ */
+@Service
+public class ComponentFilterIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ComponentRepository componentRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // slot -> attributes of the component holding it, slots of deleted components are reused
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private ComponentType[] types = new ComponentType[INITIAL_CAPACITY];
+    private String[] manufacturers = new String[INITIAL_CAPACITY];
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<ComponentType, BitSet> slotsByType = new EnumMap<>(ComponentType.class);
+    private final Map<String, BitSet> slotsByManufacturer = new HashMap<>();
+
+    private SortedValues sortedWeights = SortedValues.EMPTY;
+    private SortedValues sortedPrices = SortedValues.EMPTY;
+    private boolean sortedStale;
+
+    public ComponentFilterIndex(ComponentRepository componentRepository) {
+        this.componentRepository = componentRepository;
+        for (ComponentType type : ComponentType.values()) {
+            slotsByType.put(type, new BitSet());
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        putEntries(entries(componentRepository.findAll()));
+    }
+
+    /**
+     * Adds the given components, or replaces them when they are already indexed.
+     */
+    public void put(Collection<Component> components) {
+        List<Entry> entries = entries(components);
+        afterCommit(() -> putEntries(entries));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeSlot(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void clear() {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                List.copyOf(slots.keySet()).forEach(this::removeSlot);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * @return ids of the components matching the filter following the given id in ascending order,
+     * at most limit of them
+     */
+    public List<Long> find(ComponentFilter filter, Long after, int limit) {
+        lock.readLock().lock();
+        if (sortedStale) {
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                if (sortedStale) {
+                    sortedWeights = SortedValues.of(weights, live);
+                    sortedPrices = SortedValues.of(prices, live);
+                    sortedStale = false;
+                }
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        try {
+            BitSet matches = (BitSet) live.clone();
+            if (!filter.types().isEmpty()) {
+                matches.and(union(filter.types().stream().map(slotsByType::get).toList()));
+            }
+            if (!filter.manufacturers().isEmpty()) {
+                matches.and(union(filter.manufacturers().stream().map(slotsByManufacturer::get).toList()));
+            }
+            if (filter.minWeight() != null || filter.maxWeight() != null) {
+                matches.and(sortedWeights.slotsBetween(filter.minWeight(), filter.maxWeight()));
+            }
+            if (filter.minPrice() != null || filter.maxPrice() != null) {
+                matches.and(sortedPrices.slotsBetween(filter.minPrice(), filter.maxPrice()));
+            }
+            long[] found = matches.stream()
+                    .mapToLong(slot -> ids[slot])
+                    .filter(id -> after == null || id > after)
+                    .toArray();
+            Arrays.sort(found);
+            return Arrays.stream(found).limit(limit).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putEntries(List<Entry> entries) {
+        lock.writeLock().lock();
+        try {
+            for (Entry entry : entries) {
+                removeSlot(entry.id());
+                int slot = live.nextClearBit(0);
+                ensureCapacity(slot + 1);
+                ids[slot] = entry.id();
+                weights[slot] = entry.weight();
+                prices[slot] = entry.price();
+                types[slot] = entry.type();
+                manufacturers[slot] = entry.manufacturer();
+                slots.put(entry.id(), slot);
+                live.set(slot);
+                slotsByType.get(entry.type()).set(slot);
+                slotsByManufacturer.computeIfAbsent(entry.manufacturer(), manufacturer -> new BitSet()).set(slot);
+            }
+            sortedStale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSlot(Long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        slotsByType.get(types[slot]).clear(slot);
+        BitSet ofManufacturer = slotsByManufacturer.get(manufacturers[slot]);
+        ofManufacturer.clear(slot);
+        if (ofManufacturer.isEmpty()) {
+            slotsByManufacturer.remove(manufacturers[slot]);
+        }
+        manufacturers[slot] = null;
+        sortedStale = true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int length = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, length);
+            weights = Arrays.copyOf(weights, length);
+            prices = Arrays.copyOf(prices, length);
+            types = Arrays.copyOf(types, length);
+            manufacturers = Arrays.copyOf(manufacturers, length);
+        }
+    }
+
+    private static BitSet union(Collection<BitSet> bitSets) {
+        BitSet union = new BitSet();
+        bitSets.stream().filter(Objects::nonNull).forEach(union::or);
+        return union;
+    }
+
+    private static List<Entry> entries(Collection<Component> components) {
+        return components.stream()
+                .filter(component -> component.getId() != null)
+                .map(component -> new Entry(component.getId(), component.getType(), component.getManufacturer(),
+                        component.getWeight(), component.getPrice()))
+                .toList();
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    private record Entry(long id, ComponentType type, String manufacturer, int weight, int price) {
+    }
+
+    /**
+     * Values of live slots in ascending order together with the slot holding each value.
+     */
+    private static final class SortedValues {
+
+        static final SortedValues EMPTY = new SortedValues(new int[0], new int[0]);
+
+        private final int[] values;
+        private final int[] slots;
+
+        private SortedValues(int[] values, int[] slots) {
+            this.values = values;
+            this.slots = slots;
+        }
+
+        static SortedValues of(int[] valuesBySlot, BitSet live) {
+            long[] pairs = new long[live.cardinality()];
+            int i = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                // value in the high half, so the pairs sort by value
+                pairs[i++] = (long) valuesBySlot[slot] << 32 | slot;
+            }
+            Arrays.sort(pairs);
+            int[] values = new int[pairs.length];
+            int[] slots = new int[pairs.length];
+            for (i = 0; i < pairs.length; i++) {
+                values[i] = (int) (pairs[i] >> 32);
+                slots[i] = (int) pairs[i];
+            }
+            return new SortedValues(values, slots);
+        }
+
+        BitSet slotsBetween(Integer min, Integer max) {
+            BitSet result = new BitSet();
+            int upper = max == null ? Integer.MAX_VALUE : max;
+            for (int i = firstAtLeast(min == null ? Integer.MIN_VALUE : min); i < values.length && values[i] <= upper; i++) {
+                result.set(slots[i]);
+            }
+            return result;
+        }
+
+        private int firstAtLeast(int value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
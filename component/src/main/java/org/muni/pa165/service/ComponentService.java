@@ -1,9 +1,14 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.domain.ComponentChange;
+import org.muni.pa165.data.domain.ComponentDeletion;
 import org.muni.pa165.data.enums.ComponentType;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ComponentService {
 
@@ -15,11 +20,37 @@ public interface ComponentService {
 
     Component save(Component component);
 
+    List<Component> saveAll(List<Component> components);
+
     List<Component> findAll();
 
+    List<Component> findPage(int page, int size);
+
+    List<Component> findAllAfter(Long id, int size);
+
+    void streamAll(Consumer<Component> action);
+
+    List<Component> findAllById(Collection<Long> ids);
+
+    Set<Long> findMissingIds(Collection<Long> ids);
+
     void update(Component component);
 
     List<Component> findByType(ComponentType type);
 
     List<Component> findByManufacturer(String manufacturer);
+
+    List<Component> findByFilter(ComponentFilter filter, Long after, int size);
+
+    List<ComponentDeletion> findDeletionsAfter(Long sequence);
+
+    long findFirstDeletionSequence();
+
+    long findLastDeletionSequence();
+
+    List<ComponentChange> findChangesAfter(Long sequence);
+
+    long findFirstChangeSequence();
+
+    long findLastChangeSequence();
 }
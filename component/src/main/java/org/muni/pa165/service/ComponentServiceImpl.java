@@ -1,25 +1,70 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.domain.ComponentChange;
+import org.muni.pa165.data.domain.ComponentDeletion;
 import org.muni.pa165.data.enums.ComponentType;
+import org.muni.pa165.data.repository.ComponentChangeRepository;
+import org.muni.pa165.data.repository.ComponentDeletionRepository;
 import org.muni.pa165.data.repository.ComponentRepository;
+import org.muni.pa165.exceptions.ComponentConflictException;
 import org.muni.pa165.exceptions.ComponentNotFoundException;
+import org.muni.pa165.exceptions.ComponentRevisionRequiredException;
 import org.muni.pa165.exceptions.ComponentValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ComponentServiceImpl implements ComponentService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Number of entities inserted in a single JDBC batch, the same as the number of ids reserved at once.
+     */
+    public static final int BATCH_SIZE = 50;
+
     private final ComponentRepository componentRepository;
+    private final ComponentDeletionRepository componentDeletionRepository;
+    private final ComponentChangeRepository componentChangeRepository;
+    private final ComponentFilterIndex componentFilterIndex;
+    private final EntityManager entityManager;
+    private final Duration feedTrailingWindow;
+    private final Duration feedRetention;
 
     @Autowired
-    public ComponentServiceImpl(ComponentRepository componentRepository) {
+    public ComponentServiceImpl(ComponentRepository componentRepository, ComponentDeletionRepository componentDeletionRepository,
+                                ComponentChangeRepository componentChangeRepository,
+                                ComponentFilterIndex componentFilterIndex, EntityManager entityManager,
+                                @Value("${component.feed.trailing-window:30s}") Duration feedTrailingWindow,
+                                @Value("${component.feed.retention:1d}") Duration feedRetention) {
         this.componentRepository = componentRepository;
+        this.componentDeletionRepository = componentDeletionRepository;
+        this.componentChangeRepository = componentChangeRepository;
+        this.componentFilterIndex = componentFilterIndex;
+        this.entityManager = entityManager;
+        this.feedTrailingWindow = feedTrailingWindow;
+        this.feedRetention = feedRetention;
     }
 
     @Override
@@ -33,32 +78,161 @@ public class ComponentServiceImpl implements ComponentService {
         return componentRepository.findAll();
     }
 
+    @Override
+    public List<Component> findPage(int page, int size) {
+        return componentRepository.findAllBy(PageRequest.of(Math.max(page, 0), pageSize(size), Sort.by("id"))).getContent();
+    }
+
+    @Override
+    public List<Component> findAllAfter(Long id, int size) {
+        return componentRepository.findByIdGreaterThanOrderByIdAsc(id, Limit.of(pageSize(size)));
+    }
+
+    /**
+     * Passes all components ordered by id to the given action while they are read from the database.
+     * Each component is detached once handled, so the persistence context does not grow with the table.
+     */
+    @Override
+    public void streamAll(Consumer<Component> action) {
+        try (Stream<Component> components = componentRepository.streamAllByOrderByIdAsc()) {
+            components.forEach(component -> {
+                action.accept(component);
+                entityManager.detach(component);
+            });
+        }
+    }
+
+    /**
+     * Loads components from the second-level cache, only components missing in it are read from the database.
+     */
+    @Override
+    public List<Component> findAllById(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Component.class)
+                .multiLoad(List.copyOf(new LinkedHashSet<>(ids)))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<ComponentDeletion> findDeletionsAfter(Long sequence) {
+        return componentDeletionRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
+
+    @Override
+    public long findFirstDeletionSequence() {
+        return componentDeletionRepository.findTopByOrderByIdAsc()
+                .map(ComponentDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastDeletionSequence() {
+        return componentDeletionRepository.findTopByOrderByIdDesc()
+                .map(ComponentDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public List<ComponentChange> findChangesAfter(Long sequence) {
+        return componentChangeRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
+
+    @Override
+    public long findFirstChangeSequence() {
+        return componentChangeRepository.findTopByOrderByIdAsc()
+                .map(ComponentChange::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastChangeSequence() {
+        return componentChangeRepository.findTopByOrderByIdDesc()
+                .map(ComponentChange::getId)
+                .orElse(0L);
+    }
+
+    /**
+     * Deletes entries of the deletion and change logs older than the retention period.
+     * Consumers whose sequence number precedes the remaining entries are asked to reset.
+     */
+    @Scheduled(fixedDelayString = "${component.feed.prune-interval:3600000}")
+    public void pruneFeeds() {
+        Instant before = Instant.now().minus(feedRetention);
+        componentDeletionRepository.deleteRecordedBefore(before);
+        componentChangeRepository.deleteRecordedBefore(before);
+    }
+
+    @Override
+    public Set<Long> findMissingIds(Collection<Long> ids) {
+        Set<Long> missing = new TreeSet<>(ids);
+        if (!missing.isEmpty()) {
+            findAllById(missing).forEach(component -> missing.remove(component.getId()));
+        }
+        return missing;
+    }
+
     @Override
     public Component save(Component component) {
         validateComponent(component);
-        return componentRepository.save(component);
+        Component saved = componentRepository.save(component);
+        componentFilterIndex.put(List.of(saved));
+        return saved;
+    }
+
+    @Override
+    public List<Component> saveAll(List<Component> components) {
+        components.forEach(this::validateComponent);
+        for (int from = 0; from < components.size(); from += BATCH_SIZE) {
+            List<Component> batch = components.subList(from, Math.min(from + BATCH_SIZE, components.size()));
+            componentRepository.saveAll(batch);
+            // sends the inserts of the batch at once and keeps the persistence context small
+            entityManager.flush();
+            entityManager.clear();
+        }
+        componentFilterIndex.put(components);
+        return components;
     }
 
     @Override
     public void deleteById(Long id) {
-        if (!componentRepository.existsById(id)) {
+        if (componentRepository.removeById(id) == 0) {
             throw new ComponentNotFoundException("Cannot delete, component not found with id: " + id);
         }
-        componentRepository.deleteById(id);
+        componentDeletionRepository.save(ComponentDeletion.builder().componentId(id).build());
+        componentChangeRepository.save(ComponentChange.builder().componentId(id).build());
+        componentFilterIndex.remove(id);
     }
 
     @Override
     public void update(Component component) {
         validateComponent(component);
-        if (!componentRepository.existsById(component.getId())) {
-            throw new ComponentNotFoundException("Cannot update, component not found with id: " + component.getId());
+        if (component.getRevision() == null) {
+            throw new ComponentRevisionRequiredException("Cannot update component with id: " + component.getId()
+                    + " without the revision it was read in");
         }
-        componentRepository.save(component);
+        // served from the second-level cache, the merge below copies the component onto it
+        componentRepository.findById(component.getId())
+                .orElseThrow(() -> new ComponentNotFoundException("Cannot update, component not found with id: " + component.getId()));
+        try {
+            // merged onto the current component and written as UPDATE ... WHERE id = ? AND revision = ?
+            componentRepository.saveAndFlush(component);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ComponentConflictException("Component with id: " + component.getId() + " was changed by another update, "
+                    + "revision " + component.getRevision() + " is no longer current");
+        }
+        componentChangeRepository.save(ComponentChange.builder().componentId(component.getId()).build());
+        componentFilterIndex.put(List.of(component));
     }
 
     @Override
     public void deleteAll() {
-        componentRepository.deleteAll();
+        // a single DELETE statement instead of loading and removing the components one by one
+        componentRepository.deleteAllInBatch();
+        componentDeletionRepository.save(new ComponentDeletion());
+        componentChangeRepository.save(new ComponentChange());
+        componentFilterIndex.clear();
     }
 
     @Override
@@ -71,6 +245,15 @@ public class ComponentServiceImpl implements ComponentService {
         return componentRepository.findByManufacturer(manufacturer);
     }
 
+    /**
+     * Finds the ids of matching components in the in-memory index, the components themselves are loaded
+     * from the second-level cache, so a search of cached components sends no query to the database.
+     */
+    @Override
+    public List<Component> findByFilter(ComponentFilter filter, Long after, int size) {
+        return findAllById(componentFilterIndex.find(filter, after, pageSize(size)));
+    }
+
     private void validateComponent(Component component) {
         if (component.getWeight() <= 0) {
             throw new ComponentValidationException("Component weight must be greater than 0");
@@ -85,4 +268,8 @@ public class ComponentServiceImpl implements ComponentService {
             throw new ComponentValidationException("Component type must not be empty");
         }
     }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
 }
@@ -5,24 +5,40 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.muni.pa165.api.ComponentViewDto;
+import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.enums.ComponentType;
+import org.muni.pa165.exceptions.ComponentConflictException;
+import org.muni.pa165.exceptions.ComponentRevisionRequiredException;
 import org.muni.pa165.facade.ComponentFacade;
+import org.muni.pa165.service.ComponentFilter;
 import org.muni.pa165.utils.TestComponentFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -64,9 +80,22 @@ class ComponentRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(content().json(expectedJson, true));
     }
 
+    @Test
+    void findComponentById_ifNoneMatchCurrentETag_returnsNotModified() throws Exception {
+        when(componentFacade.findById(newComponent.getId())).thenReturn(newComponent);
+
+        mockMvc.perform(get("/components/{id}", newComponent.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void findAllComponents_whenFound_returnsComponents() throws Exception {
         List<ComponentViewDto> componentViewDtos = Collections.singletonList(newComponent);
@@ -79,4 +108,75 @@ class ComponentRestControllerIT {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().json(expectedJson, true));
     }
+
+    @Test
+    void filterComponents_repeatedParameters_matchAnyOfThem() throws Exception {
+        ComponentFilter filter = new ComponentFilter(Set.of(ComponentType.ENGINE, ComponentType.GEAR), Set.of(), null, null,
+                null, 5000);
+        when(componentFacade.findByFilter(filter, null, 100)).thenReturn(List.of(newComponent));
+
+        mockMvc.perform(get("/components/filter")
+                        .param("type", "ENGINE", "GEAR")
+                        .param("maxPrice", "5000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(newComponent)), true));
+    }
+
+    @Test
+    void exportComponents_ndjsonAccepted_streamsOneComponentPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ComponentViewDto> action = invocation.getArgument(0);
+            action.accept(newComponent);
+            action.accept(newComponent);
+            return null;
+        }).when(componentFacade).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/components")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expectedLine = objectMapper.writeValueAsString(newComponent);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expectedLine + "\n" + expectedLine + "\n"));
+    }
+
+    @Test
+    void findAllComponents_anyAccepted_returnsJsonPage() throws Exception {
+        when(componentFacade.findAll()).thenReturn(List.of(newComponent));
+
+        mockMvc.perform(get("/components"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void updateComponent_staleVersion_returnsConflict() throws Exception {
+        Component component = TestComponentFactory.getComponentEntity();
+        component.setRevision(2L);
+        doThrow(new ComponentConflictException("Component with id: " + component.getId() + " was changed by another update, "
+                + "revision 2 is no longer current"))
+                .when(componentFacade).update(any());
+
+        mockMvc.perform(put("/components/{id}", component.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(component)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateComponent_withoutRevision_returnsPreconditionRequired() throws Exception {
+        Component component = TestComponentFactory.getComponentEntity();
+        doThrow(new ComponentRevisionRequiredException("Cannot update component with id: " + component.getId()
+                + " without the revision it was read in"))
+                .when(componentFacade).update(any());
+
+        mockMvc.perform(put("/components/{id}", component.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(component)))
+                .andExpect(status().isPreconditionRequired());
+    }
 }
@@ -0,0 +1,66 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.config.SecondLevelCacheConfig;
+import org.muni.pa165.data.enums.ComponentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures every finder of components reads through an index instead of scanning the table.
+ * The statement generated for a finder is recorded and its plan is explained by the database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.muni.pa165.data.repository.ComponentRepositoryQueryPlanTest$LastStatement")
+@Import(SecondLevelCacheConfig.class)
+class ComponentRepositoryQueryPlanTest {
+
+    @Autowired
+    private ComponentRepository componentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findByType_readsThroughIndex() {
+        componentRepository.findByType(ComponentType.ENGINE);
+
+        assertThat(explain(ComponentType.ENGINE.name())).as("Ensure components are found by the type index")
+                .contains("COMPONENT_TYPE_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findByManufacturer_readsThroughIndex() {
+        componentRepository.findByManufacturer("Ferrari");
+
+        assertThat(explain("Ferrari")).as("Ensure components are found by the manufacturer index")
+                .contains("COMPONENT_MANUFACTURER_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    private String explain(Object... parameters) {
+        Query explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + LastStatement.sql);
+        for (int i = 0; i < parameters.length; i++) {
+            explain.setParameter(i + 1, parameters[i]);
+        }
+        return (String) explain.getSingleResult();
+    }
+
+    public static class LastStatement implements StatementInspector {
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+}
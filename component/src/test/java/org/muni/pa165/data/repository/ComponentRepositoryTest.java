@@ -0,0 +1,105 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.config.SecondLevelCacheConfig;
+import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.enums.ComponentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures repeated reads of components are served from the second-level and query caches without SQL statements.
+ * Runs without a test transaction, only committed writes are put to the caches.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(SecondLevelCacheConfig.class)
+class ComponentRepositoryTest {
+
+    @Autowired
+    private ComponentRepository componentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Component component;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        component = componentRepository.save(Component.builder()
+                .weight(150)
+                .price(20000)
+                .manufacturer("Ferrari")
+                .version("1.0.0")
+                .type(ComponentType.ENGINE)
+                .build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        componentRepository.deleteAll();
+    }
+
+    @Test
+    void findById_readAgain_isServedFromSecondLevelCache() {
+        componentRepository.findById(component.getId());
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        Component found = componentRepository.findById(component.getId()).orElseThrow();
+
+        assertThat(found).as("Ensure the cached component is returned").isEqualTo(component);
+        assertThat(statistics.getPrepareStatementCount()).as("Ensure the second read issues no statement")
+                .isEqualTo(statements);
+        assertThat(statistics.getSecondLevelCacheHitCount()).as("Ensure the second read is a cache hit")
+                .isEqualTo(hits + 1);
+    }
+
+    @Test
+    void findByManufacturer_repeated_isServedFromQueryCache() {
+        componentRepository.findByManufacturer("Ferrari");
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Component> found = componentRepository.findByManufacturer("Ferrari");
+
+        assertThat(found).as("Ensure the cached result is returned").containsExactly(component);
+        assertThat(statistics.getPrepareStatementCount()).as("Ensure the repeated query issues no statement")
+                .isEqualTo(statements);
+        assertThat(statistics.getQueryCacheHitCount()).as("Ensure the repeated query is a query cache hit")
+                .isEqualTo(1);
+    }
+
+    @Test
+    void findByType_afterComponentIsAdded_returnsFreshResult() {
+        componentRepository.findByType(ComponentType.ENGINE);
+        Component added = componentRepository.save(Component.builder()
+                .weight(40)
+                .price(5000)
+                .manufacturer("Mercedes")
+                .version("2.1.0")
+                .type(ComponentType.ENGINE)
+                .build());
+
+        List<Component> found = componentRepository.findByType(ComponentType.ENGINE);
+
+        assertThat(found).as("Ensure the cached result is invalidated by the write").containsExactlyInAnyOrder(component, added);
+    }
+}
@@ -6,18 +6,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.ChangeFeedDto;
 import org.muni.pa165.api.ComponentCreateViewDto;
 import org.muni.pa165.api.ComponentViewDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.domain.ComponentChange;
+import org.muni.pa165.data.domain.ComponentDeletion;
 import org.muni.pa165.data.enums.ComponentType;
 import org.muni.pa165.mapper.ComponentMapper;
 import org.muni.pa165.service.ComponentServiceImpl;
 import org.muni.pa165.utils.TestComponentFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -64,6 +71,17 @@ class ComponentFacadeTest {
         verify(componentServiceImpl, times(1)).save(testComponent);
     }
 
+    @Test
+    void saveAllComponents_savesAndReturnsComponentDtos() {
+        when(componentMapper.fromComponentCreateViewDto(testComponentCreateDto)).thenReturn(testComponent);
+        when(componentServiceImpl.saveAll(List.of(testComponent))).thenReturn(List.of(testComponent));
+        when(componentMapper.toComponentViewDto(testComponent)).thenReturn(testComponentDto);
+
+        List<ComponentViewDto> savedDtos = componentFacade.saveAll(List.of(testComponentCreateDto));
+
+        assertThat(savedDtos).as("Verify a DTO is returned for every saved component").containsExactly(testComponentDto);
+    }
+
     @Test
     void deleteComponentById_Deleted_invokesDeletion() {
         componentFacade.deleteById(1L);
@@ -80,14 +98,38 @@ class ComponentFacadeTest {
 
     @Test
     void findAllComponents_componentsFound_returnsList() {
-        when(componentServiceImpl.findAll()).thenReturn(TestComponentFactory.getListOfComponentEntities());
+        when(componentServiceImpl.findPage(0, 100)).thenReturn(TestComponentFactory.getListOfComponentEntities());
         when(componentMapper.toComponentViewDto(any())).thenReturn(testComponentDto);
 
-        List<ComponentViewDto> foundDtos = componentFacade.findAll();
+        List<ComponentViewDto> foundDtos = componentFacade.findAll(0, 100, null);
 
         assertThat(foundDtos).as("Verify that the list of found component DTOs matches the expected list from TestDataFactory").isEqualTo(TestComponentFactory.getListOfComponentViewDto());
     }
 
+    @Test
+    void findAllComponents_afterId_returnsComponentsFollowingIt() {
+        when(componentServiceImpl.findAllAfter(1L, 10)).thenReturn(List.of(testComponent));
+        when(componentMapper.toComponentViewDto(testComponent)).thenReturn(testComponentDto);
+
+        List<ComponentViewDto> foundDtos = componentFacade.findAll(0, 10, 1L);
+
+        assertThat(foundDtos).as("Ensure the components following the given id are returned").containsExactly(testComponentDto);
+    }
+
+    @Test
+    void exportAll_passesEachComponentAsDto() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Component>>getArgument(0).accept(testComponent);
+            return null;
+        }).when(componentServiceImpl).streamAll(any());
+        when(componentMapper.toComponentViewDto(testComponent)).thenReturn(testComponentDto);
+        List<ComponentViewDto> exported = new ArrayList<>();
+
+        componentFacade.exportAll(exported::add);
+
+        assertThat(exported).as("Ensure every component is passed as DTO").containsExactly(testComponentDto);
+    }
+
     @Test
     void updateComponent_componentUpdated_returnsUpdated() {
         componentFacade.update(testComponent);
@@ -128,4 +170,68 @@ class ComponentFacadeTest {
         List<ComponentViewDto> foundDtos = componentFacade.findByType(ComponentType.SPOILER);
         assertThat(foundDtos).as("Validate that the list of component DTOs filtered by type aligns with the anticipated list.").isEmpty();
     }
+
+    @Test
+    void findDeletions_withoutSequence_returnsResetWithLastSequence() {
+        when(componentServiceImpl.findLastDeletionSequence()).thenReturn(5L);
+
+        DeletionFeedDto feed = componentFacade.findDeletions(null);
+
+        assertThat(feed).as("Verify that a new consumer is asked to reset and continue from the last sequence")
+                .isEqualTo(new DeletionFeedDto(5L, List.of(), true));
+    }
+
+    @Test
+    void findDeletions_afterKnownSequence_returnsDeletedIds() {
+        when(componentServiceImpl.findLastDeletionSequence()).thenReturn(7L);
+        when(componentServiceImpl.findDeletionsAfter(5L)).thenReturn(List.of(
+                new ComponentDeletion(6L, 1L, null), new ComponentDeletion(7L, 2L, null)));
+
+        DeletionFeedDto feed = componentFacade.findDeletions(5L);
+
+        assertThat(feed).as("Verify that ids deleted after the sequence are returned with the last sequence")
+                .isEqualTo(new DeletionFeedDto(7L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findDeletions_afterDeleteAll_returnsReset() {
+        when(componentServiceImpl.findLastDeletionSequence()).thenReturn(6L);
+        when(componentServiceImpl.findDeletionsAfter(5L)).thenReturn(List.of(new ComponentDeletion(6L, null, null)));
+
+        DeletionFeedDto feed = componentFacade.findDeletions(5L);
+
+        assertThat(feed.isReset()).as("Verify that deleting all components asks consumers to reset").isTrue();
+    }
+
+    @Test
+    void findDeletions_afterUnknownSequence_returnsReset() {
+        when(componentServiceImpl.findLastDeletionSequence()).thenReturn(2L);
+
+        DeletionFeedDto feed = componentFacade.findDeletions(10L);
+
+        assertThat(feed).as("Verify that a sequence from before a restart asks consumers to reset")
+                .isEqualTo(new DeletionFeedDto(2L, List.of(), true));
+    }
+
+    @Test
+    void findChanges_afterKnownSequence_returnsEachChangedIdOnce() {
+        when(componentServiceImpl.findLastChangeSequence()).thenReturn(8L);
+        when(componentServiceImpl.findChangesAfter(5L)).thenReturn(List.of(
+                new ComponentChange(6L, 1L, null), new ComponentChange(7L, 2L, null), new ComponentChange(8L, 1L, null)));
+
+        ChangeFeedDto feed = componentFacade.findChanges(5L);
+
+        assertThat(feed).as("Verify that ids changed after the sequence are returned once with the last sequence")
+                .isEqualTo(new ChangeFeedDto(8L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findChanges_afterUnknownSequence_returnsReset() {
+        when(componentServiceImpl.findLastChangeSequence()).thenReturn(3L);
+
+        ChangeFeedDto feed = componentFacade.findChanges(10L);
+
+        assertThat(feed).as("Verify that a consumer ahead of this instance is asked to refresh everything")
+                .isEqualTo(new ChangeFeedDto(3L, List.of(), true));
+    }
 }
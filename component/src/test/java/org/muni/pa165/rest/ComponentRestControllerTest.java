@@ -11,6 +11,7 @@ import org.muni.pa165.api.ComponentViewDto;
 import org.muni.pa165.data.domain.Component;
 import org.muni.pa165.data.enums.ComponentType;
 import org.muni.pa165.facade.ComponentFacade;
+import org.muni.pa165.service.ComponentFilter;
 import org.muni.pa165.utils.TestComponentFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,11 +20,16 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -68,6 +74,16 @@ class ComponentRestControllerTest {
         assertThat(response.getBody()).as("Ensure the body matches the expected component after successful creation").isEqualTo(componentViewDto);
     }
 
+    @Test
+    void saveComponents_validData_createsAllComponents() {
+        when(componentFacade.saveAll(List.of(componentCreateViewDto))).thenReturn(List.of(componentViewDto));
+
+        ResponseEntity<List<ComponentViewDto>> response = componentRestController.saveComponents(List.of(componentCreateViewDto));
+
+        assertThat(response.getStatusCode()).as("Verify status code is CREATED when all components are created").isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).as("Ensure the body contains all the created components").containsExactly(componentViewDto);
+    }
+
     @Test
     void deleteComponentById_whenFound_deletesComponent() {
         doNothing().when(componentFacade).deleteById(anyLong());
@@ -80,23 +96,65 @@ class ComponentRestControllerTest {
     @Test
     void findAllComponents_returnsAllComponents() {
         List<ComponentViewDto> components = Collections.singletonList(componentViewDto);
-        when(componentFacade.findAll()).thenReturn(components);
+        when(componentFacade.findAll(0, 100, null)).thenReturn(components);
 
-        ResponseEntity<?> response = componentRestController.findAllComponents();
+        ResponseEntity<?> response = componentRestController.findAllComponents(0, 100, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when components are found").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body contains the expected list of components").isEqualTo(components);
     }
 
+    @Test
+    void findAllComponents_withoutPagingParameters_returnsWholeList() {
+        List<ComponentViewDto> components = Collections.singletonList(componentViewDto);
+        when(componentFacade.findAll()).thenReturn(components);
+
+        ResponseEntity<?> response = componentRestController.findAllComponents(null, null, null);
+
+        assertThat(response.getBody()).as("Ensure clients passing no paging parameters get all components as before")
+                .isEqualTo(components);
+        verify(componentFacade, never()).findAll(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void findComponentsByIds_returnsFoundComponents() {
+        List<ComponentViewDto> components = Collections.singletonList(componentViewDto);
+        when(componentFacade.findAllById(List.of(1L, 2L))).thenReturn(components);
+
+        ResponseEntity<?> response = componentRestController.findComponentsByIds(List.of(1L, 2L));
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when components are looked up by IDs").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body contains the components found by IDs").isEqualTo(components);
+    }
+
+    @Test
+    void findMissingComponentIds_returnsMissingIds() {
+        when(componentFacade.findMissingIds(List.of(1L, 2L))).thenReturn(Set.of(2L));
+
+        ResponseEntity<Set<Long>> response = componentRestController.findMissingComponentIds(List.of(1L, 2L));
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when missing components are checked").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body contains only the IDs that do not exist").containsExactly(2L);
+    }
+
     @Test
     void updateComponent_whenFound_updatesComponent() {
         doNothing().when(componentFacade).update(any(Component.class));
 
-        ResponseEntity<?> response = componentRestController.updateComponent(component);
+        ResponseEntity<?> response = componentRestController.updateComponent(component, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when the component is updated").isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    void updateComponent_withIfMatch_usesRevisionOfETag() {
+        component.setRevision(1L);
+
+        componentRestController.updateComponent(component, "W/\"3\"");
+
+        verify(componentFacade).update(argThat(component -> component.getRevision() == 3L));
+    }
+
     @Test
     void deleteAllComponents_deletesAll() {
         doNothing().when(componentFacade).deleteAll();
@@ -127,4 +185,17 @@ class ComponentRestControllerTest {
         assertThat(response.getStatusCode()).as("Verify status code is OK when components are found for a given manufacturer").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body matches the expected list of components found by manufacturer").isEqualTo(components);
     }
+
+    @Test
+    void filterComponents_returnsComponentsMatchingFilter() {
+        List<ComponentViewDto> components = TestComponentFactory.getListOfComponentViewDto();
+        ComponentFilter filter = new ComponentFilter(Set.of(ComponentType.ENGINE), null, 100, null, null, 5000);
+        when(componentFacade.findByFilter(filter, 5L, 100)).thenReturn(components);
+
+        ResponseEntity<List<ComponentViewDto>> response = componentRestController.filterComponents(
+                Set.of(ComponentType.ENGINE), null, 100, null, null, 5000, 100, 5L);
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when components are filtered").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body matches the components matching the filter").isEqualTo(components);
+    }
 }
@@ -0,0 +1,104 @@
+package org.muni.pa165.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.enums.ComponentType;
+import org.muni.pa165.data.repository.ComponentRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ComponentFilterIndexTest {
+
+    private ComponentFilterIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ComponentRepository componentRepository = mock(ComponentRepository.class);
+        when(componentRepository.findAll()).thenReturn(List.of(
+                component(1L, ComponentType.ENGINE, "Ferrari", 150, 20000),
+                component(2L, ComponentType.ENGINE, "Mercedes", 140, 25000),
+                component(3L, ComponentType.GEAR, "Ferrari", 40, 5000),
+                component(4L, ComponentType.SPOILER, "McLaren", 10, 3000)));
+        index = new ComponentFilterIndex(componentRepository);
+        index.load();
+    }
+
+    @Test
+    void find_combinedCriteria_returnsComponentsMatchingAll() {
+        ComponentFilter filter = new ComponentFilter(Set.of(ComponentType.ENGINE, ComponentType.GEAR), Set.of("Ferrari"),
+                null, null, 4000, 21000);
+
+        assertThat(index.find(filter, null, 10)).as("Ensure only components matching every criterion are found")
+                .containsExactly(1L, 3L);
+    }
+
+    @Test
+    void find_weightRange_includesBounds() {
+        ComponentFilter filter = new ComponentFilter(null, null, 40, 140, null, null);
+
+        assertThat(index.find(filter, null, 10)).as("Ensure components with a weight equal to a bound are found")
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void find_unknownManufacturer_returnsNothing() {
+        ComponentFilter filter = new ComponentFilter(null, Set.of("Renault"), null, null, null, null);
+
+        assertThat(index.find(filter, null, 10)).as("Ensure an unknown manufacturer matches no component").isEmpty();
+    }
+
+    @Test
+    void find_afterId_returnsFollowingComponentsUpToLimit() {
+        ComponentFilter filter = new ComponentFilter(null, null, null, null, null, null);
+
+        assertThat(index.find(filter, 1L, 2)).as("Ensure the page follows the given id and is limited")
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void put_existingComponent_replacesItsValues() {
+        index.put(List.of(component(3L, ComponentType.SUSPENSION, "Mercedes", 60, 7000)));
+
+        assertThat(index.find(new ComponentFilter(Set.of(ComponentType.GEAR), null, null, null, null, null), null, 10))
+                .as("Ensure the previous type no longer matches").isEmpty();
+        assertThat(index.find(new ComponentFilter(Set.of(ComponentType.SUSPENSION), Set.of("Mercedes"), 50, 70, null, null),
+                null, 10))
+                .as("Ensure the component is found by its new values").containsExactly(3L);
+    }
+
+    @Test
+    void remove_component_isNoLongerFound() {
+        index.remove(1L);
+        index.put(List.of(component(5L, ComponentType.ENGINE, "Honda", 145, 18000)));
+
+        assertThat(index.find(new ComponentFilter(Set.of(ComponentType.ENGINE), null, null, null, null, null), null, 10))
+                .as("Ensure the removed component is not found and its slot is reused").containsExactly(2L, 5L);
+        assertThat(index.find(new ComponentFilter(null, Set.of("Honda"), 145, 145, null, null), null, 10))
+                .as("Ensure the component in the reused slot is found by its own weight").containsExactly(5L);
+    }
+
+    @Test
+    void clear_removesAllComponents() {
+        index.clear();
+
+        assertThat(index.find(new ComponentFilter(null, null, null, null, null, null), null, 10))
+                .as("Ensure no component is found after clearing").isEmpty();
+    }
+
+    private static Component component(Long id, ComponentType type, String manufacturer, int weight, int price) {
+        return Component.builder()
+                .id(id)
+                .type(type)
+                .manufacturer(manufacturer)
+                .weight(weight)
+                .price(price)
+                .version("1.0.0")
+                .build();
+    }
+}
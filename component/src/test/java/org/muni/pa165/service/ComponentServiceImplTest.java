@@ -1,5 +1,8 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,21 +10,39 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.data.domain.Component;
+import org.muni.pa165.data.domain.ComponentChange;
+import org.muni.pa165.data.domain.ComponentDeletion;
 import org.muni.pa165.data.enums.ComponentType;
+import org.muni.pa165.data.repository.ComponentChangeRepository;
+import org.muni.pa165.data.repository.ComponentDeletionRepository;
 import org.muni.pa165.data.repository.ComponentRepository;
+import org.muni.pa165.exceptions.ComponentConflictException;
 import org.muni.pa165.exceptions.ComponentNotFoundException;
+import org.muni.pa165.exceptions.ComponentRevisionRequiredException;
 import org.muni.pa165.exceptions.ComponentValidationException;
 import org.muni.pa165.utils.TestComponentFactory;
-
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +52,18 @@ class ComponentServiceImplTest {
     @Mock
     private ComponentRepository componentRepository;
 
+    @Mock
+    private ComponentDeletionRepository componentDeletionRepository;
+
+    @Mock
+    private ComponentChangeRepository componentChangeRepository;
+
+    @Mock
+    private ComponentFilterIndex componentFilterIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private ComponentServiceImpl componentServiceImpl;
 
@@ -69,6 +102,36 @@ class ComponentServiceImplTest {
         assertThat(components).as("Check that the list of components returned is not empty and contains the expected component").containsExactly(component);
     }
 
+    @Test
+    void findPage_sizeOverLimit_readsAtMostMaxPageSize() {
+        when(componentRepository.findAllBy(PageRequest.of(2, ComponentServiceImpl.MAX_PAGE_SIZE, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(List.of(component)));
+
+        List<Component> result = componentServiceImpl.findPage(2, 5000);
+
+        assertThat(result).as("Ensure only the requested slice is read").containsExactly(component);
+    }
+
+    @Test
+    void findAllAfter_returnsComponentsFollowingId() {
+        when(componentRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(List.of(component));
+
+        List<Component> result = componentServiceImpl.findAllAfter(5L, 10);
+
+        assertThat(result).as("Ensure the components following the given id are returned").containsExactly(component);
+    }
+
+    @Test
+    void streamAll_passesEachComponentAndDetachesIt() {
+        when(componentRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(component));
+        List<Component> passed = new ArrayList<>();
+
+        componentServiceImpl.streamAll(passed::add);
+
+        assertThat(passed).as("Ensure every component is passed to the action").containsExactly(component);
+        verify(entityManager).detach(component);
+    }
+
     @Test
     void findAllComponents_whenNotFound_returnsEmptyList() {
         when(componentRepository.findAll()).thenReturn(Collections.emptyList());
@@ -78,6 +141,26 @@ class ComponentServiceImplTest {
         assertThat(components).as("Check that the list of components returned is empty when no components are found").isEmpty();
     }
 
+    @Test
+    void findAllComponentsById_returnsFoundComponents() {
+        mockMultiLoad(List.of(1L, 2L), Arrays.asList(component, null));
+
+        List<Component> components = componentServiceImpl.findAllById(List.of(1L, 2L, 1L));
+
+        assertThat(components).as("Check that only the components found are returned").containsExactly(component);
+    }
+
+    @Test
+    void findMissingComponentIds_returnsIdsNotFound() {
+        Component third = TestComponentFactory.getComponentEntity();
+        third.setId(3L);
+        mockMultiLoad(List.of(1L, 2L, 3L), Arrays.asList(component, null, third));
+
+        Set<Long> missingIds = componentServiceImpl.findMissingIds(List.of(3L, 2L, 1L));
+
+        assertThat(missingIds).as("Check that only the IDs of components that do not exist are returned").containsExactly(2L);
+    }
+
     @Test
     void saveComponent_valid_savesSuccessfully() {
         when(componentRepository.save(any(Component.class))).thenReturn(component);
@@ -87,6 +170,31 @@ class ComponentServiceImplTest {
         assertThat(saved).as("Check that the component saved matches the expected component").isEqualTo(component);
     }
 
+    @Test
+    void saveAllComponents_savesComponentsInBatches() {
+        List<Component> components = Stream.generate(TestComponentFactory::getComponentEntity)
+                .limit(ComponentServiceImpl.BATCH_SIZE + 1)
+                .toList();
+
+        List<Component> saved = componentServiceImpl.saveAll(components);
+
+        verify(componentRepository).saveAll(components.subList(0, ComponentServiceImpl.BATCH_SIZE));
+        verify(componentRepository).saveAll(components.subList(ComponentServiceImpl.BATCH_SIZE, components.size()));
+        verify(entityManager, times(2)).flush();
+        assertThat(saved).as("Check that all the saved components are returned").isEqualTo(components);
+    }
+
+    @Test
+    void saveAllComponents_invalidComponent_savesNothing() {
+        Component invalidComponent = TestComponentFactory.getComponentEntity();
+        invalidComponent.setWeight(-1);
+
+        assertThatThrownBy(() -> componentServiceImpl.saveAll(List.of(component, invalidComponent)))
+                .as("Expect ComponentValidationException when any of the components is invalid")
+                .isInstanceOf(ComponentValidationException.class);
+        verify(componentRepository, never()).saveAll(any());
+    }
+
     @Test
     void saveComponent_invalidWeight_throwsValidationException() {
         component.setWeight(-1); // Invalid weight
@@ -129,18 +237,17 @@ class ComponentServiceImplTest {
 
     @Test
     void deleteById_whenExists_deletesSuccessfully() {
-        when(componentRepository.existsById(anyLong())).thenReturn(true);
-        doNothing().when(componentRepository).deleteById(anyLong());
+        when(componentRepository.removeById(anyLong())).thenReturn(1);
 
         componentServiceImpl.deleteById(1L);
 
-        verify(componentRepository).deleteById(1L);
+        verify(componentRepository).removeById(1L);
         assertThat(true).as("Verify that the delete operation was called on the repository").isTrue();
     }
 
     @Test
     void deleteById_whenNotExists_throwsException() {
-        when(componentRepository.existsById(anyLong())).thenReturn(false);
+        when(componentRepository.removeById(anyLong())).thenReturn(0);
 
         assertThatThrownBy(() -> componentServiceImpl.deleteById(1L))
                 .as("Expect ComponentNotFoundException when trying to delete a component that does not exist")
@@ -150,17 +257,28 @@ class ComponentServiceImplTest {
 
     @Test
     void updateComponent_whenExists_updatesSuccessfully() {
-        when(componentRepository.existsById(component.getId())).thenReturn(true);
-        when(componentRepository.save(any(Component.class))).thenReturn(component);
+        component.setRevision(3L);
+        when(componentRepository.findById(component.getId()))
+                .thenReturn(Optional.of(Component.builder().id(component.getId()).revision(3L).build()));
+        when(componentRepository.saveAndFlush(any(Component.class))).thenReturn(component);
 
         componentServiceImpl.update(component);
 
-        verify(componentRepository).save(component);
+        verify(componentRepository).saveAndFlush(component);
+    }
+
+    @Test
+    void updateComponent_withoutRevision_throwsException() {
+        assertThatThrownBy(() -> componentServiceImpl.update(component))
+                .as("Expect ComponentRevisionRequiredException when the component is sent without the revision it was read in")
+                .isInstanceOf(ComponentRevisionRequiredException.class);
+        verify(componentRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void updateComponent_whenDoesNotExist_throwsException() {
-        when(componentRepository.existsById(any())).thenReturn(false);
+        component.setRevision(3L);
+        when(componentRepository.findById(any())).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> componentServiceImpl.update(component))
                 .as("Expect ComponentNotFoundException when trying to update a component that does not exist")
@@ -168,6 +286,21 @@ class ComponentServiceImplTest {
                 .hasMessageContaining("Cannot update, component not found with id: " + component.getId());
     }
 
+    @Test
+    void updateComponent_whenRevisionIsStale_throwsConflictException() {
+        component.setRevision(2L);
+        when(componentRepository.findById(component.getId()))
+                .thenReturn(Optional.of(Component.builder().id(component.getId()).revision(3L).build()));
+        when(componentRepository.saveAndFlush(component))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Component.class, component.getId()));
+
+        assertThatThrownBy(() -> componentServiceImpl.update(component))
+                .as("Expect ComponentConflictException when the component was changed since it was read")
+                .isInstanceOf(ComponentConflictException.class)
+                .hasMessageContaining("revision 2 is no longer current");
+        verify(componentChangeRepository, never()).save(any());
+    }
+
     @Test
     void updateComponent_invalidWeight_throwsValidationException() {
         component.setWeight(-1); // Invalid weight
@@ -210,11 +343,11 @@ class ComponentServiceImplTest {
 
     @Test
     void deleteAllComponents_deletesAllSuccessfully() {
-        doNothing().when(componentRepository).deleteAll();
+        doNothing().when(componentRepository).deleteAllInBatch();
 
         componentServiceImpl.deleteAll();
 
-        verify(componentRepository).deleteAll();
+        verify(componentRepository).deleteAllInBatch();
         assertThat(true).as("Verify that the delete all operation was called on the repository").isTrue();
     }
 
@@ -255,4 +388,93 @@ class ComponentServiceImplTest {
         verify(componentRepository).findByType(ComponentType.ENGINE);
         assertThat(components).as("Check that the components returned by type are empty when no components are found").isEmpty();
     }
+
+    @Test
+    void deleteById_whenExists_recordsDeletion() {
+        when(componentRepository.removeById(1L)).thenReturn(1);
+
+        componentServiceImpl.deleteById(1L);
+
+        verify(componentDeletionRepository).save(ComponentDeletion.builder().componentId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsDeletionOfAllComponents() {
+        componentServiceImpl.deleteAll();
+
+        verify(componentDeletionRepository).save(new ComponentDeletion());
+    }
+
+    @Test
+    void findLastDeletionSequence_whenNoDeletion_returnsZero() {
+        when(componentDeletionRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+
+        assertThat(componentServiceImpl.findLastDeletionSequence()).as("Check that the sequence starts at zero").isZero();
+    }
+
+    @Test
+    void deleteById_whenExists_recordsChange() {
+        when(componentRepository.removeById(1L)).thenReturn(1);
+
+        componentServiceImpl.deleteById(1L);
+
+        verify(componentChangeRepository).save(ComponentChange.builder().componentId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsChangeOfAllComponents() {
+        componentServiceImpl.deleteAll();
+
+        verify(componentChangeRepository).save(new ComponentChange());
+    }
+
+    @Test
+    void findByFilter_loadsComponentsFoundInIndex() {
+        ComponentFilter filter = new ComponentFilter(Set.of(ComponentType.SPOILER), Set.of("BMW"), null, 30, null, null);
+        when(componentFilterIndex.find(filter, null, 100)).thenReturn(List.of(1L));
+        mockMultiLoad(List.of(1L), List.of(component));
+
+        List<Component> found = componentServiceImpl.findByFilter(filter, null, 100);
+
+        assertThat(found).as("Check that the components found by the index are returned").containsExactly(component);
+        verify(componentRepository, never()).findAll();
+    }
+
+    @Test
+    void saveComponent_valid_putsComponentToFilterIndex() {
+        when(componentRepository.save(component)).thenReturn(component);
+
+        componentServiceImpl.save(component);
+
+        verify(componentFilterIndex).put(List.of(component));
+    }
+
+    @Test
+    void deleteById_whenExists_removesComponentFromFilterIndex() {
+        when(componentRepository.removeById(1L)).thenReturn(1);
+
+        componentServiceImpl.deleteById(1L);
+
+        verify(componentFilterIndex).remove(1L);
+    }
+
+    @Test
+    void updateComponent_whenRevisionIsStale_leavesFilterIndex() {
+        component.setRevision(2L);
+        when(componentRepository.findById(component.getId()))
+                .thenReturn(Optional.of(Component.builder().id(component.getId()).revision(3L).build()));
+        when(componentRepository.saveAndFlush(component)).thenThrow(new ObjectOptimisticLockingFailureException(Component.class, 1L));
+
+        assertThatThrownBy(() -> componentServiceImpl.update(component)).isInstanceOf(ComponentConflictException.class);
+        verify(componentFilterIndex, never()).put(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockMultiLoad(List<Long> ids, List<Component> components) {
+        Session session = mock(Session.class);
+        MultiIdentifierLoadAccess<Component> multiLoadAccess = mock(MultiIdentifierLoadAccess.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.byMultipleIds(Component.class)).thenReturn(multiLoadAccess);
+        when(multiLoadAccess.multiLoad(ids)).thenReturn(components);
+    }
 }
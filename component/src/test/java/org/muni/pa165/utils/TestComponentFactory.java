@@ -19,6 +19,7 @@ public class TestComponentFactory {
                 .manufacturer("BMW")
                 .version("1.0.0")
                 .type(ComponentType.SPOILER)
+                .revision(0L)
                 .build();
     }
 
@@ -0,0 +1,26 @@
+package org.muni.pa165.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeFeedDto {
+
+    @Schema(description = "Sequence number to pass as 'after' in the next request", example = "42")
+    private Long lastSequence;
+
+    @Schema(description = "IDs of drivers updated or deleted since the requested sequence number", example = "[1, 2]")
+    private List<Long> changedIds;
+
+    @Schema(description = "True when all copied drivers must be refreshed, e.g. after all drivers were deleted "
+            + "or when the requested sequence number is unknown")
+    private boolean reset;
+}
@@ -32,4 +32,8 @@ public class DriverViewDto {
     @Schema(description = "perk of the driver",
             example = "HAMMER_TIME")
     private DriverPerk perk;
+
+    @Schema(description = "version of the driver, incremented by every update",
+            example = "0")
+    private Long version;
 }
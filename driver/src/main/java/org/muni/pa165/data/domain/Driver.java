@@ -1,17 +1,23 @@
 package org.muni.pa165.data.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serializable;
 
@@ -20,11 +26,19 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "driver")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// every derived finder of the repository reads through an index instead of scanning the table
+@Table(name = "driver", indexes = {
+        @Index(name = "driver_perk_idx", columnList = "perk"),
+        @Index(name = "driver_nationality_idx", columnList = "nationality")
+})
 public class Driver implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids are reserved in blocks, so inserts of a bulk create are sent in JDBC batches, which IDENTITY prevents
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "driver_seq")
+    @SequenceGenerator(name = "driver_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -39,4 +53,8 @@ public class Driver implements Serializable {
     @NotNull
     @Enumerated(EnumType.STRING)
     private DriverPerk perk;
+
+    // incremented by every update, identifies the state of the driver in its ETag
+    @Version
+    private Long version;
 }
@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class DriverConflictException extends RuntimeException {
+
+    public DriverConflictException(String message) {
+        super(message);
+    }
+}
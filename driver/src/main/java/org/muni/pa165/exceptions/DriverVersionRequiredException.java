@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class DriverVersionRequiredException extends RuntimeException {
+
+    public DriverVersionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,22 @@
 package org.muni.pa165.facade;
 
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.api.DriverCreateViewDto;
 import org.muni.pa165.api.DriverViewDto;
 import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverChange;
+import org.muni.pa165.data.domain.DriverDeletion;
 import org.muni.pa165.data.domain.DriverPerk;
 import org.muni.pa165.mapper.DriverMapper;
 import org.muni.pa165.service.DriverService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class DriverFacade {
@@ -29,6 +37,15 @@ public class DriverFacade {
         return driverMapper.toDriverViewDto(driverService.save(driverMapper.fromDriverCreateViewDto(driverCreateViewDto)));
     }
 
+    public List<DriverViewDto> saveAll(List<DriverCreateViewDto> driverCreateViewDtos) {
+        List<Driver> drivers = driverCreateViewDtos.stream()
+                .map(driverMapper::fromDriverCreateViewDto)
+                .toList();
+        return driverService.saveAll(drivers).stream()
+                .map(driverMapper::toDriverViewDto)
+                .toList();
+    }
+
     public void deleteById(Long id) {
         driverService.deleteById(id);
     }
@@ -47,6 +64,33 @@ public class DriverFacade {
                 .toList();
     }
 
+    /**
+     * Returns a page of drivers ordered by id. When after is given, the drivers following the one
+     * with that id are returned instead, unlike an offset this stays fast deep into large tables.
+     */
+    public List<DriverViewDto> findAll(int page, int size, Long after) {
+        List<Driver> drivers = after != null
+                ? driverService.findAllAfter(after, size)
+                : driverService.findPage(page, size);
+        return drivers.stream()
+                .map(driverMapper::toDriverViewDto)
+                .toList();
+    }
+
+    public void exportAll(Consumer<DriverViewDto> action) {
+        driverService.streamAll(driver -> action.accept(driverMapper.toDriverViewDto(driver)));
+    }
+
+    public List<DriverViewDto> findAllById(Collection<Long> ids) {
+        return driverService.findAllById(ids).stream()
+                .map(driverMapper::toDriverViewDto)
+                .toList();
+    }
+
+    public Set<Long> findMissingIds(Collection<Long> ids) {
+        return driverService.findMissingIds(ids);
+    }
+
     public List<DriverViewDto> findByPerk(DriverPerk perk) {
         return driverService.findByPerk(perk).stream()
                 .map(driverMapper::toDriverViewDto)
@@ -58,4 +102,46 @@ public class DriverFacade {
                 .map(driverMapper::toDriverViewDto)
                 .toList();
     }
+
+    /**
+     * Returns drivers deleted after the given sequence number of the deletion log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all drivers among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller drops everything it has cached.
+     */
+    public DeletionFeedDto findDeletions(Long after) {
+        long lastSequence = driverService.findLastDeletionSequence();
+        if (after == null || after > lastSequence || after < driverService.findFirstDeletionSequence() - 1) {
+            return new DeletionFeedDto(lastSequence, List.of(), true);
+        }
+        List<DriverDeletion> deletions = driverService.findDeletionsAfter(after);
+        return new DeletionFeedDto(
+                deletions.isEmpty() ? after : Math.max(after, deletions.get(deletions.size() - 1).getId()),
+                deletions.stream().map(DriverDeletion::getDriverId).filter(Objects::nonNull).toList(),
+                deletions.stream().anyMatch(deletion -> deletion.getDriverId() == null));
+    }
+
+    /**
+     * Returns drivers updated or deleted after the given sequence number of the change log.
+     * Entries recorded shortly before the request are returned again, as they may have committed after
+     * entries with higher sequence numbers were read.
+     * A delete of all drivers among the returned entries resets the caller even when it was returned before,
+     * as it may have committed after the caller read past its sequence number.
+     * When the sequence number is not given, is not known to this instance or precedes pruned entries, only the current
+     * sequence number is returned together with a reset flag, so the caller refreshes everything it has copied.
+     */
+    public ChangeFeedDto findChanges(Long after) {
+        long lastSequence = driverService.findLastChangeSequence();
+        if (after == null || after > lastSequence || after < driverService.findFirstChangeSequence() - 1) {
+            return new ChangeFeedDto(lastSequence, List.of(), true);
+        }
+        List<DriverChange> changes = driverService.findChangesAfter(after);
+        return new ChangeFeedDto(
+                changes.isEmpty() ? after : Math.max(after, changes.get(changes.size() - 1).getId()),
+                changes.stream().map(DriverChange::getDriverId).filter(Objects::nonNull).distinct().toList(),
+                changes.stream().anyMatch(change -> change.getDriverId() == null));
+    }
 }
@@ -1,6 +1,7 @@
 package org.muni.pa165.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.muni.pa165.api.DriverCreateViewDto;
 import org.muni.pa165.api.DriverViewDto;
 import org.muni.pa165.data.domain.Driver;
@@ -14,5 +15,6 @@ public interface DriverMapper {
 
     DriverCreateViewDto toDriverCreateViewDto(Driver driver);
 
+    @Mapping(target = "version", ignore = true)
     Driver fromDriverCreateViewDto(DriverCreateViewDto driverDto);
 }
@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.api.DriverCreateViewDto;
 import org.muni.pa165.api.DriverViewDto;
 import org.muni.pa165.config.AppConfig;
@@ -13,6 +15,9 @@ import org.muni.pa165.data.domain.Driver;
 import org.muni.pa165.data.domain.DriverPerk;
 import org.muni.pa165.facade.DriverFacade;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,22 +25,31 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/drivers")
 public class DriverRestController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final DriverFacade driverFacade;
     private final UriBuilderService uriBuilderService;
+    private final NdjsonWriter ndjsonWriter;
 
     @Autowired
-    public DriverRestController(DriverFacade driverFacade, UriBuilderService uriBuilderService) {
+    public DriverRestController(DriverFacade driverFacade, UriBuilderService uriBuilderService,
+                                NdjsonWriter ndjsonWriter) {
         this.driverFacade = driverFacade;
         this.uriBuilderService = uriBuilderService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @GetMapping("/{id}")
@@ -50,6 +64,8 @@ public class DriverRestController {
                     @ApiResponse(description = "Successful retrieval",
                             responseCode = "200",
                             content = @Content(schema = @Schema(implementation = DriverViewDto.class))),
+                    @ApiResponse(description = "Not modified - If-None-Match contains the current ETag",
+                            responseCode = "304"),
                     @ApiResponse(description = "driver not found",
                             responseCode = "404"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
@@ -57,7 +73,7 @@ public class DriverRestController {
             })
     public ResponseEntity<DriverViewDto> findDriverById(@PathVariable Long id) {
         DriverViewDto driverViewDto = driverFacade.findById(id);
-        return ResponseEntity.ok(driverViewDto);
+        return ResponseEntity.ok().eTag(String.valueOf(driverViewDto.getVersion())).body(driverViewDto);
     }
 
     @PostMapping
@@ -82,6 +98,29 @@ public class DriverRestController {
         return ResponseEntity.created(uriBuilderService.getLocationOfCreatedResource(savedDriver)).body(savedDriver);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create many drivers at once",
+            description = "Validates all the drivers first and stores them in a single transaction, "
+                    + "so either all of them are created or none. Meant for seeding large amounts of data.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_write"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_write"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Drivers created successfully",
+                            responseCode = "201",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = DriverViewDto.class)))),
+                    @ApiResponse(description = "Invalid data of any of the drivers",
+                            responseCode = "400"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<DriverViewDto>> saveDrivers(@RequestBody List<DriverCreateViewDto> driverCreateViewDtos) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(driverFacade.saveAll(driverCreateViewDtos));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a driver by ID",
             security = {
@@ -105,6 +144,10 @@ public class DriverRestController {
 
     @GetMapping
     @Operation(summary = "Find all drivers",
+            description = "Returns all drivers when none of 'page', 'size' and 'after' is given. "
+                    + "Otherwise returns one page of drivers ordered by ID, 'size' of them, 100 by default and at most 1000. "
+                    + "Pass the ID of the last returned driver as 'after' to get the next page, "
+                    + "which stays fast on large tables, or pass the page number as 'page'.",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -118,11 +161,111 @@ public class DriverRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<List<DriverViewDto>> findAllDrivers() {
-        List<DriverViewDto> drivers = driverFacade.findAll();
+    public ResponseEntity<List<DriverViewDto>> findAllDrivers(
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "after", required = false) Long after) {
+        // clients written before paging pass none of the parameters and expect the whole list
+        List<DriverViewDto> drivers = page == null && size == null && after == null
+                ? driverFacade.findAll()
+                : driverFacade.findAll(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size, after);
         return ResponseEntity.ok(drivers);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all drivers",
+            description = "Streams all drivers ordered by ID as newline delimited JSON, one driver per line. "
+                    + "Drivers are written while they are read from the database, so the export is not split into pages.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Drivers streamed successfully",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = DriverViewDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<StreamingResponseBody> exportDrivers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.write(driverFacade::exportAll));
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Find drivers by IDs",
+            description = "Returns the drivers with the given IDs in a single call, IDs that do not exist are skipped",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = DriverViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<DriverViewDto>> findDriversByIds(@RequestParam("ids") List<Long> ids) {
+        List<DriverViewDto> drivers = driverFacade.findAllById(ids);
+        return ResponseEntity.ok(drivers);
+    }
+
+    @GetMapping("/deletions")
+    @Operation(summary = "Get drivers deleted since a sequence number",
+            description = "Feed of deleted drivers polled by other services to invalidate their caches. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = DeletionFeedDto.class)))
+            })
+    public ResponseEntity<DeletionFeedDto> findDriverDeletions(@RequestParam(value = "after", required = false) Long after) {
+        DeletionFeedDto deletions = driverFacade.findDeletions(after);
+        return ResponseEntity.ok(deletions);
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get drivers updated or deleted since a sequence number",
+            description = "Feed of changed drivers polled by other services to refresh their copies of drivers. "
+                    + "Pass the returned lastSequence as 'after' in the next request.",
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(schema = @Schema(implementation = ChangeFeedDto.class)))
+            })
+    public ResponseEntity<ChangeFeedDto> findDriverChanges(@RequestParam(value = "after", required = false) Long after) {
+        ChangeFeedDto changes = driverFacade.findChanges(after);
+        return ResponseEntity.ok(changes);
+    }
+
+    @GetMapping("/missing")
+    @Operation(summary = "Find IDs of drivers that do not exist",
+            description = "Checks existence of all given IDs in a single call and returns only those that do not exist",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful check",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = Long.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<Set<Long>> findMissingDriverIds(@RequestParam("ids") List<Long> ids) {
+        Set<Long> missingIds = driverFacade.findMissingIds(ids);
+        return ResponseEntity.ok(missingIds);
+    }
+
     @GetMapping("/perk/{perk}")
     @Operation(summary = "Get drivers by perk",
             security = {
@@ -158,10 +301,19 @@ public class DriverRestController {
                             responseCode = "400"),
                     @ApiResponse(description = "Driver not found",
                             responseCode = "404"),
+                    @ApiResponse(description = "Driver was changed by another update, the version sent is no longer current",
+                            responseCode = "409"),
+                    @ApiResponse(description = "Driver version sent neither in the body nor in the If-Match header",
+                            responseCode = "428"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<Void> updateDriver(@RequestBody Driver driver) {
+    public ResponseEntity<Void> updateDriver(@RequestBody Driver driver,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = versionOf(ifMatch);
+        if (version != null) {
+            driver.setVersion(version);
+        }
         driverFacade.update(driver);
         return ResponseEntity.ok(null);
     }
@@ -204,4 +356,22 @@ public class DriverRestController {
         driverFacade.deleteAll();
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * @return version carried by the ETag in an If-Match header, or null when there is no such ETag
+     */
+    private static Long versionOf(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        try {
+            return Long.valueOf(eTag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package org.muni.pa165.rest.exceptionhandling;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.muni.pa165.exceptions.DriverConflictException;
 import org.muni.pa165.exceptions.DriverNotFoundException;
 import org.muni.pa165.exceptions.DriverValidationException;
+import org.muni.pa165.exceptions.DriverVersionRequiredException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -38,6 +40,26 @@ public class CustomRestGlobalExceptionHandling {
         return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
     }
 
+    @ExceptionHandler({DriverVersionRequiredException.class})
+    public ResponseEntity<ApiError> handleVersionRequired(final DriverVersionRequiredException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.PRECONDITION_REQUIRED,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    @ExceptionHandler({DriverConflictException.class})
+    public ResponseEntity<ApiError> handleConflict(final DriverConflictException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.CONFLICT,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
     /**
      * Handle all the exceptions not matched by above-mentioned definitions.
      *
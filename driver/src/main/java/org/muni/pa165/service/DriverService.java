@@ -1,9 +1,14 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverChange;
+import org.muni.pa165.data.domain.DriverDeletion;
 import org.muni.pa165.data.domain.DriverPerk;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface DriverService {
 
@@ -15,11 +20,35 @@ public interface DriverService {
 
     Driver save(Driver driver);
 
+    List<Driver> saveAll(List<Driver> drivers);
+
     void update(Driver driver);
 
     List<Driver> findAll();
 
+    List<Driver> findPage(int page, int size);
+
+    List<Driver> findAllAfter(Long id, int size);
+
+    void streamAll(Consumer<Driver> action);
+
+    List<Driver> findAllById(Collection<Long> ids);
+
+    Set<Long> findMissingIds(Collection<Long> ids);
+
     List<Driver> findByPerk(DriverPerk perk);
 
     List<Driver> findByNationality(String nationality);
+
+    List<DriverDeletion> findDeletionsAfter(Long sequence);
+
+    long findFirstDeletionSequence();
+
+    long findLastDeletionSequence();
+
+    List<DriverChange> findChangesAfter(Long sequence);
+
+    long findFirstChangeSequence();
+
+    long findLastChangeSequence();
 }
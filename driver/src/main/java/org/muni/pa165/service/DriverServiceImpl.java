@@ -1,25 +1,67 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverChange;
+import org.muni.pa165.data.domain.DriverDeletion;
 import org.muni.pa165.data.domain.DriverPerk;
+import org.muni.pa165.data.repository.DriverChangeRepository;
+import org.muni.pa165.data.repository.DriverDeletionRepository;
 import org.muni.pa165.data.repository.DriverRepository;
+import org.muni.pa165.exceptions.DriverConflictException;
 import org.muni.pa165.exceptions.DriverNotFoundException;
 import org.muni.pa165.exceptions.DriverValidationException;
+import org.muni.pa165.exceptions.DriverVersionRequiredException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class DriverServiceImpl implements DriverService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Number of entities inserted in a single JDBC batch, the same as the number of ids reserved at once.
+     */
+    public static final int BATCH_SIZE = 50;
+
     private final DriverRepository driverRepository;
+    private final DriverDeletionRepository driverDeletionRepository;
+    private final DriverChangeRepository driverChangeRepository;
+    private final EntityManager entityManager;
+    private final Duration feedTrailingWindow;
+    private final Duration feedRetention;
 
     @Autowired
-    public DriverServiceImpl(DriverRepository driverRepository) {
+    public DriverServiceImpl(DriverRepository driverRepository, DriverDeletionRepository driverDeletionRepository,
+                             DriverChangeRepository driverChangeRepository, EntityManager entityManager,
+                             @Value("${driver.feed.trailing-window:30s}") Duration feedTrailingWindow,
+                             @Value("${driver.feed.retention:1d}") Duration feedRetention) {
         this.driverRepository = driverRepository;
+        this.driverDeletionRepository = driverDeletionRepository;
+        this.driverChangeRepository = driverChangeRepository;
+        this.entityManager = entityManager;
+        this.feedTrailingWindow = feedTrailingWindow;
+        this.feedRetention = feedRetention;
     }
 
     @Override
@@ -34,17 +76,34 @@ public class DriverServiceImpl implements DriverService {
         return driverRepository.save(driver);
     }
 
+    @Override
+    public List<Driver> saveAll(List<Driver> drivers) {
+        drivers.forEach(this::validateDriver);
+        for (int from = 0; from < drivers.size(); from += BATCH_SIZE) {
+            List<Driver> batch = drivers.subList(from, Math.min(from + BATCH_SIZE, drivers.size()));
+            driverRepository.saveAll(batch);
+            // sends the inserts of the batch at once and keeps the persistence context small
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return drivers;
+    }
+
     @Override
     public void deleteById(Long id) {
-        if (!driverRepository.existsById(id)) {
+        if (driverRepository.removeById(id) == 0) {
             throw new DriverNotFoundException("Driver not found with id: " + id + " for deletion");
         }
-        driverRepository.deleteById(id);
+        driverDeletionRepository.save(DriverDeletion.builder().driverId(id).build());
+        driverChangeRepository.save(DriverChange.builder().driverId(id).build());
     }
 
     @Override
     public void deleteAll() {
-        driverRepository.deleteAll();
+        // a single DELETE statement instead of loading and removing the drivers one by one
+        driverRepository.deleteAllInBatch();
+        driverDeletionRepository.save(new DriverDeletion());
+        driverChangeRepository.save(new DriverChange());
     }
 
     @Override
@@ -52,13 +111,119 @@ public class DriverServiceImpl implements DriverService {
         return driverRepository.findAll();
     }
 
+    @Override
+    public List<Driver> findPage(int page, int size) {
+        return driverRepository.findAllBy(PageRequest.of(Math.max(page, 0), pageSize(size), Sort.by("id"))).getContent();
+    }
+
+    @Override
+    public List<Driver> findAllAfter(Long id, int size) {
+        return driverRepository.findByIdGreaterThanOrderByIdAsc(id, Limit.of(pageSize(size)));
+    }
+
+    /**
+     * Passes all drivers ordered by id to the given action while they are read from the database.
+     * Each driver is detached once handled, so the persistence context does not grow with the table.
+     */
+    @Override
+    public void streamAll(Consumer<Driver> action) {
+        try (Stream<Driver> drivers = driverRepository.streamAllByOrderByIdAsc()) {
+            drivers.forEach(driver -> {
+                action.accept(driver);
+                entityManager.detach(driver);
+            });
+        }
+    }
+
+    /**
+     * Loads drivers from the second-level cache, only drivers missing in it are read from the database.
+     */
+    @Override
+    public List<Driver> findAllById(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Driver.class)
+                .multiLoad(List.copyOf(new LinkedHashSet<>(ids)))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<DriverDeletion> findDeletionsAfter(Long sequence) {
+        return driverDeletionRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
+
+    @Override
+    public long findFirstDeletionSequence() {
+        return driverDeletionRepository.findTopByOrderByIdAsc()
+                .map(DriverDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastDeletionSequence() {
+        return driverDeletionRepository.findTopByOrderByIdDesc()
+                .map(DriverDeletion::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public List<DriverChange> findChangesAfter(Long sequence) {
+        return driverChangeRepository.findFeed(sequence, Instant.now().minus(feedTrailingWindow));
+    }
+
+    @Override
+    public long findFirstChangeSequence() {
+        return driverChangeRepository.findTopByOrderByIdAsc()
+                .map(DriverChange::getId)
+                .orElse(0L);
+    }
+
+    @Override
+    public long findLastChangeSequence() {
+        return driverChangeRepository.findTopByOrderByIdDesc()
+                .map(DriverChange::getId)
+                .orElse(0L);
+    }
+
+    /**
+     * Deletes entries of the deletion and change logs older than the retention period.
+     * Consumers whose sequence number precedes the remaining entries are asked to reset.
+     */
+    @Scheduled(fixedDelayString = "${driver.feed.prune-interval:3600000}")
+    public void pruneFeeds() {
+        Instant before = Instant.now().minus(feedRetention);
+        driverDeletionRepository.deleteRecordedBefore(before);
+        driverChangeRepository.deleteRecordedBefore(before);
+    }
+
+    @Override
+    public Set<Long> findMissingIds(Collection<Long> ids) {
+        Set<Long> missing = new TreeSet<>(ids);
+        if (!missing.isEmpty()) {
+            findAllById(missing).forEach(driver -> missing.remove(driver.getId()));
+        }
+        return missing;
+    }
+
     @Override
     public void update(Driver driver) {
         validateDriver(driver);
-        if (!driverRepository.existsById(driver.getId())) {
-            throw new DriverNotFoundException("Driver not found with id: " + driver.getId() + " for update");
+        if (driver.getVersion() == null) {
+            throw new DriverVersionRequiredException("Cannot update driver with id: " + driver.getId()
+                    + " without the version it was read in");
+        }
+        // served from the second-level cache, the merge below copies the driver onto it
+        driverRepository.findById(driver.getId())
+                .orElseThrow(() -> new DriverNotFoundException("Driver not found with id: " + driver.getId() + " for update"));
+        try {
+            // merged onto the current driver and written as UPDATE ... WHERE id = ? AND version = ?
+            driverRepository.saveAndFlush(driver);
+        } catch (OptimisticLockingFailureException e) {
+            throw new DriverConflictException("Driver with id: " + driver.getId() + " was changed by another update, "
+                    + "version " + driver.getVersion() + " is no longer current");
         }
-        driverRepository.save(driver);
+        driverChangeRepository.save(DriverChange.builder().driverId(driver.getId()).build());
     }
 
     @Override
@@ -85,4 +250,8 @@ public class DriverServiceImpl implements DriverService {
             throw new DriverValidationException("Driver perk cannot be empty");
         }
     }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
 }
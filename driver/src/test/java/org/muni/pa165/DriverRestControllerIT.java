@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.muni.pa165.api.DriverViewDto;
+import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.exceptions.DriverConflictException;
+import org.muni.pa165.exceptions.DriverVersionRequiredException;
 import org.muni.pa165.facade.DriverFacade;
 import org.muni.pa165.utils.TestDriverFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,16 +14,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = DriverMain.class,
@@ -60,9 +73,22 @@ class DriverRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(content().json(expectedJson, true));
     }
 
+    @Test
+    void findDriverById_ifNoneMatchCurrentETag_returnsNotModified() throws Exception {
+        when(driverFacade.findById(newDriver.getId())).thenReturn(newDriver);
+
+        mockMvc.perform(get("/drivers/{id}", newDriver.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void findAllDrivers_whenFound_returnsDrivers() throws Exception {
         List<DriverViewDto> driverViewDtos = Collections.singletonList(newDriver);
@@ -75,4 +101,61 @@ class DriverRestControllerIT {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().json(expectedJson, true));
     }
+
+    @Test
+    void exportDrivers_ndjsonAccepted_streamsOneDriverPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<DriverViewDto> action = invocation.getArgument(0);
+            action.accept(newDriver);
+            action.accept(newDriver);
+            return null;
+        }).when(driverFacade).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/drivers")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expectedLine = objectMapper.writeValueAsString(newDriver);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expectedLine + "\n" + expectedLine + "\n"));
+    }
+
+    @Test
+    void findAllDrivers_anyAccepted_returnsJsonPage() throws Exception {
+        when(driverFacade.findAll()).thenReturn(List.of(newDriver));
+
+        mockMvc.perform(get("/drivers"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void updateDriver_staleVersion_returnsConflict() throws Exception {
+        Driver driver = TestDriverFactory.getDriverEntity();
+        driver.setVersion(2L);
+        doThrow(new DriverConflictException("Driver with id: " + driver.getId() + " was changed by another update, "
+                + "version 2 is no longer current"))
+                .when(driverFacade).update(any());
+
+        mockMvc.perform(put("/drivers/{id}", driver.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(driver)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateDriver_withoutVersion_returnsPreconditionRequired() throws Exception {
+        Driver driver = TestDriverFactory.getDriverEntity();
+        doThrow(new DriverVersionRequiredException("Cannot update driver with id: " + driver.getId()
+                + " without the version it was read in"))
+                .when(driverFacade).update(any());
+
+        mockMvc.perform(put("/drivers/{id}", driver.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(driver)))
+                .andExpect(status().isPreconditionRequired());
+    }
 }
@@ -0,0 +1,66 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.config.SecondLevelCacheConfig;
+import org.muni.pa165.data.domain.DriverPerk;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures every finder of drivers reads through an index instead of scanning the table.
+ * The statement generated for a finder is recorded and its plan is explained by the database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.muni.pa165.data.repository.DriverRepositoryQueryPlanTest$LastStatement")
+@Import(SecondLevelCacheConfig.class)
+class DriverRepositoryQueryPlanTest {
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findByPerk_readsThroughIndex() {
+        driverRepository.findByPerk(DriverPerk.OVERTAKER);
+
+        assertThat(explain(DriverPerk.OVERTAKER.name())).as("Ensure drivers are found by the perk index")
+                .contains("DRIVER_PERK_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findByNationality_readsThroughIndex() {
+        driverRepository.findByNationality("British");
+
+        assertThat(explain("British")).as("Ensure drivers are found by the nationality index")
+                .contains("DRIVER_NATIONALITY_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    private String explain(Object... parameters) {
+        Query explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + LastStatement.sql);
+        for (int i = 0; i < parameters.length; i++) {
+            explain.setParameter(i + 1, parameters[i]);
+        }
+        return (String) explain.getSingleResult();
+    }
+
+    public static class LastStatement implements StatementInspector {
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+}
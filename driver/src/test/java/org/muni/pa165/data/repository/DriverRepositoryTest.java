@@ -0,0 +1,103 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.config.SecondLevelCacheConfig;
+import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverPerk;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures repeated reads of drivers are served from the second-level and query caches without SQL statements.
+ * Runs without a test transaction, only committed writes are put to the caches.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(SecondLevelCacheConfig.class)
+class DriverRepositoryTest {
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Driver driver;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        driver = driverRepository.save(Driver.builder()
+                .name("Lewis")
+                .surname("Hamilton")
+                .nationality("British")
+                .perk(DriverPerk.OVERTAKER)
+                .build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        driverRepository.deleteAll();
+    }
+
+    @Test
+    void findById_readAgain_isServedFromSecondLevelCache() {
+        driverRepository.findById(driver.getId());
+        long statements = statistics.getPrepareStatementCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        Driver found = driverRepository.findById(driver.getId()).orElseThrow();
+
+        assertThat(found).as("Ensure the cached driver is returned").isEqualTo(driver);
+        assertThat(statistics.getPrepareStatementCount()).as("Ensure the second read issues no statement")
+                .isEqualTo(statements);
+        assertThat(statistics.getSecondLevelCacheHitCount()).as("Ensure the second read is a cache hit")
+                .isEqualTo(hits + 1);
+    }
+
+    @Test
+    void findByNationality_repeated_isServedFromQueryCache() {
+        driverRepository.findByNationality("British");
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Driver> found = driverRepository.findByNationality("British");
+
+        assertThat(found).as("Ensure the cached result is returned").containsExactly(driver);
+        assertThat(statistics.getPrepareStatementCount()).as("Ensure the repeated query issues no statement")
+                .isEqualTo(statements);
+        assertThat(statistics.getQueryCacheHitCount()).as("Ensure the repeated query is a query cache hit")
+                .isEqualTo(1);
+    }
+
+    @Test
+    void findByPerk_afterDriverIsAdded_returnsFreshResult() {
+        driverRepository.findByPerk(DriverPerk.OVERTAKER);
+        Driver added = driverRepository.save(Driver.builder()
+                .name("Max")
+                .surname("Verstappen")
+                .nationality("Dutch")
+                .perk(DriverPerk.OVERTAKER)
+                .build());
+
+        List<Driver> found = driverRepository.findByPerk(DriverPerk.OVERTAKER);
+
+        assertThat(found).as("Ensure the cached result is invalidated by the write").containsExactlyInAnyOrder(driver, added);
+    }
+}
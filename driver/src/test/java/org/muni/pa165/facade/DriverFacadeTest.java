@@ -6,19 +6,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.ChangeFeedDto;
+import org.muni.pa165.api.DeletionFeedDto;
 import org.muni.pa165.api.DriverCreateViewDto;
 import org.muni.pa165.api.DriverViewDto;
 import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverChange;
+import org.muni.pa165.data.domain.DriverDeletion;
 import org.muni.pa165.data.domain.DriverPerk;
 import org.muni.pa165.mapper.DriverMapper;
 import org.muni.pa165.service.DriverServiceImpl;
 import org.muni.pa165.utils.TestDriverFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -65,6 +72,17 @@ class DriverFacadeTest {
         verify(driverServiceImpl, times(1)).save(testDriver);
     }
 
+    @Test
+    void saveAllDrivers_savesAndReturnsDriverDtos() {
+        when(driverMapper.fromDriverCreateViewDto(testDriverCreateViewDto)).thenReturn(testDriver);
+        when(driverServiceImpl.saveAll(List.of(testDriver))).thenReturn(List.of(testDriver));
+        when(driverMapper.toDriverViewDto(testDriver)).thenReturn(testDriverViewDto);
+
+        List<DriverViewDto> savedDtos = driverFacade.saveAll(List.of(testDriverCreateViewDto));
+
+        assertThat(savedDtos).as("Verify a DTO is returned for every saved driver").containsExactly(testDriverViewDto);
+    }
+
     @Test
     void deleteDriverById_driverDeleted_invokesDeletion() {
         driverFacade.deleteById(1L);
@@ -81,14 +99,38 @@ class DriverFacadeTest {
 
     @Test
     void findAllDrivers_driversFound_returnsDriversList() {
-        when(driverServiceImpl.findAll()).thenReturn(TestDriverFactory.getListOfDriverEntities());
+        when(driverServiceImpl.findPage(0, 100)).thenReturn(TestDriverFactory.getListOfDriverEntities());
         when(driverMapper.toDriverViewDto(any())).thenReturn(testDriverViewDto);
 
-        List<DriverViewDto> foundDtos = driverFacade.findAll();
+        List<DriverViewDto> foundDtos = driverFacade.findAll(0, 100, null);
 
         assertThat(foundDtos).as("Verify that the list of found driver DTOs matches the expected list from TestDataFactory").isEqualTo(TestDriverFactory.getListOfDriverViewDto());
     }
 
+    @Test
+    void findAllDrivers_afterId_returnsDriversFollowingIt() {
+        when(driverServiceImpl.findAllAfter(1L, 10)).thenReturn(List.of(testDriver));
+        when(driverMapper.toDriverViewDto(testDriver)).thenReturn(testDriverViewDto);
+
+        List<DriverViewDto> foundDtos = driverFacade.findAll(0, 10, 1L);
+
+        assertThat(foundDtos).as("Ensure the drivers following the given id are returned").containsExactly(testDriverViewDto);
+    }
+
+    @Test
+    void exportAll_passesEachDriverAsDto() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Driver>>getArgument(0).accept(testDriver);
+            return null;
+        }).when(driverServiceImpl).streamAll(any());
+        when(driverMapper.toDriverViewDto(testDriver)).thenReturn(testDriverViewDto);
+        List<DriverViewDto> exported = new ArrayList<>();
+
+        driverFacade.exportAll(exported::add);
+
+        assertThat(exported).as("Ensure every driver is passed as DTO").containsExactly(testDriverViewDto);
+    }
+
     @Test
     void updateDriver_driverUpdated_invokesUpdate() {
         driverFacade.update(testDriver);
@@ -132,4 +174,68 @@ class DriverFacadeTest {
 
         assertThat(result).as("Verify that an empty list is returned when no drivers are found by nationality").isEmpty();
     }
+
+    @Test
+    void findDeletions_withoutSequence_returnsResetWithLastSequence() {
+        when(driverServiceImpl.findLastDeletionSequence()).thenReturn(5L);
+
+        DeletionFeedDto feed = driverFacade.findDeletions(null);
+
+        assertThat(feed).as("Verify that a new consumer is asked to reset and continue from the last sequence")
+                .isEqualTo(new DeletionFeedDto(5L, List.of(), true));
+    }
+
+    @Test
+    void findDeletions_afterKnownSequence_returnsDeletedIds() {
+        when(driverServiceImpl.findLastDeletionSequence()).thenReturn(7L);
+        when(driverServiceImpl.findDeletionsAfter(5L)).thenReturn(List.of(
+                new DriverDeletion(6L, 1L, null), new DriverDeletion(7L, 2L, null)));
+
+        DeletionFeedDto feed = driverFacade.findDeletions(5L);
+
+        assertThat(feed).as("Verify that ids deleted after the sequence are returned with the last sequence")
+                .isEqualTo(new DeletionFeedDto(7L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findDeletions_afterDeleteAll_returnsReset() {
+        when(driverServiceImpl.findLastDeletionSequence()).thenReturn(6L);
+        when(driverServiceImpl.findDeletionsAfter(5L)).thenReturn(List.of(new DriverDeletion(6L, null, null)));
+
+        DeletionFeedDto feed = driverFacade.findDeletions(5L);
+
+        assertThat(feed.isReset()).as("Verify that deleting all drivers asks consumers to reset").isTrue();
+    }
+
+    @Test
+    void findDeletions_afterUnknownSequence_returnsReset() {
+        when(driverServiceImpl.findLastDeletionSequence()).thenReturn(2L);
+
+        DeletionFeedDto feed = driverFacade.findDeletions(10L);
+
+        assertThat(feed).as("Verify that a sequence from before a restart asks consumers to reset")
+                .isEqualTo(new DeletionFeedDto(2L, List.of(), true));
+    }
+
+    @Test
+    void findChanges_afterKnownSequence_returnsEachChangedIdOnce() {
+        when(driverServiceImpl.findLastChangeSequence()).thenReturn(8L);
+        when(driverServiceImpl.findChangesAfter(5L)).thenReturn(List.of(
+                new DriverChange(6L, 1L, null), new DriverChange(7L, 2L, null), new DriverChange(8L, 1L, null)));
+
+        ChangeFeedDto feed = driverFacade.findChanges(5L);
+
+        assertThat(feed).as("Verify that ids changed after the sequence are returned once with the last sequence")
+                .isEqualTo(new ChangeFeedDto(8L, List.of(1L, 2L), false));
+    }
+
+    @Test
+    void findChanges_afterUnknownSequence_returnsReset() {
+        when(driverServiceImpl.findLastChangeSequence()).thenReturn(3L);
+
+        ChangeFeedDto feed = driverFacade.findChanges(10L);
+
+        assertThat(feed).as("Verify that a consumer ahead of this instance is asked to refresh everything")
+                .isEqualTo(new ChangeFeedDto(3L, List.of(), true));
+    }
 }
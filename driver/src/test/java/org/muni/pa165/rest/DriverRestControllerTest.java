@@ -24,12 +24,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -79,6 +84,16 @@ class DriverRestControllerTest {
         assertThat(response.getBody()).as("Ensure the body matches the expected driver after successful creation").isEqualTo(driverViewDto);
     }
 
+    @Test
+    void saveDrivers_validData_createsAllDrivers() {
+        when(driverFacade.saveAll(List.of(driverCreateViewDto))).thenReturn(List.of(driverViewDto));
+
+        ResponseEntity<List<DriverViewDto>> response = driverRestController.saveDrivers(List.of(driverCreateViewDto));
+
+        assertThat(response.getStatusCode()).as("Verify status code is CREATED when all drivers are created").isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).as("Ensure the body contains all the created drivers").containsExactly(driverViewDto);
+    }
+
     @Test
     void deleteDriverById_whenFound_deletesDriver() {
         doNothing().when(driverFacade).deleteById(anyLong());
@@ -100,23 +115,65 @@ class DriverRestControllerTest {
     @Test
     void findAllDrivers_returnsAllDrivers() {
         List<DriverViewDto> drivers = Collections.singletonList(driverViewDto);
-        when(driverFacade.findAll()).thenReturn(drivers);
+        when(driverFacade.findAll(0, 100, null)).thenReturn(drivers);
 
-        ResponseEntity<?> response = driverRestController.findAllDrivers();
+        ResponseEntity<?> response = driverRestController.findAllDrivers(0, 100, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when retrieving all drivers").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body matches the expected list of drivers when all are found").isEqualTo(drivers);
     }
 
+    @Test
+    void findAllDrivers_withoutPagingParameters_returnsWholeList() {
+        List<DriverViewDto> drivers = Collections.singletonList(driverViewDto);
+        when(driverFacade.findAll()).thenReturn(drivers);
+
+        ResponseEntity<?> response = driverRestController.findAllDrivers(null, null, null);
+
+        assertThat(response.getBody()).as("Ensure clients passing no paging parameters get all drivers as before")
+                .isEqualTo(drivers);
+        verify(driverFacade, never()).findAll(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void findDriversByIds_returnsFoundDrivers() {
+        List<DriverViewDto> drivers = Collections.singletonList(driverViewDto);
+        when(driverFacade.findAllById(List.of(1L, 2L))).thenReturn(drivers);
+
+        ResponseEntity<?> response = driverRestController.findDriversByIds(List.of(1L, 2L));
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when drivers are looked up by IDs").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body contains the drivers found by IDs").isEqualTo(drivers);
+    }
+
+    @Test
+    void findMissingDriverIds_returnsMissingIds() {
+        when(driverFacade.findMissingIds(List.of(1L, 2L))).thenReturn(Set.of(2L));
+
+        ResponseEntity<Set<Long>> response = driverRestController.findMissingDriverIds(List.of(1L, 2L));
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when missing drivers are checked").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body contains only the IDs that do not exist").containsExactly(2L);
+    }
+
     @Test
     void updateDriver_whenFound_updatesDriver() {
         doNothing().when(driverFacade).update(any(Driver.class));
 
-        ResponseEntity<?> response = driverRestController.updateDriver(driverEntity);
+        ResponseEntity<?> response = driverRestController.updateDriver(driverEntity, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when the driver is updated").isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    void updateDriver_withIfMatch_usesVersionOfETag() {
+        driverEntity.setVersion(1L);
+
+        driverRestController.updateDriver(driverEntity, "W/\"3\"");
+
+        verify(driverFacade).update(argThat(driver -> driver.getVersion() == 3L));
+    }
+
     @Test
     void findDriversByPerk_whenFound_returnsDrivers() {
         List<DriverViewDto> drivers = Collections.singletonList(driverViewDto);
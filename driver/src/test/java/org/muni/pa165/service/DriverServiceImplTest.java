@@ -1,5 +1,8 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,22 +10,38 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.data.domain.Driver;
+import org.muni.pa165.data.domain.DriverChange;
+import org.muni.pa165.data.domain.DriverDeletion;
 import org.muni.pa165.data.domain.DriverPerk;
+import org.muni.pa165.data.repository.DriverChangeRepository;
+import org.muni.pa165.data.repository.DriverDeletionRepository;
 import org.muni.pa165.data.repository.DriverRepository;
+import org.muni.pa165.exceptions.DriverConflictException;
 import org.muni.pa165.exceptions.DriverNotFoundException;
 import org.muni.pa165.exceptions.DriverValidationException;
+import org.muni.pa165.exceptions.DriverVersionRequiredException;
 import org.muni.pa165.utils.TestDriverFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,6 +51,15 @@ public class DriverServiceImplTest {
     @Mock
     private DriverRepository driverRepository;
 
+    @Mock
+    private DriverDeletionRepository driverDeletionRepository;
+
+    @Mock
+    private DriverChangeRepository driverChangeRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private DriverServiceImpl driverServiceImpl;
     private Driver testDriver;
@@ -72,6 +100,32 @@ public class DriverServiceImplTest {
         assertThat(result).as("Ensure the driver saved is the same as the driver returned").isSameAs(testDriver);
     }
 
+    @Test
+    void saveAllDrivers_savesDriversInBatches() {
+        List<Driver> drivers = Stream.generate(TestDriverFactory::getDriverEntity)
+                .limit(DriverServiceImpl.BATCH_SIZE + 1)
+                .toList();
+
+        List<Driver> result = driverServiceImpl.saveAll(drivers);
+
+        verify(driverRepository).saveAll(drivers.subList(0, DriverServiceImpl.BATCH_SIZE));
+        verify(driverRepository).saveAll(drivers.subList(DriverServiceImpl.BATCH_SIZE, drivers.size()));
+        verify(entityManager, times(2)).flush();
+        assertThat(result).as("Ensure all the saved drivers are returned").isEqualTo(drivers);
+    }
+
+    @Test
+    void saveAllDrivers_invalidDriver_savesNothing() {
+        Driver invalidDriver = TestDriverFactory.getDriverEntity();
+        invalidDriver.setName("");
+
+        assertThatThrownBy(() -> driverServiceImpl.saveAll(List.of(testDriver, invalidDriver)))
+                .as("Expect DriverValidationException when any of the drivers is invalid")
+                .isInstanceOf(DriverValidationException.class)
+                .hasMessageContaining("Driver name cannot be empty");
+        verify(driverRepository, never()).saveAll(any());
+    }
+
     @Test
     void saveDriverName_invalidManufacturer_throwsValidationException() {
         testDriver.setName("");
@@ -115,17 +169,16 @@ public class DriverServiceImplTest {
     @Test
     void deleteDriverById_deletesDriver() {
         Long driverId = 1L;
-        when(driverRepository.existsById(driverId)).thenReturn(true);
-        doNothing().when(driverRepository).deleteById(driverId);
+        when(driverRepository.removeById(driverId)).thenReturn(1);
 
         driverServiceImpl.deleteById(driverId);
 
-        verify(driverRepository).deleteById(driverId);
+        verify(driverRepository).removeById(driverId);
     }
 
     @Test
     void deleteDriverById_whenNotExists_throwsException() {
-        when(driverRepository.existsById(anyLong())).thenReturn(false);
+        when(driverRepository.removeById(anyLong())).thenReturn(0);
 
         assertThatThrownBy(() -> driverServiceImpl.deleteById(1L))
                 .as("Expect DriverNotFoundException when trying to delete a driver that does not exist")
@@ -137,7 +190,7 @@ public class DriverServiceImplTest {
     void deleteAllDrivers_deletesAllDrivers() {
         driverServiceImpl.deleteAll();
 
-        verify(driverRepository).deleteAll();
+        verify(driverRepository).deleteAllInBatch();
     }
 
     @Test
@@ -151,6 +204,56 @@ public class DriverServiceImplTest {
         assertThat(result).as("Check if the list of all drivers matches the expected list").isEqualTo(expectedDrivers);
     }
 
+    @Test
+    void findPage_sizeOverLimit_readsAtMostMaxPageSize() {
+        when(driverRepository.findAllBy(PageRequest.of(2, DriverServiceImpl.MAX_PAGE_SIZE, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(List.of(testDriver)));
+
+        List<Driver> result = driverServiceImpl.findPage(2, 5000);
+
+        assertThat(result).as("Ensure only the requested slice is read").containsExactly(testDriver);
+    }
+
+    @Test
+    void findAllAfter_returnsDriversFollowingId() {
+        when(driverRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(List.of(testDriver));
+
+        List<Driver> result = driverServiceImpl.findAllAfter(5L, 10);
+
+        assertThat(result).as("Ensure the drivers following the given id are returned").containsExactly(testDriver);
+    }
+
+    @Test
+    void streamAll_passesEachDriverAndDetachesIt() {
+        when(driverRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(testDriver));
+        List<Driver> passed = new ArrayList<>();
+
+        driverServiceImpl.streamAll(passed::add);
+
+        assertThat(passed).as("Ensure every driver is passed to the action").containsExactly(testDriver);
+        verify(entityManager).detach(testDriver);
+    }
+
+    @Test
+    void findAllDriversById_returnsFoundDrivers() {
+        mockMultiLoad(List.of(1L, 2L), Arrays.asList(testDriver, null));
+
+        List<Driver> result = driverServiceImpl.findAllById(List.of(1L, 2L, 1L));
+
+        assertThat(result).as("Check that only the drivers found are returned").containsExactly(testDriver);
+    }
+
+    @Test
+    void findMissingDriverIds_whenAllExist_returnsEmptySet() {
+        Driver secondDriver = TestDriverFactory.getDriverEntity();
+        secondDriver.setId(2L);
+        mockMultiLoad(List.of(1L, 2L), List.of(testDriver, secondDriver));
+
+        Set<Long> missingIds = driverServiceImpl.findMissingIds(List.of(1L, 2L));
+
+        assertThat(missingIds).as("Check that no ID is returned when all drivers exist").isEmpty();
+    }
+
     @Test
     void findAllDriver_whenNotFound_returnsEmptyList() {
         when(driverRepository.findAll()).thenReturn(Collections.emptyList());
@@ -162,17 +265,28 @@ public class DriverServiceImplTest {
 
     @Test
     void updateDriver_updatesAndSavesDriver() {
-        when(driverRepository.existsById(testDriver.getId())).thenReturn(true);
-        when(driverRepository.save(any(Driver.class))).thenReturn(testDriver);
+        testDriver.setVersion(3L);
+        when(driverRepository.findById(testDriver.getId()))
+                .thenReturn(Optional.of(Driver.builder().id(testDriver.getId()).version(3L).build()));
+        when(driverRepository.saveAndFlush(any(Driver.class))).thenReturn(testDriver);
 
         driverServiceImpl.update(testDriver);
 
-        verify(driverRepository).save(testDriver);
+        verify(driverRepository).saveAndFlush(testDriver);
+    }
+
+    @Test
+    void updateDriver_withoutVersion_throwsException() {
+        assertThatThrownBy(() -> driverServiceImpl.update(testDriver))
+                .as("Expect DriverVersionRequiredException when the driver is sent without the version it was read in")
+                .isInstanceOf(DriverVersionRequiredException.class);
+        verify(driverRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void updateDriver_whenDriverDoesNotExist_throwsException() {
-        when(driverRepository.existsById(any())).thenReturn(false);
+        testDriver.setVersion(3L);
+        when(driverRepository.findById(any())).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> driverServiceImpl.update(testDriver))
                 .as("Expect DriverNotFoundException when trying to update a driver that does not exist")
@@ -180,6 +294,21 @@ public class DriverServiceImplTest {
                 .hasMessageContaining("Driver not found with id: " + testDriver.getId() + " for update");
     }
 
+    @Test
+    void updateDriver_whenVersionIsStale_throwsConflictException() {
+        testDriver.setVersion(2L);
+        when(driverRepository.findById(testDriver.getId()))
+                .thenReturn(Optional.of(Driver.builder().id(testDriver.getId()).version(3L).build()));
+        when(driverRepository.saveAndFlush(testDriver))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Driver.class, testDriver.getId()));
+
+        assertThatThrownBy(() -> driverServiceImpl.update(testDriver))
+                .as("Expect DriverConflictException when the driver was changed since it was read")
+                .isInstanceOf(DriverConflictException.class)
+                .hasMessageContaining("version 2 is no longer current");
+        verify(driverChangeRepository, never()).save(any());
+    }
+
     @Test
     void updateDriver_invalidName_throwsValidationException() {
         testDriver.setName("");
@@ -262,4 +391,52 @@ public class DriverServiceImplTest {
         verify(driverRepository).findByNationality("Netherlands");
         assertThat(result).as("Verify that an empty list is returned when no drivers are found by nationality").isEmpty();
     }
+
+    @Test
+    void deleteById_whenExists_recordsDeletion() {
+        when(driverRepository.removeById(1L)).thenReturn(1);
+
+        driverServiceImpl.deleteById(1L);
+
+        verify(driverDeletionRepository).save(DriverDeletion.builder().driverId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsDeletionOfAllDrivers() {
+        driverServiceImpl.deleteAll();
+
+        verify(driverDeletionRepository).save(new DriverDeletion());
+    }
+
+    @Test
+    void findLastDeletionSequence_whenNoDeletion_returnsZero() {
+        when(driverDeletionRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+
+        assertThat(driverServiceImpl.findLastDeletionSequence()).as("Check that the sequence starts at zero").isZero();
+    }
+
+    @Test
+    void deleteById_whenExists_recordsChange() {
+        when(driverRepository.removeById(1L)).thenReturn(1);
+
+        driverServiceImpl.deleteById(1L);
+
+        verify(driverChangeRepository).save(DriverChange.builder().driverId(1L).build());
+    }
+
+    @Test
+    void deleteAll_recordsChangeOfAllDrivers() {
+        driverServiceImpl.deleteAll();
+
+        verify(driverChangeRepository).save(new DriverChange());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockMultiLoad(List<Long> ids, List<Driver> drivers) {
+        Session session = mock(Session.class);
+        MultiIdentifierLoadAccess<Driver> multiLoadAccess = mock(MultiIdentifierLoadAccess.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.byMultipleIds(Driver.class)).thenReturn(multiLoadAccess);
+        when(multiLoadAccess.multiLoad(ids)).thenReturn(drivers);
+    }
 }
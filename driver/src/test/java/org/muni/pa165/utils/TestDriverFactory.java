@@ -18,6 +18,7 @@ public class TestDriverFactory {
                 .surname("Vettel")
                 .nationality("German")
                 .perk(DriverPerk.OVERTAKER)
+                .version(0L)
                 .build();
     }
 
@@ -0,0 +1,21 @@
+package org.muni.pa165.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeed {
+
+    private Long lastSequence;
+
+    private List<Long> changedIds;
+
+    private boolean reset;
+}
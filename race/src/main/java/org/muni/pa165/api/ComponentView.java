@@ -3,6 +3,7 @@ package org.muni.pa165.api;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.muni.pa165.data.enums.ComponentType;
 
 import java.io.Serializable;
@@ -10,6 +11,7 @@ import java.io.Serializable;
 @Builder
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
 public class ComponentView implements Serializable {
 
     private int weight;
@@ -39,4 +39,8 @@ public class RaceViewDto {
     @Schema(description = "ID of the second car",
             example = "2")
     private Long car2Id;
+
+    @Schema(description = "version of the race, incremented by every update",
+            example = "0")
+    private Long version;
 }
@@ -1,36 +1,120 @@
 package org.muni.pa165.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
 import io.swagger.v3.oas.models.security.OAuthFlow;
 import io.swagger.v3.oas.models.security.OAuthFlows;
 import io.swagger.v3.oas.models.security.Scopes;
 import io.swagger.v3.oas.models.security.SecurityScheme;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springdoc.core.customizers.OpenApiCustomizer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     public static final String SECURITY_SCHEME_OAUTH2 = "MUNI";
     public static final String SECURITY_SCHEME_BEARER = "Bearer";
 
+    /**
+     * Pool of connections to other services, shared by all calls of {@link #restTemplate}.
+     * Connections are kept alive between calls and the number of connections per service is limited.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${race.http-client.max-connections:200}") int maxConnections,
+            @Value("${race.http-client.max-connections-per-route:64}") int maxConnectionsPerRoute,
+            @Value("${race.http-client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${race.http-client.read-timeout:5s}") Duration readTimeout,
+            @Value("${race.http-client.time-to-live:5m}") Duration timeToLive) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager,
+                                          @Value("${race.http-client.read-timeout:5s}") Duration readTimeout,
+                                          @Value("${race.http-client.pool-timeout:2s}") Duration poolTimeout,
+                                          @Value("${race.http-client.idle-timeout:30s}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    /**
+     * Publishes leased, pending and available connections of the pool as httpcomponents.httpclient.pool.* metrics.
+     */
+    @Bean
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "inter-service");
+    }
+
+    /**
+     * Non-blocking client used by {@link org.muni.pa165.service.AsyncExternalServiceImpl}.
+     * It keeps its own pool of connections, read timeout is applied per request.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    public HttpClient asyncHttpClient(@Value("${race.http-client.connect-timeout:2s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 
         // Adding an interceptor to include the Authorization header
         restTemplate.getInterceptors().add((request, body, execution) -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication instanceof JwtAuthenticationToken jwtToken) {
-                request.getHeaders().setBearerAuth(jwtToken.getToken().getTokenValue());
+            // opaque tokens are authenticated as BearerTokenAuthentication, JWTs as JwtAuthenticationToken
+            if (authentication instanceof AbstractOAuth2TokenAuthenticationToken<?> token) {
+                request.getHeaders().setBearerAuth(token.getToken().getTokenValue());
             }
             return execution.execute(request, body);
         });
@@ -38,6 +122,55 @@ public class AppConfig {
         return restTemplate;
     }
 
+    /**
+     * Executor used to fan out calls to other services.
+     * With virtual threads enabled every call gets its own virtual thread, otherwise calls share
+     * a pool of platform threads as large as the allowed number of concurrent calls.
+     * The security context of the submitting request is propagated to every task.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService aggregationExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${race.aggregation.max-concurrency:64}") int maxConcurrency) {
+        return new DelegatingSecurityContextExecutorService(virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(maxConcurrency));
+    }
+
+    /**
+     * Executor running reads from other services that may be hedged by a duplicate read.
+     * At most max-concurrency reads run at once on platform or virtual threads and no read waits for a thread,
+     * reads beyond the limit are not hedged, see {@link org.muni.pa165.service.HedgedReads}.
+     * The security context of the submitting request is propagated to every task.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor hedgingExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${race.hedging.max-concurrency:128}") int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(0);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("hedging-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("hedging-", 0).factory());
+        }
+        executor.setTaskDecorator(DelegatingSecurityContextRunnable::new);
+        return executor;
+    }
+
+    /**
+     * Transactions of the read model, always new ones, so copies refreshed once a write has committed
+     * are committed on their own instead of joining the finished transaction of the write.
+     */
+    @Bean
+    public TransactionTemplate readModelTransactions(PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
     /**
      * Configure access restrictions to the API.
      * Introspection of opaque access token is configured, introspection endpoint is defined in application.yml.
@@ -49,6 +182,7 @@ public class AppConfig {
                         .requestMatchers(HttpMethod.GET, "/races").hasAuthority("SCOPE_test_read")
                         .requestMatchers(HttpMethod.PUT, "/races").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.POST, "/races").hasAuthority("SCOPE_test_write")
+                        .requestMatchers(HttpMethod.POST, "/races/batch").hasAuthority("SCOPE_test_write")
                         .requestMatchers(HttpMethod.DELETE, "/races").hasAuthority("SCOPE_test_1")
                         .anyRequest().permitAll()
                 )
@@ -0,0 +1,7 @@
+package org.muni.pa165.data.domain;
+
+public enum LocationField {
+    COUNTRY,
+    CITY,
+    STREET
+}
@@ -1,12 +1,16 @@
 package org.muni.pa165.data.domain;
 
 import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,11 +25,20 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "race")
+// the search columns are read through their indexes by location search,
+// races between two dates are read through the index of dates in the order of their pages
+@Table(name = "race", indexes = {
+        @Index(name = "race_date_id_idx", columnList = "date, id"),
+        @Index(name = "race_search_country_idx", columnList = "searchCountry"),
+        @Index(name = "race_search_city_idx", columnList = "searchCity"),
+        @Index(name = "race_search_street_idx", columnList = "searchStreet")
+})
 public class Race implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids are reserved in blocks, so inserts of a bulk create are sent in JDBC batches, which IDENTITY prevents
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "race_seq")
+    @SequenceGenerator(name = "race_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -38,9 +51,26 @@ public class Race implements Serializable {
     @NotNull
     private LocalDate date;
 
+    // normalized copies of the location computed by the database on every write, only used in queries
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(country)))")
+    private String searchCountry;
+
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(city)))")
+    private String searchCity;
+
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(street)))")
+    private String searchStreet;
+
     @Nullable
     private Long car1Id;
 
     @Nullable
     private Long car2Id;
+
+    // incremented by every update, identifies the state of the race in its ETag
+    @Version
+    private Long version;
 }
@@ -0,0 +1,50 @@
+package org.muni.pa165.data.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Car assigned to one of the two slots of a race, kept with every write of the race,
+ * so races of a car are found by a lookup in the index of car ids instead of scanning both car columns of races.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "race_car",
+        uniqueConstraints = @UniqueConstraint(name = "race_car_race_id_slot_key", columnNames = {"raceId", "slot"}),
+        indexes = @Index(name = "race_car_car_id_idx", columnList = "carId"))
+public class RaceCar implements Serializable {
+
+    public static final int SLOT_ONE = 1;
+    public static final int SLOT_TWO = 2;
+
+    @Id
+    // ids are reserved in blocks, so the rows of a bulk create are sent in JDBC batches
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "race_car_seq")
+    @SequenceGenerator(name = "race_car_seq", allocationSize = 50)
+    private Long id;
+
+    @NotNull
+    private Long raceId;
+
+    // a primitive, so the column is generated as not null
+    private int slot;
+
+    @NotNull
+    private Long carId;
+}
@@ -0,0 +1,74 @@
+package org.muni.pa165.data.domain;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.muni.pa165.api.CarView;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Denormalized copy of a race with snapshots of its cars, their drivers and components,
+ * so races with cars can be listed without calling other services.
+ * Ids of the referenced cars, drivers and components are kept to find the copies affected
+ * by a change in another service. Such a copy is marked as stale and still returned with its last snapshot
+ * until the scheduled sync refreshes it, so the copies are eventually consistent.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "race_with_cars")
+public class RaceWithCars implements Serializable {
+
+    @Id
+    private Long raceId;
+
+    private String name;
+
+    @Embedded
+    private Location location;
+
+    private LocalDate date;
+
+    @Nullable
+    private Long car1Id;
+
+    @Nullable
+    private Long car2Id;
+
+    @Nullable
+    @JdbcTypeCode(SqlTypes.JSON)
+    private CarView car1;
+
+    @Nullable
+    @JdbcTypeCode(SqlTypes.JSON)
+    private CarView car2;
+
+    @ElementCollection
+    @CollectionTable(name = "race_with_cars_driver", joinColumns = @JoinColumn(name = "race_id"))
+    @Column(name = "driver_id")
+    private Set<Long> driverIds;
+
+    @ElementCollection
+    @CollectionTable(name = "race_with_cars_component", joinColumns = @JoinColumn(name = "race_id"))
+    @Column(name = "component_id")
+    private Set<Long> componentIds;
+
+    private boolean stale;
+}
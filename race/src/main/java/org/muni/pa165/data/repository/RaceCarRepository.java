@@ -0,0 +1,18 @@
+package org.muni.pa165.data.repository;
+
+import org.muni.pa165.data.domain.RaceCar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface RaceCarRepository extends JpaRepository<RaceCar, Long> {
+
+    @Modifying
+    @Query("DELETE FROM RaceCar rc WHERE rc.raceId IN :raceIds")
+    int deleteByRaceIds(@Param("raceIds") Collection<Long> raceIds);
+}
@@ -1,18 +1,75 @@
 package org.muni.pa165.data.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.muni.pa165.data.domain.Race;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface RaceRepository extends JpaRepository<Race, Long> {
+public interface RaceRepository extends JpaRepository<Race, Long>, JpaSpecificationExecutor<Race> {
 
-    List<Race> findByLocation_CountryOrLocation_CityOrLocation_Street(String country, String city, String street);
-
-    @Query("SELECT r FROM Race r WHERE r.car1Id = :carId OR r.car2Id = :carId")
+    // a lookup in the index of assigned cars, an OR of both car columns of races scans the table
+    @Query("SELECT r FROM Race r WHERE r.id IN (SELECT rc.raceId FROM RaceCar rc WHERE rc.carId = :carId)")
     List<Race> findCarById(@Param("carId") Long carId);
+
+    /**
+     * Writes the race only if its version is still the one stored, in a single statement.
+     *
+     * @param race race with the version it was read in
+     * @return number of updated rows, 0 when the race does not exist or was changed meanwhile
+     */
+    @Modifying
+    @Query("UPDATE Race r SET r.name = :#{#race.name}, r.location.country = :#{#race.location.country}, "
+            + "r.location.city = :#{#race.location.city}, r.location.street = :#{#race.location.street}, "
+            + "r.date = :#{#race.date}, r.car1Id = :#{#race.car1Id}, r.car2Id = :#{#race.car2Id}, "
+            + "r.version = r.version + 1 "
+            + "WHERE r.id = :#{#race.id} AND r.version = :#{#race.version}")
+    int updateIfVersionMatches(@Param("race") Race race);
+
+    /**
+     * Deletes the race with the given id in a single statement.
+     *
+     * @param id id of the race
+     * @return number of deleted rows, 0 when the race does not exist
+     */
+    @Modifying
+    @Query("DELETE FROM Race r WHERE r.id = :id")
+    int removeById(@Param("id") Long id);
+
+    @Query("SELECT r FROM Race r WHERE NOT EXISTS (SELECT c FROM RaceWithCars c WHERE c.raceId = r.id)")
+    List<Race> findAllWithoutCopy();
+
+    Slice<Race> findAllBy(Pageable pageable);
+
+    List<Race> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Race> findByDateBetweenOrderByDateAscIdAsc(LocalDate from, LocalDate to, Limit limit);
+
+    /**
+     * Reads the races between two dates following the given race in the order of date and id.
+     */
+    @Query("SELECT r FROM Race r WHERE r.date >= :afterDate AND r.date <= :to AND r.date >= :from "
+            + "AND (r.date > :afterDate OR r.id > :afterId) ORDER BY r.date ASC, r.id ASC")
+    List<Race> findByDateBetweenAfter(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                      @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId,
+                                      Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Race> streamAllByOrderByIdAsc();
 }
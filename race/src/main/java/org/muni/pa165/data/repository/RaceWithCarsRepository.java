@@ -0,0 +1,38 @@
+package org.muni.pa165.data.repository;
+
+import org.muni.pa165.data.domain.RaceWithCars;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface RaceWithCarsRepository extends JpaRepository<RaceWithCars, Long> {
+
+    List<RaceWithCars> findAllByOrderByRaceIdAsc();
+
+    @Query("SELECT r.raceId FROM RaceWithCars r WHERE r.stale = true")
+    Set<Long> findStaleRaceIds();
+
+    @Query("SELECT r.raceId FROM RaceWithCars r WHERE r.car1Id IN :carIds OR r.car2Id IN :carIds")
+    Set<Long> findRaceIdsByCarIds(@Param("carIds") Collection<Long> carIds);
+
+    @Query("SELECT r.raceId FROM RaceWithCars r JOIN r.driverIds driverId WHERE driverId IN :driverIds")
+    Set<Long> findRaceIdsByDriverIds(@Param("driverIds") Collection<Long> driverIds);
+
+    @Query("SELECT r.raceId FROM RaceWithCars r JOIN r.componentIds componentId WHERE componentId IN :componentIds")
+    Set<Long> findRaceIdsByComponentIds(@Param("componentIds") Collection<Long> componentIds);
+
+    @Modifying
+    @Query("UPDATE RaceWithCars r SET r.stale = true WHERE r.raceId IN :raceIds")
+    int markStale(@Param("raceIds") Collection<Long> raceIds);
+
+    @Modifying
+    @Query("UPDATE RaceWithCars r SET r.stale = true")
+    int markAllStale();
+}
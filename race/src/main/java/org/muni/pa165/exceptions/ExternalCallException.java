@@ -5,4 +5,8 @@ public class ExternalCallException extends RuntimeException {
     public ExternalCallException(String message) {
         super(message);
     }
+
+    public ExternalCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
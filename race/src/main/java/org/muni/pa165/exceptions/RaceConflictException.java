@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class RaceConflictException extends RuntimeException {
+
+    public RaceConflictException(String message) {
+        super(message);
+    }
+}
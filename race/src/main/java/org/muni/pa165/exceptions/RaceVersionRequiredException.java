@@ -0,0 +1,8 @@
+package org.muni.pa165.exceptions;
+
+public class RaceVersionRequiredException extends RuntimeException {
+
+    public RaceVersionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -3,13 +3,17 @@ package org.muni.pa165.facade;
 import org.muni.pa165.api.RaceCreateViewDto;
 import org.muni.pa165.api.RaceView;
 import org.muni.pa165.api.RaceViewDto;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
 import org.muni.pa165.mapper.RaceMapper;
 import org.muni.pa165.service.RaceService;
 import org.muni.pa165.service.RaceServiceImpl;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class RaceFacade {
@@ -26,6 +30,15 @@ public class RaceFacade {
         return raceMapper.toRaceViewDto(raceService.save(raceMapper.fromRaceCreateViewDto(raceCreateViewDto)));
     }
 
+    public List<RaceViewDto> saveAll(List<RaceCreateViewDto> raceCreateViewDtos) {
+        List<Race> races = raceCreateViewDtos.stream()
+                .map(raceMapper::fromRaceCreateViewDto)
+                .toList();
+        return raceService.saveAll(races).stream()
+                .map(raceMapper::toRaceViewDto)
+                .toList();
+    }
+
     public RaceViewDto findById(Long id) {
         return raceMapper.toRaceViewDto(raceService.findById(id));
     }
@@ -36,6 +49,35 @@ public class RaceFacade {
                 .toList();
     }
 
+    /**
+     * Returns a page of races ordered by id. When after is given, the races following the one
+     * with that id are returned instead, unlike an offset this stays fast deep into large tables.
+     */
+    public List<RaceViewDto> findAll(int page, int size, Long after) {
+        List<Race> races = after != null
+                ? raceService.findAllAfter(after, size)
+                : raceService.findPage(page, size);
+        return races.stream()
+                .map(raceMapper::toRaceViewDto)
+                .toList();
+    }
+
+    public List<RaceViewDto> findBetween(LocalDate from, LocalDate to, LocalDate afterDate, Long afterId, int size) {
+        return raceService.findBetween(from, to, afterDate, afterId, size).stream()
+                .map(raceMapper::toRaceViewDto)
+                .toList();
+    }
+
+    public List<RaceViewDto> findBySeason(int year, LocalDate afterDate, Long afterId, int size) {
+        return raceService.findBySeason(year, afterDate, afterId, size).stream()
+                .map(raceMapper::toRaceViewDto)
+                .toList();
+    }
+
+    public void exportAll(Consumer<RaceViewDto> action) {
+        raceService.streamAll(race -> action.accept(raceMapper.toRaceViewDto(race)));
+    }
+
     public void deleteById(Long id) {
         raceService.deleteById(id);
     }
@@ -56,12 +98,16 @@ public class RaceFacade {
         raceService.assignCarTwo(raceId, carId);
     }
 
-    public List<RaceViewDto> findByLocation_CountryOrLocation_CityOrLocation_Street(String country, String city, String street) {
-        return raceService.findByLocation_CountryOrLocation_CityOrLocation_Street(country, city, street).stream()
+    public List<RaceViewDto> findByLocation(String country, String city, String street) {
+        return raceService.findByLocation(country, city, street).stream()
                 .map(raceMapper::toRaceViewDto)
                 .toList();
     }
 
+    public List<String> suggestLocations(LocationField field, String prefix, int limit) {
+        return raceService.suggestLocations(field, prefix, limit);
+    }
+
     public List<RaceViewDto> findByCarId(Long carId) {
         return raceService.findByCarId(carId).stream()
                 .map(raceMapper::toRaceViewDto)
@@ -71,4 +117,8 @@ public class RaceFacade {
     public List<RaceView> findAllWithCars() {
         return raceService.findAllWithCars();
     }
+
+    public CompletableFuture<List<RaceView>> findAllWithCarsAsync() {
+        return raceService.findAllWithCarsAsync();
+    }
 }
@@ -1,6 +1,7 @@
 package org.muni.pa165.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.muni.pa165.api.RaceCreateViewDto;
 import org.muni.pa165.api.RaceViewDto;
 import org.muni.pa165.data.domain.Race;
@@ -10,9 +11,16 @@ public interface RaceMapper {
 
     RaceViewDto toRaceViewDto(Race entity);
 
+    @Mapping(target = "searchCountry", ignore = true)
+    @Mapping(target = "searchCity", ignore = true)
+    @Mapping(target = "searchStreet", ignore = true)
     Race fromRaceViewDto(RaceViewDto dto);
 
     RaceCreateViewDto toRaceCreateViewDto(Race entity);
 
+    @Mapping(target = "searchCountry", ignore = true)
+    @Mapping(target = "searchCity", ignore = true)
+    @Mapping(target = "searchStreet", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Race fromRaceCreateViewDto(RaceCreateViewDto dto);
 }
@@ -11,9 +11,14 @@ import org.muni.pa165.api.RaceCreateViewDto;
 import org.muni.pa165.api.RaceView;
 import org.muni.pa165.api.RaceViewDto;
 import org.muni.pa165.config.AppConfig;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
 import org.muni.pa165.facade.RaceFacade;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,23 +26,32 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/races")
 public class RaceRestController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final RaceFacade raceFacade;
     private final UriBuilderService uriBuilderService;
+    private final NdjsonWriter ndjsonWriter;
 
     @Autowired
-    public RaceRestController(RaceFacade raceFacade, UriBuilderService uriBuilderService) {
+    public RaceRestController(RaceFacade raceFacade, UriBuilderService uriBuilderService,
+                              NdjsonWriter ndjsonWriter) {
         this.raceFacade = raceFacade;
         this.uriBuilderService = uriBuilderService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @PostMapping
@@ -66,6 +80,33 @@ public class RaceRestController {
         return ResponseEntity.created(uriBuilderService.getLocationOfCreatedResource(createdRaceDto)).body(createdRaceDto);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create many races at once",
+            description = "Validates all the races first and stores them in a single transaction, "
+                    + "so either all of them are created or none. Meant for seeding large amounts of data.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_write"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_write"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Races created successfully",
+                            responseCode = "201",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = RaceViewDto.class)))),
+                    @ApiResponse(description = "Invalid data of any of the races",
+                            responseCode = "400"),
+                    @ApiResponse(responseCode = "500",
+                            description = "Called external service failed, see message for more details"),
+                    @ApiResponse(responseCode = "502",
+                            description = "Called external service wrong response, see message for more details"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<RaceViewDto>> saveRaces(@RequestBody List<RaceCreateViewDto> raceCreateViewDtos) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(raceFacade.saveAll(raceCreateViewDtos));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get a single race by ID",
             security = {
@@ -78,6 +119,8 @@ public class RaceRestController {
                     @ApiResponse(description = "Successful retrieval",
                             responseCode = "200",
                             content = @Content(schema = @Schema(implementation = RaceViewDto.class))),
+                    @ApiResponse(description = "Not modified - If-None-Match contains the current ETag",
+                            responseCode = "304"),
                     @ApiResponse(description = "Race not found",
                             responseCode = "404"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
@@ -85,11 +128,15 @@ public class RaceRestController {
             })
     public ResponseEntity<RaceViewDto> findById(@PathVariable Long id) {
         RaceViewDto race = raceFacade.findById(id);
-        return ResponseEntity.ok(race);
+        return ResponseEntity.ok().eTag(String.valueOf(race.getVersion())).body(race);
     }
 
     @GetMapping
     @Operation(summary = "Find all races",
+            description = "Returns all races when none of 'page', 'size' and 'after' is given. "
+                    + "Otherwise returns one page of races ordered by ID, 'size' of them, 100 by default and at most 1000. "
+                    + "Pass the ID of the last returned race as 'after' to get the next page, "
+                    + "which stays fast on large tables, or pass the page number as 'page'.",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -103,11 +150,96 @@ public class RaceRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<List<RaceViewDto>> findAllRaces() {
-        List<RaceViewDto> races = raceFacade.findAll();
+    public ResponseEntity<List<RaceViewDto>> findAllRaces(
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "after", required = false) Long after) {
+        // clients written before paging pass none of the parameters and expect the whole list
+        List<RaceViewDto> races = page == null && size == null && after == null
+                ? raceFacade.findAll()
+                : raceFacade.findAll(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size, after);
         return ResponseEntity.ok(races);
     }
 
+    @GetMapping(params = {"from", "to"})
+    @Operation(summary = "Find races between two dates",
+            description = "Returns one page of races between 'from' and 'to' inclusive ordered by date and ID, "
+                    + "at most 1000 per page. Pass the date and ID of the last returned race as 'afterDate' "
+                    + "and 'after' to get the next page.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = RaceViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<RaceViewDto>> findRacesBetween(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            @RequestParam(value = "afterDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(value = "after", required = false) Long after) {
+        return ResponseEntity.ok(raceFacade.findBetween(from, to, afterDate, after, size));
+    }
+
+    @GetMapping("/season/{year}")
+    @Operation(summary = "Find races of a season",
+            description = "Returns one page of races held in the given year ordered by date and ID, "
+                    + "at most 1000 per page. Pass the date and ID of the last returned race as 'afterDate' "
+                    + "and 'after' to get the next page.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = RaceViewDto.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<RaceViewDto>> findRacesBySeason(
+            @PathVariable int year,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            @RequestParam(value = "afterDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+            @RequestParam(value = "after", required = false) Long after) {
+        return ResponseEntity.ok(raceFacade.findBySeason(year, afterDate, after, size));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all races",
+            description = "Streams all races ordered by ID as newline delimited JSON, one race per line. "
+                    + "Races are written while they are read from the database, so the export is not split into pages.",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Races streamed successfully",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = RaceViewDto.class))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<StreamingResponseBody> exportRaces() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(ndjsonWriter.write(raceFacade::exportAll));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a race by ID",
             security = {
@@ -161,6 +293,10 @@ public class RaceRestController {
                             responseCode = "200"),
                     @ApiResponse(description = "Race not found",
                             responseCode = "404"),
+                    @ApiResponse(description = "Race was changed by another update, the version sent is no longer current",
+                            responseCode = "409"),
+                    @ApiResponse(description = "Race version sent neither in the body nor in the If-Match header",
+                            responseCode = "428"),
                     @ApiResponse(description = "Invalid race data",
                             responseCode = "400"),
                     @ApiResponse(responseCode = "500",
@@ -170,7 +306,12 @@ public class RaceRestController {
                     @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
-    public ResponseEntity<Void> updateRace(@RequestBody Race race) {
+    public ResponseEntity<Void> updateRace(@RequestBody Race race,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = versionOf(ifMatch);
+        if (version != null) {
+            race.setVersion(version);
+        }
         raceFacade.update(race);
         return ResponseEntity.ok().build();
     }
@@ -231,6 +372,8 @@ public class RaceRestController {
 
     @GetMapping("/location")
     @Operation(summary = "Get races by location",
+            description = "Returns races whose location contains every given text ignoring case, "
+                    + "fields without a text are not filtered. No race is returned when no field is given",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -245,10 +388,33 @@ public class RaceRestController {
                     @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
             })
     public ResponseEntity<List<RaceViewDto>> findByLocation(@RequestParam @Nullable String country, @RequestParam @Nullable String city, @RequestParam @Nullable String street) {
-        List<RaceViewDto> races = raceFacade.findByLocation_CountryOrLocation_CityOrLocation_Street(country, city, street);
+        List<RaceViewDto> races = raceFacade.findByLocation(country, city, street);
         return ResponseEntity.ok(races);
     }
 
+    @GetMapping("/location/suggestions")
+    @Operation(summary = "Suggest location values for autocomplete",
+            description = "Returns countries, cities or streets of races starting with the given prefix ignoring case, "
+                    + "at most 100 values are returned",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = String.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions")
+            })
+    public ResponseEntity<List<String>> suggestLocations(@RequestParam LocationField field,
+                                                         @RequestParam String prefix,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(raceFacade.suggestLocations(field, prefix, limit));
+    }
+
     @GetMapping("/car/{carId}")
     @Operation(summary = "Get races by car ID",
             security = {
@@ -271,6 +437,9 @@ public class RaceRestController {
 
     @GetMapping("/withCars")
     @Operation(summary = "Get all races with main drivers and cars",
+            description = "Races are read from a local copy with snapshots of their cars, drivers and components, "
+                    + "no other service is called. The copies are eventually consistent: changes in other services "
+                    + "are picked up by a scheduled sync, until then the last snapshot is returned",
             security = {
                     @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
                             scopes = {"SCOPE_test_read"}),
@@ -288,4 +457,45 @@ public class RaceRestController {
         List<RaceView> races = raceFacade.findAllWithCars();
         return ResponseEntity.ok(races);
     }
+
+    @GetMapping("/withCars/async")
+    @Operation(summary = "Get all races with main drivers and cars without blocking a request thread",
+            description = "Same result as /races/withCars, but cars are always read from other services instead of "
+                    + "the local copy. Other services are called with a non-blocking client "
+                    + "and the request thread is released while waiting for them",
+            security = {
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_BEARER,
+                            scopes = {"SCOPE_test_read"}),
+                    @SecurityRequirement(name = AppConfig.SECURITY_SCHEME_OAUTH2,
+                            scopes = {"SCOPE_test_read"}),
+            },
+            responses = {
+                    @ApiResponse(description = "Successful retrieval",
+                            responseCode = "200",
+                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = RaceView.class)))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Not authenticated"),
+                    @ApiResponse(responseCode = "403", description = "Forbidden - Insufficient permissions"),
+                    @ApiResponse(responseCode = "503", description = "Other services did not respond in time")
+            })
+    public CompletableFuture<ResponseEntity<List<RaceView>>> findAllWithCarsAsync() {
+        return raceFacade.findAllWithCarsAsync().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * @return version carried by the ETag in an If-Match header, or null when there is no such ETag
+     */
+    private static Long versionOf(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        try {
+            return Long.valueOf(eTag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -3,8 +3,10 @@ package org.muni.pa165.rest.exceptionhandling;
 import jakarta.servlet.http.HttpServletRequest;
 import org.muni.pa165.exceptions.DataStorageException;
 import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.exceptions.RaceConflictException;
 import org.muni.pa165.exceptions.RaceNotFoundException;
 import org.muni.pa165.exceptions.RaceValidationException;
+import org.muni.pa165.exceptions.RaceVersionRequiredException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -82,6 +84,26 @@ public class CustomRestGlobalExceptionHandling {
         return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
     }
 
+    @ExceptionHandler({RaceVersionRequiredException.class})
+    public ResponseEntity<ApiError> handleVersionRequired(final RaceVersionRequiredException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.PRECONDITION_REQUIRED,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    @ExceptionHandler({RaceConflictException.class})
+    public ResponseEntity<ApiError> handleConflict(final RaceConflictException ex, final HttpServletRequest request) {
+        final ApiError apiError = new ApiError(
+                LocalDateTime.now(Clock.systemUTC()),
+                HttpStatus.CONFLICT,
+                ex.getLocalizedMessage(),
+                URL_PATH_HELPER.getRequestUri(request));
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
     /**
      * Handle all the exceptions not matched by above-mentioned definitions.
      *
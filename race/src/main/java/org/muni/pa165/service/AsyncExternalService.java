@@ -0,0 +1,24 @@
+package org.muni.pa165.service;
+
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.Driver;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of the bulk lookups of {@link ExternalService}.
+ * Calls return immediately and the futures complete once the other service responds,
+ * no thread is held while waiting. Failed calls complete the futures with
+ * {@link org.muni.pa165.exceptions.ExternalCallException}.
+ */
+public interface AsyncExternalService {
+
+    CompletableFuture<List<Car>> getCars(Collection<Long> ids);
+
+    CompletableFuture<List<Driver>> getDrivers(Collection<Long> ids);
+
+    CompletableFuture<List<Component>> getComponents(Collection<Long> ids);
+}
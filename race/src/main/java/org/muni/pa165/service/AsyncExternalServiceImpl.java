@@ -0,0 +1,102 @@
+package org.muni.pa165.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.Driver;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+@Service
+public class AsyncExternalServiceImpl implements AsyncExternalService {
+
+    private static final String CARS_URL = "http://car-service:8084/cars?ids=";
+    private static final String DRIVERS_URL = "http://driver-service:8082/drivers?ids=";
+    private static final String COMPONENTS_URL = "http://component-service:8083/components?ids=";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
+
+    public AsyncExternalServiceImpl(HttpClient httpClient, ObjectMapper objectMapper,
+                                    @Value("${race.http-client.read-timeout:5s}") Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public CompletableFuture<List<Car>> getCars(Collection<Long> ids) {
+        return getAll(CARS_URL, ids, Car[].class);
+    }
+
+    @Override
+    public CompletableFuture<List<Driver>> getDrivers(Collection<Long> ids) {
+        return getAll(DRIVERS_URL, ids, Driver[].class);
+    }
+
+    @Override
+    public CompletableFuture<List<Component>> getComponents(Collection<Long> ids) {
+        return getAll(COMPONENTS_URL, ids, Component[].class);
+    }
+
+    private <T> CompletableFuture<List<T>> getAll(String url, Collection<Long> ids, Class<T[]> type) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        String joinedIds = ids.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + joinedIds))
+                .timeout(readTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET();
+        // the token is read on the calling thread, completion stages run without the security context,
+        // opaque tokens are authenticated as BearerTokenAuthentication, JWTs as JwtAuthenticationToken
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof AbstractOAuth2TokenAuthenticationToken<?> token) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token.getToken().getTokenValue());
+        }
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        throw new ExternalCallException("Error while calling external service: " + cause);
+                    }
+                    if (response.statusCode() / 100 != 2) {
+                        throw new ExternalCallException("External service " + url
+                                + " responded with status " + response.statusCode());
+                    }
+                    return readList(response.body(), type);
+                });
+    }
+
+    private <T> List<T> readList(byte[] body, Class<T[]> type) {
+        try {
+            T[] entities = objectMapper.readValue(body, type);
+            return entities == null ? List.of() : Arrays.asList(entities);
+        } catch (IOException e) {
+            throw new ExternalCallException("Cannot read response of external service: " + e);
+        }
+    }
+}
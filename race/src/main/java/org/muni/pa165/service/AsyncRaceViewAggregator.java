@@ -0,0 +1,103 @@
+package org.muni.pa165.service;
+
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.Driver;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link RaceViewAggregator}.
+ * The same two round trips are composed from {@link AsyncExternalService} futures,
+ * so no thread waits for the other services while the aggregation is in progress.
+ */
+@Service
+public class AsyncRaceViewAggregator {
+
+    private final AsyncExternalService asyncExternalService;
+    private final int batchSize;
+    private final Duration timeout;
+
+    public AsyncRaceViewAggregator(AsyncExternalService asyncExternalService,
+                                   @Value("${race.aggregation.batch-size:100}") int batchSize,
+                                   @Value("${race.aggregation.timeout:10s}") Duration timeout) {
+        this.asyncExternalService = asyncExternalService;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Resolves cars of the given races without blocking the calling thread.
+     *
+     * @param races races to aggregate
+     * @return future of race views in the same order as the races, completed with
+     * {@link ExternalCallException} when the aggregation fails or does not finish within the configured timeout
+     */
+    public CompletableFuture<List<RaceView>> aggregate(List<Race> races) {
+        // drivers and components are requested from the thread completing the cars lookup,
+        // it needs the security context of this request to forward the access token
+        Executor withSecurityContext = new DelegatingSecurityContextExecutor(Runnable::run,
+                SecurityContextHolder.getContext());
+
+        return fetch(RaceViewAggregator.carIds(races), asyncExternalService::getCars, Car::getId)
+                .thenComposeAsync(cars -> {
+                    CompletableFuture<Map<Long, Driver>> drivers = fetch(RaceViewAggregator.driverIds(cars.values()),
+                            asyncExternalService::getDrivers, Driver::getId);
+                    CompletableFuture<Map<Long, Component>> components = fetch(
+                            RaceViewAggregator.componentIds(cars.values()),
+                            asyncExternalService::getComponents, Component::getId);
+                    return drivers.thenCombine(components, (driversById, componentsById) ->
+                            RaceViewAggregator.toRaceViews(races, cars, driversById, componentsById));
+                }, withSecurityContext)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((views, error) -> {
+                    if (error == null) {
+                        return views;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        throw new ExternalCallException("Aggregation of races with cars did not finish within " + timeout);
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new ExternalCallException("Error while calling external service: " + cause);
+                });
+    }
+
+    private <T> CompletableFuture<Map<Long, T>> fetch(Set<Long> ids,
+                                                      Function<Collection<Long>, CompletableFuture<List<T>>> lookup,
+                                                      Function<T, Long> idOf) {
+        List<Long> remaining = new ArrayList<>(ids);
+        List<CompletableFuture<List<T>>> batches = new ArrayList<>();
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            batches.add(lookup.apply(remaining.subList(from, Math.min(from + batchSize, remaining.size()))));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<Long, T> result = new HashMap<>();
+                    batches.forEach(batch -> batch.join().forEach(entity -> result.put(idOf.apply(entity), entity)));
+                    return result;
+                });
+    }
+}
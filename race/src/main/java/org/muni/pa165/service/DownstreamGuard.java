@@ -0,0 +1,104 @@
+package org.muni.pa165.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Guards calls to other services with a circuit breaker and a bulkhead per service.
+ * The bulkhead bounds the number of concurrent calls, so a slow service cannot hold all request threads.
+ * Every attempt of a read takes its own slot, retries and hedges included.
+ * The circuit breaker opens when too many calls fail or are slow and rejects further calls immediately
+ * until the service had some time to recover. Only unreachable services, timeouts and server errors
+ * count as failures, responses like 404 are regular answers.
+ * Rejected calls are counted in the {@value #REJECTIONS_METRIC_NAME} metric tagged by service and reason,
+ * state of the circuit breakers and bulkheads is exported under the resilience4j metrics.
+ */
+@Service
+public class DownstreamGuard {
+
+    public static final String REJECTIONS_METRIC_NAME = "race.external.rejections";
+
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+    private final MeterRegistry meterRegistry;
+
+    public DownstreamGuard(MeterRegistry meterRegistry,
+                           @Value("${race.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+                           @Value("${race.resilience.slow-call-duration:3s}") Duration slowCallDuration,
+                           @Value("${race.resilience.sliding-window-size:20}") int slidingWindowSize,
+                           @Value("${race.resilience.wait-in-open-state:10s}") Duration waitInOpenState,
+                           @Value("${race.resilience.max-concurrent-calls:128}") int maxConcurrentCalls,
+                           @Value("${race.resilience.max-wait:100ms}") Duration maxWait) {
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(slidingWindowSize)
+                .waitDurationInOpenState(waitInOpenState)
+                .recordException(DownstreamGuard::isFailure)
+                .build());
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    /**
+     * Calls the given service unless its circuit breaker is open or its bulkhead is full.
+     *
+     * @param service name of the called service, e.g. car
+     * @param call    call of the service
+     * @return result of the call
+     * @throws ExternalCallException when the call is rejected or the service cannot be reached
+     */
+    public <T> T call(String service, Supplier<T> call) {
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(service);
+        Bulkhead bulkhead = bulkheads.bulkhead(service);
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+        } catch (CallNotPermittedException e) {
+            reject(service, "circuit-open");
+            throw new ExternalCallException("Calls to " + service + " service are suspended after repeated failures");
+        } catch (BulkheadFullException e) {
+            reject(service, "bulkhead-full");
+            throw new ExternalCallException("Too many concurrent calls to " + service + " service");
+        } catch (ResourceAccessException e) {
+            throw new ExternalCallException("Error while calling external service: " + e, e);
+        }
+    }
+
+    CircuitBreaker.State getState(String service) {
+        return circuitBreakers.circuitBreaker(service).getState();
+    }
+
+    private void reject(String service, String reason) {
+        meterRegistry.counter(REJECTIONS_METRIC_NAME, "service", service, "reason", reason).increment();
+    }
+
+    private static boolean isFailure(Throwable e) {
+        return e instanceof ResourceAccessException
+                || e instanceof HttpServerErrorException
+                || e instanceof ExternalCallException;
+    }
+}
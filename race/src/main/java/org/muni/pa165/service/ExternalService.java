@@ -1,17 +1,39 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.api.Car;
+import org.muni.pa165.api.ChangeFeed;
 import org.muni.pa165.api.Component;
 import org.muni.pa165.api.Driver;
 import org.springframework.http.ResponseEntity;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 public interface ExternalService {
 
     boolean carExists(Long id);
 
+    /**
+     * @return ids of the given cars which do not exist, checked by a single bulk read
+     */
+    Set<Long> findMissingCars(Collection<Long> ids);
+
     ResponseEntity<Car> getCar(Long id);
 
     ResponseEntity<Driver> getDriver(Long id);
 
     ResponseEntity<Component> getComponent(Long id);
+
+    List<Car> getCars(Collection<Long> ids);
+
+    List<Driver> getDrivers(Collection<Long> ids);
+
+    List<Component> getComponents(Collection<Long> ids);
+
+    ChangeFeed getCarChanges(Long after);
+
+    ChangeFeed getDriverChanges(Long after);
+
+    ChangeFeed getComponentChanges(Long after);
 }
@@ -1,61 +1,203 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.api.Car;
+import org.muni.pa165.api.ChangeFeed;
 import org.muni.pa165.api.Component;
+import org.muni.pa165.api.DeletionFeed;
 import org.muni.pa165.api.Driver;
 import org.muni.pa165.exceptions.ExternalCallException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 @Service
 public class ExternalServiceImpl implements ExternalService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ExternalServiceImpl.class);
+
     private static final String CAR_URL = "http://car-service:8084/cars/";
     private static final String DRIVER_URL = "http://driver-service:8082/drivers/";
     private static final String COMPONENT_URL = "http://component-service:8083/components/";
+    private static final String CARS_URL = "http://car-service:8084/cars?ids={ids}";
+    private static final String DRIVERS_URL = "http://driver-service:8082/drivers?ids={ids}";
+    private static final String COMPONENTS_URL = "http://component-service:8083/components?ids={ids}";
+    private static final String CAR_DELETIONS_URL = "http://car-service:8084/cars/deletions";
+    private static final String CAR_CHANGES_URL = "http://car-service:8084/cars/changes";
+    private static final String DRIVER_CHANGES_URL = "http://driver-service:8082/drivers/changes";
+    private static final String COMPONENT_CHANGES_URL = "http://component-service:8083/components/changes";
+    private static final String CAR_SERVICE = "car";
+    private static final String DRIVER_SERVICE = "driver";
+    private static final String COMPONENT_SERVICE = "component";
+
     private final RestTemplate restTemplate;
+    private final DownstreamGuard downstreamGuard;
+    private final HedgedReads hedgedReads;
+    private final ExistenceCache existingCars;
+    private final ValidatorCache<Car> cars;
+    private final ValidatorCache<Driver> drivers;
+    private final ValidatorCache<Component> components;
+    private final int batchSize;
 
-    public ExternalServiceImpl(RestTemplate restTemplate) {
+    public ExternalServiceImpl(RestTemplate restTemplate,
+                               DownstreamGuard downstreamGuard,
+                               HedgedReads hedgedReads,
+                               @Value("${race.existence-cache.ttl:10m}") Duration cacheTtl,
+                               @Value("${race.existence-cache.max-size:10000}") long cacheMaxSize,
+                               @Value("${race.validator-cache.max-size:10000}") long validatorCacheMaxSize,
+                               @Value("${race.aggregation.batch-size:100}") int batchSize) {
         this.restTemplate = restTemplate;
+        this.downstreamGuard = downstreamGuard;
+        this.hedgedReads = hedgedReads;
+        this.existingCars = new ExistenceCache(cacheTtl, cacheMaxSize);
+        this.cars = new ValidatorCache<>(validatorCacheMaxSize);
+        this.drivers = new ValidatorCache<>(validatorCacheMaxSize);
+        this.components = new ValidatorCache<>(validatorCacheMaxSize);
+        this.batchSize = batchSize;
     }
 
     @Override
     public boolean carExists(Long id) {
+        if (existingCars.contains(id)) {
+            return true;
+        }
         try {
             ResponseEntity<Car> carResponseEntity = getCar(id);
-            return carResponseEntity.getStatusCode().is2xxSuccessful();
-        } catch (ResourceAccessException e) {
-            throw new ExternalCallException("Error while calling external service: " + e);
+            if (carResponseEntity.getStatusCode().is2xxSuccessful()) {
+                existingCars.add(id);
+                return true;
+            }
+            return false;
+        } catch (ExternalCallException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
     }
 
     @Override
-    public ResponseEntity<Car> getCar(Long id) {
-        try {
-            return restTemplate.getForEntity(
-                    CAR_URL + id, Car.class);
-        } catch (ResourceAccessException e) {
-            throw new ExternalCallException("Error while calling external service: " + e);
+    public Set<Long> findMissingCars(Collection<Long> ids) {
+        List<Long> unknownIds = ids.stream()
+                .distinct()
+                .filter(id -> !existingCars.contains(id))
+                .toList();
+        Set<Long> missing = new LinkedHashSet<>(unknownIds);
+        for (Car car : getCars(unknownIds)) {
+            existingCars.add(car.getId());
+            missing.remove(car.getId());
         }
+        return missing;
+    }
+
+    @Override
+    public ResponseEntity<Car> getCar(Long id) {
+        return read(CAR_SERVICE, () -> cars.get(id, headers -> restTemplate.exchange(
+                CAR_URL + id, HttpMethod.GET, new HttpEntity<>(headers), Car.class)));
     }
 
     @Override
     public ResponseEntity<Driver> getDriver(Long id) {
-        try {
-            return restTemplate.getForEntity(
-                    DRIVER_URL + id, Driver.class);
-        } catch (ResourceAccessException e) {
-            throw new ExternalCallException("Error while calling external service: " + e);
-        }
+        return read(DRIVER_SERVICE, () -> drivers.get(id, headers -> restTemplate.exchange(
+                DRIVER_URL + id, HttpMethod.GET, new HttpEntity<>(headers), Driver.class)));
     }
 
     @Override
     public ResponseEntity<Component> getComponent(Long id) {
-        return restTemplate.getForEntity(
-                COMPONENT_URL + id, Component.class);
+        return read(COMPONENT_SERVICE, () -> components.get(id, headers -> restTemplate.exchange(
+                COMPONENT_URL + id, HttpMethod.GET, new HttpEntity<>(headers), Component.class)));
+    }
+
+    @Override
+    public List<Car> getCars(Collection<Long> ids) {
+        return getAll(CAR_SERVICE, CARS_URL, ids, Car[].class);
+    }
+
+    @Override
+    public List<Driver> getDrivers(Collection<Long> ids) {
+        return getAll(DRIVER_SERVICE, DRIVERS_URL, ids, Driver[].class);
+    }
+
+    @Override
+    public List<Component> getComponents(Collection<Long> ids) {
+        return getAll(COMPONENT_SERVICE, COMPONENTS_URL, ids, Component[].class);
+    }
+
+    @Override
+    public ChangeFeed getCarChanges(Long after) {
+        return getChanges(CAR_SERVICE, CAR_CHANGES_URL, after);
+    }
+
+    @Override
+    public ChangeFeed getDriverChanges(Long after) {
+        return getChanges(DRIVER_SERVICE, DRIVER_CHANGES_URL, after);
+    }
+
+    @Override
+    public ChangeFeed getComponentChanges(Long after) {
+        return getChanges(COMPONENT_SERVICE, COMPONENT_CHANGES_URL, after);
+    }
+
+    private <T> List<T> getAll(String service, String url, Collection<Long> ids, Class<T[]> type) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> idList = List.copyOf(ids);
+        List<T> found = new ArrayList<>();
+        // ids are sent in the query string, batches keep it below the request header limit of the called service
+        for (int from = 0; from < idList.size(); from += batchSize) {
+            String joinedIds = idList.subList(from, Math.min(from + batchSize, idList.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            T[] body = read(service, () -> restTemplate.getForObject(url, type, joinedIds));
+            if (body != null) {
+                found.addAll(Arrays.asList(body));
+            }
+        }
+        return found;
+    }
+
+    private ChangeFeed getChanges(String service, String url, Long after) {
+        return downstreamGuard.call(service, () -> after == null
+                ? restTemplate.getForObject(url, ChangeFeed.class)
+                : restTemplate.getForObject(url + "?after={after}", ChangeFeed.class, after));
+    }
+
+    private <T> T read(String service, Supplier<T> read) {
+        // every attempt takes its own slot of the bulkhead, so hedges and retries count against it
+        return hedgedReads.get(service, () -> downstreamGuard.call(service, read));
+    }
+
+    /**
+     * Drops cars deleted in the car service from the existence cache.
+     */
+    @Scheduled(fixedDelayString = "${race.existence-cache.sync-interval:5000}")
+    public void syncDeletions() {
+        Long lastSequence = existingCars.getLastSequence();
+        try {
+            DeletionFeed feed = lastSequence == null
+                    ? restTemplate.getForObject(CAR_DELETIONS_URL, DeletionFeed.class)
+                    : restTemplate.getForObject(CAR_DELETIONS_URL + "?after={after}", DeletionFeed.class, lastSequence);
+            if (feed != null) {
+                existingCars.apply(feed);
+            }
+        } catch (RestClientException e) {
+            logger.warn("Cannot read deletion feed {}: {}", CAR_DELETIONS_URL, e.getMessage());
+        }
     }
 }
@@ -0,0 +1,202 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Cuts tail latency of idempotent reads from other services.
+ * A read that fails on a connection problem or a server error is retried after a random backoff
+ * that grows with every attempt. When hedging is enabled and a read does not finish within
+ * the 95th percentile of recent reads from the same service, a duplicate read is sent and whichever
+ * answers first is used. Retries are counted in {@value #RETRIES_METRIC_NAME}, hedges in
+ * {@value #HEDGES_METRIC_NAME} tagged by the read that won.
+ * Hedging is off by default. The executor is bounded, when it has no free thread a read runs on the calling thread
+ * and a hedge is not sent, so hedging never adds more concurrent reads than the executor allows.
+ */
+@Service
+public class HedgedReads {
+
+    public static final String LATENCY_METRIC_NAME = "race.external.latency";
+    public static final String RETRIES_METRIC_NAME = "race.external.retries";
+    public static final String HEDGES_METRIC_NAME = "race.external.hedges";
+
+    /**
+     * Reads needed before the percentile of a service is trusted over the configured initial delay.
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    private final MeterRegistry meterRegistry;
+    private final Executor executor;
+    private final boolean hedgingEnabled;
+    private final Duration initialHedgeDelay;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    public HedgedReads(MeterRegistry meterRegistry,
+                       @Qualifier("hedgingExecutor") Executor executor,
+                       @Value("${race.hedging.enabled:false}") boolean hedgingEnabled,
+                       @Value("${race.hedging.initial-delay:100ms}") Duration initialHedgeDelay,
+                       @Value("${race.retry.max-attempts:3}") int maxAttempts,
+                       @Value("${race.retry.backoff:50ms}") Duration backoff) {
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.hedgingEnabled = hedgingEnabled;
+        this.initialHedgeDelay = initialHedgeDelay;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Reads from the given service, retrying and hedging the read as configured.
+     * The read must be idempotent, it may be sent several times.
+     *
+     * @param service name of the called service, e.g. car
+     * @param read    idempotent read from the service
+     * @return result of the first successful read
+     */
+    public <T> T get(String service, Supplier<T> read) {
+        Timer latency = latency(service);
+        if (!hedgingEnabled) {
+            return withRetries(service, latency, read);
+        }
+
+        CompletableFuture<T> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(() -> withRetries(service, latency, read), executor);
+        } catch (RejectedExecutionException e) {
+            return withRetries(service, latency, read);
+        }
+        try {
+            return primary.get(hedgeDelay(latency).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            CompletableFuture<T> hedge;
+            try {
+                hedge = CompletableFuture.supplyAsync(() -> withRetries(service, latency, read), executor);
+            } catch (RejectedExecutionException rejected) {
+                return join(primary);
+            }
+            return join(firstSuccessful(service, primary, hedge));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalCallException("Call of " + service + " service was interrupted");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private <T> T withRetries(String service, Timer latency, Supplier<T> read) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                T result = read.get();
+                latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                meterRegistry.counter(RETRIES_METRIC_NAME, "service", service).increment();
+                long maxBackoff = backoff.toMillis() << (attempt - 1);
+                // a zero backoff retries at once
+                if (maxBackoff > 0) {
+                    sleep(service, ThreadLocalRandom.current().nextLong(maxBackoff) + 1);
+                }
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(String service, CompletableFuture<T> primary,
+                                                     CompletableFuture<T> hedge) {
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicBoolean won = new AtomicBoolean();
+        AtomicInteger pending = new AtomicInteger(2);
+        primary.whenComplete((result, error) -> complete(first, won, pending, result, error, service, "primary"));
+        hedge.whenComplete((result, error) -> complete(first, won, pending, result, error, service, "hedge"));
+        return first;
+    }
+
+    private <T> void complete(CompletableFuture<T> first, AtomicBoolean won, AtomicInteger pending, T result,
+                              Throwable error, String service, String winner) {
+        if (error == null) {
+            if (won.compareAndSet(false, true)) {
+                // counted before completing, so the winner is known once the caller gets the result
+                meterRegistry.counter(HEDGES_METRIC_NAME, "service", service, "winner", winner).increment();
+                first.complete(result);
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private Duration hedgeDelay(Timer latency) {
+        if (latency.count() < MIN_SAMPLES) {
+            return initialHedgeDelay;
+        }
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return Duration.ofNanos((long) percentile.value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return initialHedgeDelay;
+    }
+
+    private Timer latency(String service) {
+        return Timer.builder(LATENCY_METRIC_NAME)
+                .tag("service", service)
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+    }
+
+    private static void sleep(String service, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalCallException("Call of " + service + " service was interrupted");
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new ExternalCallException("Error while calling external service: " + cause);
+    }
+
+    private static boolean isRetryable(RuntimeException e) {
+        // the downstream guard reports unreachable services as ExternalCallException, its rejections have no cause
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException
+                || e instanceof ExternalCallException && e.getCause() instanceof ResourceAccessException;
+    }
+}
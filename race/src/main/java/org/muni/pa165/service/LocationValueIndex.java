@@ -0,0 +1,134 @@
+package org.muni.pa165.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the distinct values of one location field, keyed by their normalized form.
+ * Values starting with a prefix are read from a sorted map, values containing a text are found through
+ * an index of the trigrams of every value, so a lookup reads a few map entries instead of scanning all values.
+ * Every value counts the races it is written for and is dropped once no race has it.
+ * Lookups never block, writes are serialized.
+ */
+public class LocationValueIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    // normalized value -> value as first written
+    private final ConcurrentSkipListMap<String, String> values = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> valuesByGram = new ConcurrentHashMap<>();
+    // normalized value -> number of races with the value, only read and written by writes
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    /**
+     * Form in which values are indexed and compared, the same as computed by the database for the search columns,
+     * so only spaces are trimmed like trim in SQL does, other whitespace is part of the value.
+     */
+    public static String normalize(String value) {
+        return trimSpaces(value).toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void add(String value) {
+        if (value == null || normalize(value).isEmpty()) {
+            return;
+        }
+        String normalized = normalize(value);
+        if (counts.merge(normalized, 1, Integer::sum) == 1) {
+            values.put(normalized, trimSpaces(value));
+            for (String gram : grams(normalized)) {
+                valuesByGram.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(normalized);
+            }
+        }
+    }
+
+    /**
+     * Removes the value of one race, the value is dropped when no other race has it.
+     */
+    public synchronized void remove(String value) {
+        if (value == null || normalize(value).isEmpty()) {
+            return;
+        }
+        String normalized = normalize(value);
+        Integer count = counts.get(normalized);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            counts.put(normalized, count - 1);
+            return;
+        }
+        counts.remove(normalized);
+        values.remove(normalized);
+        for (String gram : grams(normalized)) {
+            Set<String> withGram = valuesByGram.get(gram);
+            withGram.remove(normalized);
+            if (withGram.isEmpty()) {
+                valuesByGram.remove(gram);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        counts.clear();
+        values.clear();
+        valuesByGram.clear();
+    }
+
+    /**
+     * @return values starting with the given prefix ignoring case, ordered by their normalized form
+     */
+    public List<String> startingWith(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        return values.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * @return normalized values containing the given text ignoring case
+     */
+    public Set<String> containing(String text) {
+        String normalized = normalize(text);
+        Collection<String> candidates = values.keySet();
+        if (normalized.length() >= GRAM_LENGTH) {
+            // every value containing the text contains all its trigrams, the rarest one bounds the candidates
+            for (String gram : grams(normalized)) {
+                Set<String> withGram = valuesByGram.getOrDefault(gram, Set.of());
+                if (withGram.size() < candidates.size()) {
+                    candidates = withGram;
+                }
+            }
+        }
+        return candidates.stream()
+                .filter(value -> value.contains(normalized))
+                .collect(Collectors.toSet());
+    }
+
+    private static String trimSpaces(String value) {
+        int from = 0;
+        int to = value.length();
+        while (from < to && value.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) == ' ') {
+            to--;
+        }
+        return value.substring(from, to);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,134 @@
+package org.muni.pa165.service;
+
+import jakarta.annotation.PostConstruct;
+import org.muni.pa165.data.domain.Location;
+import org.muni.pa165.data.domain.LocationField;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.repository.RaceRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Distinct countries, cities and streets of races kept in memory for location search and autocomplete.
+ * A location filter is resolved here to the normalized values it matches, races are then read from the database
+ * by a lookup of those values in the indexed search columns.
+ * The location of every race is loaded at startup and writes are applied once their transaction commits,
+ * so values of rolled back writes are never suggested. A value is dropped once no race has it anymore.
+ */
+@Service
+public class RaceLocationIndex {
+
+    private final RaceRepository raceRepository;
+    private final Map<LocationField, LocationValueIndex> indexes = new EnumMap<>(LocationField.class);
+    // race id -> location the values of the race were indexed for, guarded by this
+    private final Map<Long, Location> locations = new HashMap<>();
+
+    public RaceLocationIndex(RaceRepository raceRepository) {
+        this.raceRepository = raceRepository;
+        for (LocationField field : LocationField.values()) {
+            indexes.put(field, new LocationValueIndex());
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        putLocations(locations(raceRepository.findAll()));
+    }
+
+    /**
+     * Adds the locations of the given races, or replaces them when the races are already indexed.
+     */
+    public void put(Collection<Race> races) {
+        Map<Long, Location> written = locations(races);
+        afterCommit(() -> putLocations(written));
+    }
+
+    public void remove(Long raceId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                removeLocation(raceId);
+            }
+        });
+    }
+
+    public void clear() {
+        afterCommit(() -> {
+            synchronized (this) {
+                locations.clear();
+                indexes.values().forEach(LocationValueIndex::clear);
+            }
+        });
+    }
+
+    /**
+     * @return normalized values of the field containing the given text ignoring case
+     */
+    public Set<String> matching(LocationField field, String text) {
+        return indexes.get(field).containing(text);
+    }
+
+    /**
+     * @return values of the field starting with the given prefix ignoring case
+     */
+    public List<String> suggest(LocationField field, String prefix, int limit) {
+        return indexes.get(field).startingWith(prefix, limit);
+    }
+
+    private synchronized void putLocations(Map<Long, Location> written) {
+        for (Map.Entry<Long, Location> entry : written.entrySet()) {
+            removeLocation(entry.getKey());
+            Location location = entry.getValue();
+            if (location != null) {
+                indexes.get(LocationField.COUNTRY).add(location.getCountry());
+                indexes.get(LocationField.CITY).add(location.getCity());
+                indexes.get(LocationField.STREET).add(location.getStreet());
+                locations.put(entry.getKey(), location);
+            }
+        }
+    }
+
+    private void removeLocation(Long raceId) {
+        Location location = locations.remove(raceId);
+        if (location != null) {
+            indexes.get(LocationField.COUNTRY).remove(location.getCountry());
+            indexes.get(LocationField.CITY).remove(location.getCity());
+            indexes.get(LocationField.STREET).remove(location.getStreet());
+        }
+    }
+
+    /**
+     * @return copies of the locations of the given races by race id, so later changes of the races are not seen
+     */
+    private static Map<Long, Location> locations(Collection<Race> races) {
+        Map<Long, Location> locations = new HashMap<>();
+        for (Race race : races) {
+            if (race.getId() != null) {
+                Location location = race.getLocation();
+                locations.put(race.getId(), location == null ? null
+                        : new Location(location.getCountry(), location.getCity(), location.getStreet()));
+            }
+        }
+        return locations;
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package org.muni.pa165.service;
 
 import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface RaceService {
 
     Race save(Race race);
 
+    List<Race> saveAll(List<Race> races);
+
     Race findById(Long id);
 
     List<Race> findAll();
 
+    List<Race> findPage(int page, int size);
+
+    List<Race> findAllAfter(Long id, int size);
+
+    List<Race> findBetween(LocalDate from, LocalDate to, LocalDate afterDate, Long afterId, int size);
+
+    List<Race> findBySeason(int year, LocalDate afterDate, Long afterId, int size);
+
+    void streamAll(Consumer<Race> action);
+
     void deleteById(Long id);
 
     void deleteAll();
@@ -23,9 +39,13 @@ public interface RaceService {
 
     void assignCarTwo(Long raceId, Long carId);
 
-    List<Race> findByLocation_CountryOrLocation_CityOrLocation_Street(String country, String city, String street);
+    List<Race> findByLocation(String country, String city, String street);
+
+    List<String> suggestLocations(LocationField field, String prefix, int limit);
 
     List<Race> findByCarId(Long carId);
 
     List<RaceView> findAllWithCars();
+
+    CompletableFuture<List<RaceView>> findAllWithCarsAsync();
 }
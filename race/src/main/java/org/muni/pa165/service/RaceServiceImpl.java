@@ -1,44 +1,102 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
-import org.muni.pa165.api.Car;
-import org.muni.pa165.api.CarView;
-import org.muni.pa165.api.Component;
-import org.muni.pa165.api.ComponentView;
-import org.muni.pa165.api.Driver;
-import org.muni.pa165.api.DriverView;
 import org.muni.pa165.api.RaceView;
 import org.muni.pa165.data.domain.Location;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.domain.RaceCar;
+import org.muni.pa165.data.repository.RaceCarRepository;
 import org.muni.pa165.data.repository.RaceRepository;
 import org.muni.pa165.exceptions.DataStorageException;
+import org.muni.pa165.exceptions.RaceConflictException;
 import org.muni.pa165.exceptions.RaceNotFoundException;
 import org.muni.pa165.exceptions.RaceValidationException;
+import org.muni.pa165.exceptions.RaceVersionRequiredException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class RaceServiceImpl implements RaceService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_SUGGESTIONS = 100;
+    /**
+     * Number of entities inserted in a single JDBC batch, the same as the number of ids reserved at once.
+     */
+    public static final int BATCH_SIZE = 50;
+
     private final RaceRepository raceRepository;
+    private final RaceCarRepository raceCarRepository;
     private final ExternalService externalService;
+    private final RaceWithCarsProjection raceWithCarsProjection;
+    private final AsyncRaceViewAggregator asyncRaceViewAggregator;
+    private final RaceLocationIndex raceLocationIndex;
+    private final EntityManager entityManager;
+    private final Executor aggregationExecutor;
 
     @Autowired
-    public RaceServiceImpl(RaceRepository raceRepository, ExternalService externalService) {
+    public RaceServiceImpl(RaceRepository raceRepository, RaceCarRepository raceCarRepository,
+                           ExternalService externalService, RaceWithCarsProjection raceWithCarsProjection,
+                           AsyncRaceViewAggregator asyncRaceViewAggregator, RaceLocationIndex raceLocationIndex,
+                           EntityManager entityManager,
+                           @Qualifier("aggregationExecutor") Executor aggregationExecutor) {
         this.raceRepository = raceRepository;
+        this.raceCarRepository = raceCarRepository;
         this.externalService = externalService;
+        this.raceWithCarsProjection = raceWithCarsProjection;
+        this.asyncRaceViewAggregator = asyncRaceViewAggregator;
+        this.raceLocationIndex = raceLocationIndex;
+        this.entityManager = entityManager;
+        this.aggregationExecutor = aggregationExecutor;
     }
 
     @Override
     public Race save(Race race) {
         validateRace(race);
-        return raceRepository.save(race);
+        Race savedRace = raceRepository.save(race);
+        assignCars(List.of(savedRace));
+        raceLocationIndex.put(List.of(savedRace));
+        raceWithCarsProjection.refresh(savedRace);
+        return savedRace;
+    }
+
+    @Override
+    public List<Race> saveAll(List<Race> races) {
+        validateCarsExist(carIds(races));
+        races.forEach(this::validateRaceData);
+        for (int from = 0; from < races.size(); from += BATCH_SIZE) {
+            List<Race> batch = races.subList(from, Math.min(from + BATCH_SIZE, races.size()));
+            raceRepository.saveAll(batch);
+            assignCars(batch);
+            raceLocationIndex.put(batch);
+            raceWithCarsProjection.refresh(batch);
+            // sends the inserts of the batch at once and keeps the persistence context small
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return races;
     }
 
     @Override
@@ -52,26 +110,85 @@ public class RaceServiceImpl implements RaceService {
         return raceRepository.findAll();
     }
 
+    @Override
+    public List<Race> findPage(int page, int size) {
+        return raceRepository.findAllBy(PageRequest.of(Math.max(page, 0), pageSize(size), Sort.by("id"))).getContent();
+    }
+
+    @Override
+    public List<Race> findAllAfter(Long id, int size) {
+        return raceRepository.findByIdGreaterThanOrderByIdAsc(id, Limit.of(pageSize(size)));
+    }
+
+    /**
+     * Returns races between the given dates inclusive ordered by date and id. When the date and id of a race
+     * are given, the races following it are returned, so pages are read from the index of dates
+     * instead of skipping an offset.
+     */
+    @Override
+    public List<Race> findBetween(LocalDate from, LocalDate to, LocalDate afterDate, Long afterId, int size) {
+        if (afterDate == null || afterId == null) {
+            return raceRepository.findByDateBetweenOrderByDateAscIdAsc(from, to, Limit.of(pageSize(size)));
+        }
+        return raceRepository.findByDateBetweenAfter(from, to, afterDate, afterId, Limit.of(pageSize(size)));
+    }
+
+    @Override
+    public List<Race> findBySeason(int year, LocalDate afterDate, Long afterId, int size) {
+        Year season = Year.of(year);
+        return findBetween(season.atDay(1), season.atMonth(Month.DECEMBER).atEndOfMonth(), afterDate, afterId, size);
+    }
+
+    /**
+     * Passes all races ordered by id to the given action while they are read from the database.
+     * Each race is detached once handled, so the persistence context does not grow with the table.
+     */
+    @Override
+    public void streamAll(Consumer<Race> action) {
+        try (Stream<Race> races = raceRepository.streamAllByOrderByIdAsc()) {
+            races.forEach(race -> {
+                action.accept(race);
+                entityManager.detach(race);
+            });
+        }
+    }
+
     @Override
     public void deleteById(Long id) {
-        if (!raceRepository.existsById(id)) {
+        if (raceRepository.removeById(id) == 0) {
             throw new RaceNotFoundException("Cannot delete, race not found with id: " + id);
         }
-        raceRepository.deleteById(id);
+        raceCarRepository.deleteByRaceIds(List.of(id));
+        raceWithCarsProjection.remove(id);
+        raceLocationIndex.remove(id);
     }
 
     @Override
     public void deleteAll() {
-        raceRepository.deleteAll();
+        // a single DELETE statement instead of loading and removing the races one by one
+        raceRepository.deleteAllInBatch();
+        raceCarRepository.deleteAllInBatch();
+        raceWithCarsProjection.removeAll();
+        raceLocationIndex.clear();
     }
 
     @Override
     public void update(Race race) {
         validateRace(race);
-        if (!raceRepository.existsById(race.getId())) {
-            throw new RaceNotFoundException("Cannot update, race not found with id: " + race.getId());
+        if (race.getVersion() == null) {
+            throw new RaceVersionRequiredException("Cannot update race with id: " + race.getId()
+                    + " without the version it was read in");
         }
-        raceRepository.save(race);
+        if (raceRepository.updateIfVersionMatches(race) == 0) {
+            if (!raceRepository.existsById(race.getId())) {
+                throw new RaceNotFoundException("Cannot update, race not found with id: " + race.getId());
+            }
+            throw new RaceConflictException("Race with id: " + race.getId() + " was changed by another update, "
+                    + "version " + race.getVersion() + " is no longer current");
+        }
+        assignCars(List.of(race));
+        raceLocationIndex.put(List.of(race));
+        raceWithCarsProjection.refresh(race);
     }
 
     @Override
@@ -82,6 +199,8 @@ public class RaceServiceImpl implements RaceService {
         }
         race.setCar1Id(carId);
         raceRepository.save(race);
+        assignCars(List.of(race));
+        raceWithCarsProjection.refresh(race);
     }
 
     @Override
@@ -92,11 +211,35 @@ public class RaceServiceImpl implements RaceService {
         }
         race.setCar2Id(carId);
         raceRepository.save(race);
+        assignCars(List.of(race));
+        raceWithCarsProjection.refresh(race);
+    }
+
+    /**
+     * Finds races whose location contains every given text ignoring case, fields without a text are not filtered.
+     * Each text is resolved to the matching values by the in-memory location index,
+     * races are then read by a lookup of those values in the indexed search columns.
+     */
+    @Override
+    public List<Race> findByLocation(String country, String city, String street) {
+        List<Specification<Race>> filters = new ArrayList<>();
+        for (Map.Entry<LocationField, String> filter : locationFilters(country, city, street).entrySet()) {
+            Set<String> values = raceLocationIndex.matching(filter.getKey(), filter.getValue());
+            if (values.isEmpty()) {
+                return List.of();
+            }
+            String column = searchColumn(filter.getKey());
+            filters.add((race, query, builder) -> race.get(column).in(values));
+        }
+        if (filters.isEmpty()) {
+            return List.of();
+        }
+        return raceRepository.findAll(Specification.allOf(filters), Sort.by("id"));
     }
 
     @Override
-    public List<Race> findByLocation_CountryOrLocation_CityOrLocation_Street(String country, String city, String street) {
-        return raceRepository.findByLocation_CountryOrLocation_CityOrLocation_Street(country, city, street);
+    public List<String> suggestLocations(LocationField field, String prefix, int limit) {
+        return raceLocationIndex.suggest(field, prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
     }
 
     @Override
@@ -104,71 +247,39 @@ public class RaceServiceImpl implements RaceService {
         return raceRepository.findCarById(carId);
     }
 
-    public CarView getCarView(Long id) {
-        Set<DriverView> testDrivers = new HashSet<>();
-        Set<ComponentView> components = new HashSet<>();
-        DriverView mainDriverView = null;
-        CarView carView;
-        Car car;
-        Driver driver;
-
-        car = externalService.getCar(id).getBody();
-        if (car.getMainDriver() != null) {
-            driver = externalService.getDriver(car.getMainDriver()).getBody();
-            mainDriverView = new DriverView(driver.getName(), driver.getSurname(),
-                    driver.getNationality(), driver.getPerk());
-        }
-
-        if (car.getTestDrivers() != null) {
-            car.getTestDrivers().forEach(testDriverId -> {
-                Driver testDriver = externalService.getDriver(testDriverId).getBody();
-                DriverView driverView = new DriverView(testDriver.getName(), testDriver.getSurname(),
-                        testDriver.getNationality(), testDriver.getPerk());
-                testDrivers.add(driverView);
-            });
-        }
-
-        car.getComponents().forEach(componentId -> {
-            Component component = externalService.getComponent(componentId).getBody();
-            ComponentView componentView = new ComponentView(component.getWeight(), component.getPrice(),
-                    component.getManufacturer(), component.getVersion(), component.getType());
-            components.add(componentView);
-        });
-
-        carView = new CarView(mainDriverView, car.getCarMake(), testDrivers, components);
-        return carView;
+    @Override
+    public List<RaceView> findAllWithCars() {
+        return raceWithCarsProjection.findAll();
     }
 
+    /**
+     * Races are read on a thread of the aggregation executor, which carries the security context
+     * of the request, so the request thread only registers the continuation and is released.
+     */
     @Override
-    public List<RaceView> findAllWithCars() {
-        List<Race> races = findAll();
-        List<RaceView> raceViews = new ArrayList<>();
-        for (Race race : races) {
-            RaceView raceView = new RaceView(race.getName(), race.getLocation(), race.getDate(), null, null);
-            if (race.getCar1Id() != null) {
-                raceView.setCar1(getCarView(race.getCar1Id()));
-            }
-            if (race.getCar2Id() != null) {
-                raceView.setCar2(getCarView(race.getCar2Id()));
-            }
-            raceViews.add(raceView);
-        }
-        return raceViews;
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public CompletableFuture<List<RaceView>> findAllWithCarsAsync() {
+        return CompletableFuture.supplyAsync(raceRepository::findAll, aggregationExecutor)
+                .thenCompose(asyncRaceViewAggregator::aggregate);
     }
 
     private void validateRace(Race race) {
-        if (race.getCar1Id() != null) {
-            if (!externalService.carExists(race.getCar1Id())) {
-                throw new DataStorageException("Car with id " + race.getCar1Id() + " does not exist");
-            }
-        }
+        validateCarsExist(carIds(List.of(race)));
+        validateRaceData(race);
+    }
 
-        if (race.getCar2Id() != null) {
-            if (!externalService.carExists(race.getCar2Id())) {
-                throw new DataStorageException("Car with id " + race.getCar2Id() + " does not exist");
-            }
+    private void validateCarsExist(Set<Long> carIds) {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        // a single bulk read for all the cars, however many races are saved
+        Set<Long> missing = externalService.findMissingCars(carIds);
+        if (!missing.isEmpty()) {
+            throw new DataStorageException("Car with id " + missing.iterator().next() + " does not exist");
         }
+    }
 
+    private void validateRaceData(Race race) {
         if (race.getDate() == null) {
             throw new RaceValidationException("Race date cannot be empty");
         }
@@ -188,4 +299,60 @@ public class RaceServiceImpl implements RaceService {
             }
         }
     }
+
+    /**
+     * Replaces the cars assigned to the given races by their current cars.
+     */
+    private void assignCars(List<Race> races) {
+        raceCarRepository.deleteByRaceIds(races.stream().map(Race::getId).toList());
+        List<RaceCar> raceCars = new ArrayList<>();
+        for (Race race : races) {
+            if (race.getCar1Id() != null) {
+                raceCars.add(RaceCar.builder().raceId(race.getId()).slot(RaceCar.SLOT_ONE).carId(race.getCar1Id()).build());
+            }
+            if (race.getCar2Id() != null) {
+                raceCars.add(RaceCar.builder().raceId(race.getId()).slot(RaceCar.SLOT_TWO).carId(race.getCar2Id()).build());
+            }
+        }
+        raceCarRepository.saveAll(raceCars);
+    }
+
+    private static Set<Long> carIds(List<Race> races) {
+        Set<Long> carIds = new LinkedHashSet<>();
+        for (Race race : races) {
+            if (race.getCar1Id() != null) {
+                carIds.add(race.getCar1Id());
+            }
+            if (race.getCar2Id() != null) {
+                carIds.add(race.getCar2Id());
+            }
+        }
+        return carIds;
+    }
+
+    private static Map<LocationField, String> locationFilters(String country, String city, String street) {
+        Map<LocationField, String> filters = new EnumMap<>(LocationField.class);
+        if (country != null && !country.isBlank()) {
+            filters.put(LocationField.COUNTRY, country);
+        }
+        if (city != null && !city.isBlank()) {
+            filters.put(LocationField.CITY, city);
+        }
+        if (street != null && !street.isBlank()) {
+            filters.put(LocationField.STREET, street);
+        }
+        return filters;
+    }
+
+    private static String searchColumn(LocationField field) {
+        return switch (field) {
+            case COUNTRY -> "searchCountry";
+            case CITY -> "searchCity";
+            case STREET -> "searchStreet";
+        };
+    }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
 }
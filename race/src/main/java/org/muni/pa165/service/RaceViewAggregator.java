@@ -0,0 +1,225 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.CarView;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.ComponentView;
+import org.muni.pa165.api.Driver;
+import org.muni.pa165.api.DriverView;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds {@link RaceView} trees with bulk lookups of cars, drivers and components.
+ * Cars of all races are fetched first, then drivers and components of all cars at once, so the
+ * whole aggregation costs two round trips. Large id sets are split into batches fetched concurrently.
+ */
+@Service
+public class RaceViewAggregator {
+
+    private final ExternalService externalService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int batchSize;
+    private final Duration timeout;
+
+    public RaceViewAggregator(ExternalService externalService,
+                              MeterRegistry meterRegistry,
+                              @Qualifier("aggregationExecutor") ExecutorService executor,
+                              @Value("${race.aggregation.max-concurrency:64}") int maxConcurrency,
+                              @Value("${race.aggregation.batch-size:100}") int batchSize,
+                              @Value("${race.aggregation.timeout:10s}") Duration timeout) {
+        this.externalService = externalService;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Resolves cars of the given races and returns the views in the same order as the races.
+     * Each car, driver and component is fetched at most once per call, even when shared by several races.
+     * Cars, drivers and components that no longer exist are left out of the views.
+     *
+     * @param races races to aggregate
+     * @return race views with resolved cars
+     * @throws ExternalCallException when the aggregation does not finish within the configured timeout
+     */
+    public List<RaceView> aggregate(List<Race> races) {
+        ResolvedCars resolved = resolve(races);
+        return toRaceViews(races, resolved.cars(), resolved.drivers(), resolved.components());
+    }
+
+    /**
+     * Fetches cars of the given races together with their drivers and components, see {@link #aggregate(List)}.
+     */
+    ResolvedCars resolve(List<Race> races) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ExternalService lookups = new RequestScopedExternalService(externalService, meterRegistry);
+
+        CompletableFuture<Map<Long, Car>> carsFuture = fetch(carIds(races), lookups::getCars, Car::getId);
+        await(carsFuture, deadline);
+        Map<Long, Car> cars = carsFuture.join();
+
+        CompletableFuture<Map<Long, Driver>> driversFuture =
+                fetch(driverIds(cars.values()), lookups::getDrivers, Driver::getId);
+        CompletableFuture<Map<Long, Component>> componentsFuture =
+                fetch(componentIds(cars.values()), lookups::getComponents, Component::getId);
+        await(CompletableFuture.allOf(driversFuture, componentsFuture), deadline);
+
+        return new ResolvedCars(cars, driversFuture.join(), componentsFuture.join());
+    }
+
+    static Set<Long> carIds(List<Race> races) {
+        return races.stream()
+                .flatMap(race -> Stream.of(race.getCar1Id(), race.getCar2Id()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    static Set<Long> driverIds(Collection<Car> cars) {
+        Set<Long> driverIds = new HashSet<>();
+        for (Car car : cars) {
+            if (car.getMainDriver() != null) {
+                driverIds.add(car.getMainDriver());
+            }
+            if (car.getTestDrivers() != null) {
+                driverIds.addAll(car.getTestDrivers());
+            }
+        }
+        return driverIds;
+    }
+
+    static Set<Long> componentIds(Collection<Car> cars) {
+        Set<Long> componentIds = new HashSet<>();
+        for (Car car : cars) {
+            if (car.getComponents() != null) {
+                componentIds.addAll(car.getComponents());
+            }
+        }
+        return componentIds;
+    }
+
+    static List<RaceView> toRaceViews(List<Race> races, Map<Long, Car> cars,
+                                      Map<Long, Driver> drivers, Map<Long, Component> components) {
+        Map<Long, CarView> carViews = new HashMap<>();
+        cars.forEach((id, car) -> carViews.put(id, toCarView(car, drivers, components)));
+        return races.stream()
+                .map(race -> new RaceView(race.getName(), race.getLocation(), race.getDate(),
+                        race.getCar1Id() != null ? carViews.get(race.getCar1Id()) : null,
+                        race.getCar2Id() != null ? carViews.get(race.getCar2Id()) : null))
+                .toList();
+    }
+
+    private <T> CompletableFuture<Map<Long, T>> fetch(Set<Long> ids, Function<Collection<Long>, List<T>> lookup,
+                                                      Function<T, Long> idOf) {
+        List<Long> remaining = new ArrayList<>(ids);
+        List<CompletableFuture<List<T>>> batches = new ArrayList<>();
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            List<Long> batch = remaining.subList(from, Math.min(from + batchSize, remaining.size()));
+            batches.add(async(() -> lookup.apply(batch)));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<Long, T> result = new HashMap<>();
+                    batches.forEach(batch -> batch.join().forEach(entity -> result.put(idOf.apply(entity), entity)));
+                    return result;
+                });
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return call.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    private void await(CompletableFuture<?> future, long deadline) {
+        try {
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ExternalCallException("Aggregation of races with cars did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalCallException("Aggregation of races with cars was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ExternalCallException("Error while calling external service: " + e.getCause());
+        }
+    }
+
+    static CarView toCarView(Car car, Map<Long, Driver> drivers, Map<Long, Component> components) {
+        Driver mainDriver = car.getMainDriver() != null ? drivers.get(car.getMainDriver()) : null;
+        return new CarView(mainDriver != null ? toDriverView(mainDriver) : null,
+                car.getCarMake(),
+                collect(car.getTestDrivers(), drivers, RaceViewAggregator::toDriverView),
+                collect(car.getComponents(), components, RaceViewAggregator::toComponentView));
+    }
+
+    private static <T, V> Set<V> collect(Collection<Long> ids, Map<Long, T> entities, Function<T, V> toView) {
+        Set<V> views = new HashSet<>();
+        if (ids != null) {
+            ids.stream()
+                    .map(entities::get)
+                    .filter(Objects::nonNull)
+                    .map(toView)
+                    .forEach(views::add);
+        }
+        return views;
+    }
+
+    private static DriverView toDriverView(Driver driver) {
+        return new DriverView(driver.getName(), driver.getSurname(),
+                driver.getNationality(), driver.getPerk());
+    }
+
+    private static ComponentView toComponentView(Component component) {
+        return new ComponentView(component.getWeight(), component.getPrice(),
+                component.getManufacturer(), component.getVersion(), component.getType());
+    }
+
+    /**
+     * Cars of aggregated races with their drivers and components, all keyed by id.
+     * Entities that no longer exist are missing in the maps.
+     */
+    record ResolvedCars(Map<Long, Car> cars, Map<Long, Driver> drivers, Map<Long, Component> components) {
+
+        CarView carView(Long carId) {
+            Car car = carId != null ? cars.get(carId) : null;
+            return car != null ? toCarView(car, drivers, components) : null;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.muni.pa165.service;
+
+import jakarta.annotation.PostConstruct;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.ChangeFeed;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Location;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.domain.RaceWithCars;
+import org.muni.pa165.data.repository.RaceRepository;
+import org.muni.pa165.data.repository.RaceWithCarsRepository;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link RaceWithCars} read model in sync with races and with the cars, drivers and components
+ * they reference, so races with cars are listed by a single local query that never calls other services.
+ * A race is copied as stale whenever it is written and the copy is refreshed once the write commits,
+ * races without a copy are copied as stale at startup.
+ * Changes in other services are polled from their change feeds and mark the affected copies as stale,
+ * the same scheduled task then refreshes the stale copies with bulk lookups. Until a refresh succeeds
+ * the last snapshot is listed. Other services are called outside of any transaction of this class,
+ * only the local writes following the calls run in a transaction.
+ */
+@Service
+public class RaceWithCarsProjection {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceWithCarsProjection.class);
+
+    private final RaceRepository raceRepository;
+    private final RaceWithCarsRepository raceWithCarsRepository;
+    private final RaceViewAggregator raceViewAggregator;
+    private final ExternalService externalService;
+    private final TransactionOperations transactionOperations;
+
+    private volatile Long lastCarChange;
+    private volatile Long lastDriverChange;
+    private volatile Long lastComponentChange;
+
+    public RaceWithCarsProjection(RaceRepository raceRepository, RaceWithCarsRepository raceWithCarsRepository,
+                                  RaceViewAggregator raceViewAggregator, ExternalService externalService,
+                                  @Qualifier("readModelTransactions") TransactionOperations transactionOperations) {
+        this.raceRepository = raceRepository;
+        this.raceWithCarsRepository = raceWithCarsRepository;
+        this.raceViewAggregator = raceViewAggregator;
+        this.externalService = externalService;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Copies races written before the read model existed, the copies are stale until the next sync refreshes them.
+     */
+    @PostConstruct
+    void backfill() {
+        List<Race> races = raceRepository.findAllWithoutCopy();
+        if (!races.isEmpty()) {
+            logger.info("Copying {} races without a copy of their cars", races.size());
+            raceWithCarsRepository.saveAll(races.stream()
+                    .map(race -> toStaleRaceWithCars(race, null))
+                    .toList());
+        }
+    }
+
+    /**
+     * Returns all races with cars ordered by race id, stale copies are returned with their last snapshot.
+     */
+    public List<RaceView> findAll() {
+        return raceWithCarsRepository.findAllByOrderByRaceIdAsc().stream()
+                .map(RaceWithCarsProjection::toRaceView)
+                .toList();
+    }
+
+    public void refresh(Race race) {
+        refresh(List.of(race));
+    }
+
+    /**
+     * Copies the given races as stale in the current transaction and refreshes the copies with fresh snapshots
+     * of their cars once it commits, so no transaction stays open while other services are called.
+     * When other services cannot be reached, the copies stay stale until the next sync refreshes them.
+     */
+    public void refresh(List<Race> races) {
+        if (races.isEmpty()) {
+            return;
+        }
+        save(races, null);
+        Set<Long> raceIds = races.stream().map(Race::getId).collect(Collectors.toSet());
+        afterCommit(() -> {
+            try {
+                refreshStale(raceIds);
+            } catch (DataAccessException | TransactionException e) {
+                logger.warn("Cannot refresh copies of {} races, keeping them stale: {}", raceIds.size(), e.getMessage());
+            }
+        });
+    }
+
+    public void remove(Long raceId) {
+        raceWithCarsRepository.deleteById(raceId);
+    }
+
+    public void removeAll() {
+        raceWithCarsRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Marks copies referencing cars, drivers or components changed in other services as stale
+     * and refreshes all stale copies.
+     */
+    @Scheduled(fixedDelayString = "${race.read-model.sync-interval:5000}")
+    public void syncChanges() {
+        lastCarChange = markChanged(lastCarChange, externalService::getCarChanges,
+                raceWithCarsRepository::findRaceIdsByCarIds);
+        lastDriverChange = markChanged(lastDriverChange, externalService::getDriverChanges,
+                raceWithCarsRepository::findRaceIdsByDriverIds);
+        lastComponentChange = markChanged(lastComponentChange, externalService::getComponentChanges,
+                raceWithCarsRepository::findRaceIdsByComponentIds);
+        refreshStale(raceWithCarsRepository.findStaleRaceIds());
+    }
+
+    private void refreshStale(Set<Long> staleRaceIds) {
+        if (staleRaceIds.isEmpty()) {
+            return;
+        }
+        List<Race> races = transactionOperations.execute(status -> raceRepository.findAllById(staleRaceIds));
+        if (races == null || races.isEmpty()) {
+            return;
+        }
+        RaceViewAggregator.ResolvedCars resolved = resolve(races);
+        transactionOperations.executeWithoutResult(status -> {
+            // races written while their cars were resolved were copied by the write itself
+            Map<Long, Long> versions = new HashMap<>();
+            raceRepository.findAllById(staleRaceIds).forEach(race -> versions.put(race.getId(), race.getVersion()));
+            save(races.stream()
+                    .filter(race -> versions.containsKey(race.getId())
+                            && Objects.equals(versions.get(race.getId()), race.getVersion()))
+                    .toList(), resolved);
+        });
+    }
+
+    /**
+     * @return cars of the given races, or null when other services cannot be reached
+     */
+    private RaceViewAggregator.ResolvedCars resolve(List<Race> races) {
+        try {
+            return raceViewAggregator.resolve(races);
+        } catch (ExternalCallException | RestClientException e) {
+            logger.warn("Cannot refresh cars of {} races, keeping them stale: {}", races.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(List<Race> races, RaceViewAggregator.ResolvedCars resolved) {
+        Map<Long, RaceWithCars> previous = resolved != null ? Map.of()
+                : raceWithCarsRepository.findAllById(races.stream().map(Race::getId).toList()).stream()
+                .collect(Collectors.toMap(RaceWithCars::getRaceId, Function.identity()));
+        raceWithCarsRepository.saveAll(races.stream()
+                .map(race -> resolved != null
+                        ? toRaceWithCars(race, resolved)
+                        : toStaleRaceWithCars(race, previous.get(race.getId())))
+                .toList());
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    private Long markChanged(Long after, Function<Long, ChangeFeed> feed,
+                             Function<Collection<Long>, Set<Long>> affectedRaceIds) {
+        ChangeFeed changes;
+        try {
+            changes = feed.apply(after);
+        } catch (ExternalCallException | RestClientException e) {
+            logger.warn("Cannot read change feed: {}", e.getMessage());
+            return after;
+        }
+        if (changes == null) {
+            return after;
+        }
+        transactionOperations.executeWithoutResult(status -> {
+            if (changes.isReset()) {
+                raceWithCarsRepository.markAllStale();
+            } else if (changes.getChangedIds() != null && !changes.getChangedIds().isEmpty()) {
+                Set<Long> raceIds = affectedRaceIds.apply(changes.getChangedIds());
+                if (!raceIds.isEmpty()) {
+                    raceWithCarsRepository.markStale(raceIds);
+                }
+            }
+        });
+        return changes.getLastSequence();
+    }
+
+    private static RaceWithCars toStaleRaceWithCars(Race race, RaceWithCars previous) {
+        RaceWithCars copy = previous != null ? previous : RaceWithCars.builder()
+                .raceId(race.getId())
+                .driverIds(new HashSet<>())
+                .componentIds(new HashSet<>())
+                .build();
+        copy.setName(race.getName());
+        copy.setLocation(copyOf(race.getLocation()));
+        copy.setDate(race.getDate());
+        copy.setCar1Id(race.getCar1Id());
+        copy.setCar2Id(race.getCar2Id());
+        copy.setStale(true);
+        return copy;
+    }
+
+    private static RaceWithCars toRaceWithCars(Race race, RaceViewAggregator.ResolvedCars resolved) {
+        List<Car> cars = Stream.of(race.getCar1Id(), race.getCar2Id())
+                .filter(Objects::nonNull)
+                .map(resolved.cars()::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return RaceWithCars.builder()
+                .raceId(race.getId())
+                .name(race.getName())
+                .location(copyOf(race.getLocation()))
+                .date(race.getDate())
+                .car1Id(race.getCar1Id())
+                .car2Id(race.getCar2Id())
+                .car1(resolved.carView(race.getCar1Id()))
+                .car2(resolved.carView(race.getCar2Id()))
+                .driverIds(RaceViewAggregator.driverIds(cars))
+                .componentIds(RaceViewAggregator.componentIds(cars))
+                .stale(false)
+                .build();
+    }
+
+    private static RaceView toRaceView(RaceWithCars race) {
+        return new RaceView(race.getName(), race.getLocation(), race.getDate(), race.getCar1(), race.getCar2());
+    }
+
+    private static Location copyOf(Location location) {
+        return location == null ? null
+                : new Location(location.getCountry(), location.getCity(), location.getStreet());
+    }
+}
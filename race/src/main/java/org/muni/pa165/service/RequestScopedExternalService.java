@@ -0,0 +1,189 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.ChangeFeed;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.Driver;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * {@link ExternalService} decorator that fetches every car, driver and component at most once.
+ * A new instance is meant to live for a single request only, so no invalidation is needed.
+ * Concurrent lookups of the same id wait for the call already in flight instead of issuing another one,
+ * and bulk lookups only ask the delegate for the ids that were not requested before.
+ * Hits and misses are counted in the {@value #METRIC_NAME} metric tagged by entity and result.
+ */
+public class RequestScopedExternalService implements ExternalService {
+
+    public static final String METRIC_NAME = "race.external.lookups";
+
+    private final ExternalService delegate;
+
+    private final Map<Long, CompletableFuture<Car>> cars = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Driver>> drivers = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Component>> components = new ConcurrentHashMap<>();
+
+    private final LookupCounters carCounters;
+    private final LookupCounters driverCounters;
+    private final LookupCounters componentCounters;
+
+    public RequestScopedExternalService(ExternalService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.carCounters = LookupCounters.register(meterRegistry, "car");
+        this.driverCounters = LookupCounters.register(meterRegistry, "driver");
+        this.componentCounters = LookupCounters.register(meterRegistry, "component");
+    }
+
+    @Override
+    public boolean carExists(Long id) {
+        return delegate.carExists(id);
+    }
+
+    @Override
+    public Set<Long> findMissingCars(Collection<Long> ids) {
+        return delegate.findMissingCars(ids);
+    }
+
+    @Override
+    public ResponseEntity<Car> getCar(Long id) {
+        return toResponse(memoize(cars, id, carCounters, key -> delegate.getCar(key).getBody()));
+    }
+
+    @Override
+    public ResponseEntity<Driver> getDriver(Long id) {
+        return toResponse(memoize(drivers, id, driverCounters, key -> delegate.getDriver(key).getBody()));
+    }
+
+    @Override
+    public ResponseEntity<Component> getComponent(Long id) {
+        return toResponse(memoize(components, id, componentCounters, key -> delegate.getComponent(key).getBody()));
+    }
+
+    @Override
+    public List<Car> getCars(Collection<Long> ids) {
+        return memoizeAll(cars, ids, carCounters, delegate::getCars, Car::getId);
+    }
+
+    @Override
+    public List<Driver> getDrivers(Collection<Long> ids) {
+        return memoizeAll(drivers, ids, driverCounters, delegate::getDrivers, Driver::getId);
+    }
+
+    @Override
+    public List<Component> getComponents(Collection<Long> ids) {
+        return memoizeAll(components, ids, componentCounters, delegate::getComponents, Component::getId);
+    }
+
+    @Override
+    public ChangeFeed getCarChanges(Long after) {
+        return delegate.getCarChanges(after);
+    }
+
+    @Override
+    public ChangeFeed getDriverChanges(Long after) {
+        return delegate.getDriverChanges(after);
+    }
+
+    @Override
+    public ChangeFeed getComponentChanges(Long after) {
+        return delegate.getComponentChanges(after);
+    }
+
+    private static <T> T memoize(Map<Long, CompletableFuture<T>> memo, Long id,
+                                 LookupCounters counters, Function<Long, T> lookup) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> existing = memo.putIfAbsent(id, created);
+        if (existing != null) {
+            counters.hits().increment();
+            return join(existing);
+        }
+
+        counters.misses().increment();
+        try {
+            T result = lookup.apply(id);
+            created.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves ids already looked up from the memo and fetches the rest with a single bulk call.
+     * Ids missing in the bulk response are memoized as absent and left out of the result.
+     */
+    private static <T> List<T> memoizeAll(Map<Long, CompletableFuture<T>> memo, Collection<Long> ids,
+                                          LookupCounters counters, Function<Collection<Long>, List<T>> lookup,
+                                          Function<T, Long> idOf) {
+        List<CompletableFuture<T>> results = new ArrayList<>();
+        Map<Long, CompletableFuture<T>> owned = new LinkedHashMap<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            CompletableFuture<T> created = new CompletableFuture<>();
+            CompletableFuture<T> existing = memo.putIfAbsent(id, created);
+            if (existing != null) {
+                counters.hits().increment();
+                results.add(existing);
+            } else {
+                counters.misses().increment();
+                owned.put(id, created);
+                results.add(created);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            try {
+                Map<Long, T> fetched = new LinkedHashMap<>();
+                lookup.apply(owned.keySet()).forEach(entity -> fetched.put(idOf.apply(entity), entity));
+                owned.forEach((id, future) -> future.complete(fetched.get(id)));
+            } catch (RuntimeException e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+        }
+
+        return results.stream()
+                .map(RequestScopedExternalService::join)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static <T> ResponseEntity<T> toResponse(T body) {
+        return body != null ? ResponseEntity.ok(body) : ResponseEntity.notFound().build();
+    }
+
+    private record LookupCounters(Counter hits, Counter misses) {
+
+        static LookupCounters register(MeterRegistry meterRegistry, String entity) {
+            return new LookupCounters(
+                    meterRegistry.counter(METRIC_NAME, "entity", entity, "result", "hit"),
+                    meterRegistry.counter(METRIC_NAME, "entity", entity, "result", "miss"));
+        }
+    }
+}
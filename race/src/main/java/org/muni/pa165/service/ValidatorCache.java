@@ -0,0 +1,58 @@
+package org.muni.pa165.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.function.Function;
+
+/**
+ * Bounded cache of entities read from another service together with their ETags.
+ * A cached entity is not trusted as is, every read is sent with the ETag in If-None-Match,
+ * and when the service answers 304 Not Modified the cached entity is returned, so an unchanged entity
+ * costs a header exchange instead of a transfer and deserialization of its body.
+ */
+public class ValidatorCache<T> {
+
+    private final Cache<Long, ResponseEntity<T>> responses;
+
+    public ValidatorCache(long maxSize) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Reads the entity with the given id, revalidating its cached copy if there is one.
+     *
+     * @param id   id of the entity
+     * @param read GET of the entity sending the given request headers
+     * @return response of the service, or the cached response when the entity was not modified
+     */
+    public ResponseEntity<T> get(Long id, Function<HttpHeaders, ResponseEntity<T>> read) {
+        ResponseEntity<T> cached = responses.getIfPresent(id);
+        HttpHeaders headers = new HttpHeaders();
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.getHeaders().getETag());
+        }
+        ResponseEntity<T> response;
+        try {
+            response = read.apply(headers);
+        } catch (HttpClientErrorException.NotFound e) {
+            responses.invalidate(id);
+            throw e;
+        }
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            return cached;
+        }
+        if (response.getStatusCode().is2xxSuccessful() && response.getHeaders().getETag() != null) {
+            responses.put(id, response);
+        } else {
+            responses.invalidate(id);
+        }
+        return response;
+    }
+}
@@ -5,7 +5,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.muni.pa165.api.RaceViewDto;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.exceptions.RaceConflictException;
 import org.muni.pa165.exceptions.RaceNotFoundException;
+import org.muni.pa165.exceptions.RaceVersionRequiredException;
 import org.muni.pa165.facade.RaceFacade;
 import org.muni.pa165.service.ExternalService;
 import org.muni.pa165.utils.TestRaceFactory;
@@ -14,17 +17,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = RaceMain.class,
@@ -68,9 +80,22 @@ class RaceRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(content().json(expectedJson, true));
     }
 
+    @Test
+    void findRaceById_ifNoneMatchCurrentETag_returnsNotModified() throws Exception {
+        when(raceFacade.findById(newRaceViewDto.getId())).thenReturn(newRaceViewDto);
+
+        mockMvc.perform(get("/races/{id}", newRaceViewDto.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void findAllRaces_racesFound_returnsRaces() throws Exception {
         List<RaceViewDto> raceViewDtos = Collections.singletonList(newRaceViewDto);
@@ -103,4 +128,61 @@ class RaceRestControllerIT {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void exportRaces_ndjsonAccepted_streamsOneRacePerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<RaceViewDto> action = invocation.getArgument(0);
+            action.accept(newRaceViewDto);
+            action.accept(newRaceViewDto);
+            return null;
+        }).when(raceFacade).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/races")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expectedLine = objectMapper.writeValueAsString(newRaceViewDto);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expectedLine + "\n" + expectedLine + "\n"));
+    }
+
+    @Test
+    void findAllRaces_anyAccepted_returnsJsonPage() throws Exception {
+        when(raceFacade.findAll()).thenReturn(List.of(newRaceViewDto));
+
+        mockMvc.perform(get("/races"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void updateRace_staleVersion_returnsConflict() throws Exception {
+        Race race = TestRaceFactory.getRaceEntity();
+        race.setVersion(2L);
+        doThrow(new RaceConflictException("Race with id: " + race.getId() + " was changed by another update, "
+                + "version 2 is no longer current"))
+                .when(raceFacade).update(any());
+
+        mockMvc.perform(put("/races/{id}", race.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(race)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateRace_withoutVersion_returnsPreconditionRequired() throws Exception {
+        Race race = TestRaceFactory.getRaceEntity();
+        doThrow(new RaceVersionRequiredException("Cannot update race with id: " + race.getId()
+                + " without the version it was read in"))
+                .when(raceFacade).update(any());
+
+        mockMvc.perform(put("/races/{id}", race.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(race)))
+                .andExpect(status().isPreconditionRequired());
+    }
 }
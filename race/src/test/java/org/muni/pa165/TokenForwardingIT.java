@@ -0,0 +1,99 @@
+package org.muni.pa165;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.api.RaceCreateViewDto;
+import org.muni.pa165.data.domain.Location;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionAuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends requests through the security filter chain with an opaque token and ensures the token of the caller
+ * is forwarded to other services. Feeds polled by scheduled tasks carry no token and are answered as empty.
+ */
+@SpringBootTest(classes = RaceMain.class, properties = {
+        "race.existence-cache.sync-interval=3600000",
+        "race.read-model.sync-interval=3600000"
+})
+@AutoConfigureMockMvc
+@DirtiesContext
+class TokenForwardingIT {
+
+    private static final String TOKEN = "opaque-token";
+
+    @MockBean
+    private OpaqueTokenIntrospector introspector;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockRestServiceServer services;
+
+    @BeforeEach
+    void setUp() {
+        when(introspector.introspect(TOKEN)).thenReturn(new OAuth2IntrospectionAuthenticatedPrincipal(
+                Map.of("sub", "tester"), List.of(new SimpleGrantedAuthority("SCOPE_test_write"))));
+        services = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        services.expect(ExpectedCount.between(0, 100), requestTo(matchesPattern(".*/(deletions|changes).*")))
+                .andRespond(withSuccess("{\"lastSequence\":0,\"reset\":true}", MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void saveRace_withOpaqueToken_forwardsTokenToCarService() throws Exception {
+        services.expect(ExpectedCount.manyTimes(), requestTo("http://car-service:8084/cars?ids=1"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN))
+                .andRespond(withSuccess("[{\"id\":1,\"carMake\":\"Ferrari\"}]", MediaType.APPLICATION_JSON));
+        RaceCreateViewDto race = RaceCreateViewDto.builder()
+                .name("Monaco Grand Prix")
+                .location(new Location("Monaco", "Monte Carlo", "Circuit de Monaco"))
+                .date(LocalDate.of(2022, 12, 24))
+                .car1Id(1L)
+                .build();
+
+        mockMvc.perform(post("/races")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(race)))
+                .andExpect(status().isCreated());
+
+        services.verify();
+    }
+
+    @Test
+    void findAllRaces_withoutToken_isRejected() throws Exception {
+        mockMvc.perform(get("/races"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,78 @@
+package org.muni.pa165.data.repository;
+
+import jakarta.persistence.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures every finder of races reads through an index instead of scanning the table.
+ * The statement generated for a finder is recorded and its plan is explained by the database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.muni.pa165.data.repository.RaceRepositoryQueryPlanTest$LastStatement")
+class RaceRepositoryQueryPlanTest {
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findCarById_readsThroughIndexOfAssignedCars() {
+        raceRepository.findCarById(1L);
+
+        assertThat(explain(1L)).as("Ensure races are found by the index of assigned cars")
+                .contains("RACE_CAR_CAR_ID_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findAll_bySearchColumns_readsThroughIndex() {
+        raceRepository.findAll((race, query, builder) -> race.get("searchStreet").in(List.of("circuit de monaco")));
+
+        assertThat(explain("circuit de monaco")).as("Ensure races are found by the index of the search column")
+                .contains("RACE_SEARCH_STREET_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findByDateBetweenAfter_readsThroughIndex() {
+        raceRepository.findByDateBetweenAfter(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                LocalDate.of(2024, 3, 1), 1L, Limit.of(100));
+
+        assertThat(explain(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 12, 31), LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 3, 1), 1L, 0, 100))
+                .as("Ensure races between dates are read through the date index")
+                .contains("RACE_DATE_ID_IDX")
+                .doesNotContain("tableScan");
+    }
+
+    private String explain(Object... parameters) {
+        Query explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + LastStatement.sql);
+        for (int i = 0; i < parameters.length; i++) {
+            explain.setParameter(i + 1, parameters[i]);
+        }
+        return (String) explain.getSingleResult();
+    }
+
+    public static class LastStatement implements StatementInspector {
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            LastStatement.sql = sql;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.muni.pa165.data.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.data.domain.Location;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.domain.RaceCar;
+import org.muni.pa165.service.LocationValueIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class RaceRepositoryTest {
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Race race;
+
+    @BeforeEach
+    void setUp() {
+        race = entityManager.persistFlushFind(Race.builder()
+                .name("Monaco Grand Prix")
+                .location(new Location("Monaco", "Monte Carlo", "Circuit de Monaco"))
+                .date(LocalDate.of(2022, 12, 24))
+                .car1Id(1L)
+                .build());
+        entityManager.clear();
+    }
+
+    @Test
+    void updateIfVersionMatches_currentVersion_writesRaceAndIncrementsVersion() {
+        Race update = Race.builder()
+                .id(race.getId())
+                .name("Monza Grand Prix")
+                .location(new Location("Italy", "Monza", "Autodromo Nazionale"))
+                .date(LocalDate.of(2023, 9, 3))
+                .car2Id(2L)
+                .version(race.getVersion())
+                .build();
+
+        int updated = raceRepository.updateIfVersionMatches(update);
+        entityManager.clear();
+
+        Race stored = raceRepository.findById(race.getId()).orElseThrow();
+        assertThat(updated).as("Ensure the race is updated").isEqualTo(1);
+        assertThat(stored.getName()).as("Ensure the new name is stored").isEqualTo("Monza Grand Prix");
+        assertThat(stored.getLocation().getCity()).as("Ensure the new location is stored").isEqualTo("Monza");
+        assertThat(stored.getCar1Id()).as("Ensure the removed car is cleared").isNull();
+        assertThat(stored.getVersion()).as("Ensure the version is incremented").isEqualTo(race.getVersion() + 1);
+    }
+
+    @Test
+    void updateIfVersionMatches_staleVersion_writesNothing() {
+        Race update = Race.builder()
+                .id(race.getId())
+                .name("Monza Grand Prix")
+                .location(race.getLocation())
+                .date(race.getDate())
+                .version(race.getVersion() - 1)
+                .build();
+
+        int updated = raceRepository.updateIfVersionMatches(update);
+        entityManager.clear();
+
+        assertThat(updated).as("Ensure a stale version updates no row").isZero();
+        assertThat(raceRepository.findById(race.getId()).orElseThrow().getName())
+                .as("Ensure the stored race is unchanged").isEqualTo("Monaco Grand Prix");
+    }
+
+    @Test
+    void updateIfVersionMatches_withoutVersion_leavesRace() {
+        Race update = Race.builder()
+                .id(race.getId())
+                .name("Monza Grand Prix")
+                .location(race.getLocation())
+                .date(race.getDate())
+                .build();
+
+        int updated = raceRepository.updateIfVersionMatches(update);
+        entityManager.clear();
+
+        assertThat(updated).as("Ensure a race without a version is not updated").isZero();
+        assertThat(raceRepository.findById(race.getId()).orElseThrow().getName())
+                .as("Ensure the stored race is unchanged").isEqualTo(race.getName());
+    }
+
+    @Test
+    void removeById_existingRace_deletesIt() {
+        int deleted = raceRepository.removeById(race.getId());
+
+        assertThat(deleted).as("Ensure the race is deleted").isEqualTo(1);
+        assertThat(raceRepository.existsById(race.getId())).as("Ensure the race is gone").isFalse();
+    }
+
+    @Test
+    void removeById_missingRace_deletesNothing() {
+        assertThat(raceRepository.removeById(race.getId() + 1)).as("Ensure a missing race deletes no row").isZero();
+    }
+
+    @Test
+    void findCarById_carInBothSlots_returnsRaceOnce() {
+        entityManager.persist(RaceCar.builder().raceId(race.getId()).slot(RaceCar.SLOT_ONE).carId(1L).build());
+        entityManager.persist(RaceCar.builder().raceId(race.getId()).slot(RaceCar.SLOT_TWO).carId(1L).build());
+        entityManager.flush();
+
+        assertThat(raceRepository.findCarById(1L)).as("Ensure the race of the car is found once")
+                .extracting(Race::getId).containsExactly(race.getId());
+        assertThat(raceRepository.findCarById(2L)).as("Ensure races without the car are not found").isEmpty();
+    }
+
+    @Test
+    void findAll_bySearchColumn_matchesLocationIgnoringCase() {
+        Specification<Race> inCity = (root, query, builder) -> root.get("searchCity").in(Set.of("monte carlo"));
+
+        assertThat(raceRepository.findAll(inCity)).as("Ensure the search column holds the normalized city")
+                .extracting(Race::getId).containsExactly(race.getId());
+    }
+
+    @Test
+    void searchColumn_isNormalizedLikeLocationIndex() {
+        Race withTab = entityManager.persist(Race.builder()
+                .name("Monaco Grand Prix")
+                .location(new Location("Monaco", "Monte Carlo\t ", "Circuit de Monaco"))
+                .date(LocalDate.of(2023, 5, 28))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        Specification<Race> inCity = (root, query, builder) -> root.get("searchCity")
+                .in(Set.of(LocationValueIndex.normalize("Monte Carlo\t ")));
+
+        assertThat(raceRepository.findAll(inCity)).as("Ensure only spaces are trimmed, as by the location index")
+                .extracting(Race::getId).containsExactly(withTab.getId());
+    }
+
+    @Test
+    void findByDateBetweenAfter_returnsFollowingRacesOrderedByDateAndId() {
+        Race sameDay = entityManager.persist(Race.builder()
+                .name("Abu Dhabi Grand Prix")
+                .location(new Location("UAE", "Abu Dhabi", "Yas Marina Circuit"))
+                .date(race.getDate())
+                .build());
+        Race nextDay = entityManager.persist(Race.builder()
+                .name("Winter Grand Prix")
+                .location(new Location("Austria", "Spielberg", "Red Bull Ring"))
+                .date(race.getDate().plusDays(1))
+                .build());
+        entityManager.persist(Race.builder()
+                .name("New Year Grand Prix")
+                .location(new Location("Austria", "Spielberg", "Red Bull Ring"))
+                .date(LocalDate.of(2023, 1, 1))
+                .build());
+        entityManager.flush();
+
+        List<Race> firstPage = raceRepository.findByDateBetweenOrderByDateAscIdAsc(
+                LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31), Limit.of(1));
+        List<Race> nextPage = raceRepository.findByDateBetweenAfter(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31),
+                firstPage.get(0).getDate(), firstPage.get(0).getId(), Limit.of(10));
+
+        assertThat(firstPage).as("Ensure the first page starts with the earliest race")
+                .extracting(Race::getId).containsExactly(race.getId());
+        assertThat(nextPage).as("Ensure the next page holds the following races of the range in order")
+                .extracting(Race::getId).containsExactly(sameDay.getId(), nextDay.getId());
+    }
+}
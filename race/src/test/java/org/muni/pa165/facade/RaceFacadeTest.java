@@ -14,10 +14,14 @@ import org.muni.pa165.mapper.RaceMapper;
 import org.muni.pa165.service.RaceServiceImpl;
 import org.muni.pa165.utils.TestRaceFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -54,6 +58,17 @@ class RaceFacadeTest {
         verify(raceServiceImpl, times(1)).save(testRace);
     }
 
+    @Test
+    void saveAllRaces_savesAndReturnsRaceDtos() {
+        when(raceMapper.fromRaceCreateViewDto(testRaceCreateDto)).thenReturn(testRace);
+        when(raceServiceImpl.saveAll(List.of(testRace))).thenReturn(List.of(testRace));
+        when(raceMapper.toRaceViewDto(testRace)).thenReturn(testRaceDto);
+
+        List<RaceViewDto> savedDtos = raceFacade.saveAll(List.of(testRaceCreateDto));
+
+        assertThat(savedDtos).as("Verify a DTO is returned for every saved race").containsExactly(testRaceDto);
+    }
+
     @Test
     void findRaceById_whenFound_returnsRaceDto() {
         when(raceServiceImpl.findById(testRace.getId())).thenReturn(testRace);
@@ -68,14 +83,38 @@ class RaceFacadeTest {
     void findAllRaces_returnsAllRaceList() {
         List<Race> races = TestRaceFactory.getListOfRaceEntities();
         List<RaceViewDto> expectedRaces = TestRaceFactory.getListOfRaceViewDto();
-        when(raceServiceImpl.findAll()).thenReturn(races);
+        when(raceServiceImpl.findPage(0, 100)).thenReturn(races);
         when(raceMapper.toRaceViewDto(any(Race.class))).thenReturn(testRaceDto);
 
-        List<RaceViewDto> foundRaces = raceFacade.findAll();
+        List<RaceViewDto> foundRaces = raceFacade.findAll(0, 100, null);
 
         assertThat(foundRaces).as("Verify that the list of all race DTOs matches the expected list from TestRaceFactory").isEqualTo(expectedRaces);
     }
 
+    @Test
+    void findAllRaces_afterId_returnsRacesFollowingIt() {
+        when(raceServiceImpl.findAllAfter(1L, 10)).thenReturn(List.of(testRace));
+        when(raceMapper.toRaceViewDto(testRace)).thenReturn(testRaceDto);
+
+        List<RaceViewDto> foundDtos = raceFacade.findAll(0, 10, 1L);
+
+        assertThat(foundDtos).as("Ensure the races following the given id are returned").containsExactly(testRaceDto);
+    }
+
+    @Test
+    void exportAll_passesEachRaceAsDto() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Race>>getArgument(0).accept(testRace);
+            return null;
+        }).when(raceServiceImpl).streamAll(any());
+        when(raceMapper.toRaceViewDto(testRace)).thenReturn(testRaceDto);
+        List<RaceViewDto> exported = new ArrayList<>();
+
+        raceFacade.exportAll(exported::add);
+
+        assertThat(exported).as("Ensure every race is passed as DTO").containsExactly(testRaceDto);
+    }
+
     @Test
     void deleteRaceById_deletesRace() {
         raceFacade.deleteById(testRace.getId());
@@ -115,19 +154,19 @@ class RaceFacadeTest {
 
     @Test
     void findByLocation_whenFound_returnsRaceList() {
-        when(raceServiceImpl.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", ""))
+        when(raceServiceImpl.findByLocation("", "Czech Republic", ""))
                 .thenReturn(TestRaceFactory.getListOfRaceEntities());
         when(raceMapper.toRaceViewDto(testRace)).thenReturn(testRaceDto);
 
-        List<RaceViewDto> foundRaces = raceFacade.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
+        List<RaceViewDto> foundRaces = raceFacade.findByLocation("", "Czech Republic", "");
 
         assertThat(foundRaces).as("Validate that the list of races DTOs matches the expected list from TestRaceFactory.").isEqualTo(TestRaceFactory.getListOfRaceViewDto());
     }
 
     @Test
     void findByLocation_whenNoRacesFound_returnsEmptyList() {
-        when(raceServiceImpl.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "")).thenReturn(List.of());
-        List<RaceViewDto> result = raceFacade.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
+        when(raceServiceImpl.findByLocation("", "Czech Republic", "")).thenReturn(List.of());
+        List<RaceViewDto> result = raceFacade.findByLocation("", "Czech Republic", "");
 
         assertThat(result).as("Verify that an empty list is returned when no races are found by location").isEmpty();
     }
@@ -161,4 +200,15 @@ class RaceFacadeTest {
 
         assertThat(foundRaces).as("Verify that the list of all races with cars matches the expected list from TestRaceFactory").isEqualTo(races);
     }
+
+    @Test
+    void findAllWithCarsAsync_returnsAllRaceList() {
+        List<RaceView> races = TestRaceFactory.getListOfRaceViews();
+        when(raceServiceImpl.findAllWithCarsAsync()).thenReturn(CompletableFuture.completedFuture(races));
+
+        CompletableFuture<List<RaceView>> foundRaces = raceFacade.findAllWithCarsAsync();
+
+        assertThat(foundRaces).as("Verify that the future of all races with cars completes with the list from TestRaceFactory")
+                .isCompletedWithValue(races);
+    }
 }
@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.api.RaceCreateViewDto;
 import org.muni.pa165.api.RaceView;
 import org.muni.pa165.api.RaceViewDto;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
 import org.muni.pa165.exceptions.DataStorageException;
 import org.muni.pa165.exceptions.ExternalCallException;
@@ -24,15 +25,21 @@ import org.springframework.http.ResponseEntity;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -71,6 +78,16 @@ class RaceRestControllerTest {
         assertThat(response.getBody()).as("Ensure the body matches the expected race after successful creation").isEqualTo(raceViewDto);
     }
 
+    @Test
+    void saveRaces_validData_createsAllRaces() {
+        when(raceFacade.saveAll(List.of(raceCreateViewDto))).thenReturn(List.of(raceViewDto));
+
+        ResponseEntity<List<RaceViewDto>> response = raceRestController.saveRaces(List.of(raceCreateViewDto));
+
+        assertThat(response.getStatusCode()).as("Verify status code is CREATED when all races are created").isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).as("Ensure the body contains all the created races").containsExactly(raceViewDto);
+    }
+
     @Test
     void findById_whenFound_returnsRace() {
         when(raceFacade.findById(anyLong())).thenReturn(raceViewDto);
@@ -84,14 +101,50 @@ class RaceRestControllerTest {
     @Test
     void findAllRaces_returnsAllRaces() {
         List<RaceViewDto> races = Collections.singletonList(raceViewDto);
-        when(raceFacade.findAll()).thenReturn(races);
+        when(raceFacade.findAll(0, 100, null)).thenReturn(races);
 
-        ResponseEntity<?> response = raceRestController.findAllRaces();
+        ResponseEntity<?> response = raceRestController.findAllRaces(0, 100, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when retrieving all races").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body matches the expected list of races when all are found").isEqualTo(races);
     }
 
+    @Test
+    void findAllRaces_withoutPagingParameters_returnsWholeList() {
+        List<RaceViewDto> races = Collections.singletonList(raceViewDto);
+        when(raceFacade.findAll()).thenReturn(races);
+
+        ResponseEntity<?> response = raceRestController.findAllRaces(null, null, null);
+
+        assertThat(response.getBody()).as("Ensure clients passing no paging parameters get all races as before")
+                .isEqualTo(races);
+        verify(raceFacade, never()).findAll(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void findRacesBetween_returnsRacesBetweenDates() {
+        List<RaceViewDto> races = Collections.singletonList(raceViewDto);
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        when(raceFacade.findBetween(from, to, null, null, 100)).thenReturn(races);
+
+        ResponseEntity<?> response = raceRestController.findRacesBetween(from, to, 100, null, null);
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when retrieving races between dates").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body matches the races between the dates").isEqualTo(races);
+    }
+
+    @Test
+    void findRacesBySeason_returnsRacesOfSeason() {
+        List<RaceViewDto> races = Collections.singletonList(raceViewDto);
+        when(raceFacade.findBySeason(2024, null, null, 100)).thenReturn(races);
+
+        ResponseEntity<?> response = raceRestController.findRacesBySeason(2024, 100, null, null);
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when retrieving races of a season").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the body matches the races of the season").isEqualTo(races);
+    }
+
     @Test
     void deleteRaceById_whenFound_deletesRace() {
         doNothing().when(raceFacade).deleteById(anyLong());
@@ -105,11 +158,20 @@ class RaceRestControllerTest {
     void updateRace_whenFound_updatesRace() {
         doNothing().when(raceFacade).update(any(Race.class));
 
-        ResponseEntity<?> response = raceRestController.updateRace(raceEntity);
+        ResponseEntity<?> response = raceRestController.updateRace(raceEntity, null);
 
         assertThat(response.getStatusCode()).as("Verify status code is OK when a race is found and updated").isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    void updateRace_withIfMatch_usesVersionOfETag() {
+        raceEntity.setVersion(1L);
+
+        raceRestController.updateRace(raceEntity, "W/\"3\"");
+
+        verify(raceFacade).update(argThat(race -> race.getVersion() == 3L));
+    }
+
     @Test
     void assignCarOne_whenRaceExists_assignsCar() {
         doNothing().when(raceFacade).assignCarOne(anyLong(), anyLong());
@@ -140,7 +202,7 @@ class RaceRestControllerTest {
     @Test
     void findByLocation_whenFound_returnsRaces() {
         List<RaceViewDto> races = Collections.singletonList(raceViewDto);
-        when(raceFacade.findByLocation_CountryOrLocation_CityOrLocation_Street(any(), any(), any())).thenReturn(races);
+        when(raceFacade.findByLocation(any(), any(), any())).thenReturn(races);
 
         ResponseEntity<?> response = raceRestController.findByLocation("Brno", "Czech Republic", "Masaryk Circuit");
 
@@ -148,6 +210,16 @@ class RaceRestControllerTest {
         assertThat(response.getBody()).as("Ensure the body matches the expected list of races found by location").isEqualTo(races);
     }
 
+    @Test
+    void suggestLocations_returnsSuggestedValues() {
+        when(raceFacade.suggestLocations(LocationField.CITY, "br", 10)).thenReturn(List.of("Bratislava", "Brno"));
+
+        ResponseEntity<List<String>> response = raceRestController.suggestLocations(LocationField.CITY, "br", 10);
+
+        assertThat(response.getStatusCode()).as("Verify status code is OK when locations are suggested").isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).as("Ensure the suggested values are returned").containsExactly("Bratislava", "Brno");
+    }
+
     @Test
     void findByCarId_whenFound_returnsRaces() {
         List<RaceViewDto> races = Collections.singletonList(raceViewDto);
@@ -217,4 +289,15 @@ class RaceRestControllerTest {
         assertThat(response.getStatusCode()).as("Verify status code is OK when all races with cars are retrieved").isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).as("Ensure the body matches the expected list of races with cars").isEqualTo(races);
     }
+
+    @Test
+    void findAllWithCarsAsync_returnsAllRacesWithCars() {
+        List<RaceView> races = TestRaceFactory.getListOfRaceViews();
+        when(raceFacade.findAllWithCarsAsync()).thenReturn(CompletableFuture.completedFuture(races));
+
+        CompletableFuture<ResponseEntity<List<RaceView>>> response = raceRestController.findAllWithCarsAsync();
+
+        assertThat(response.join().getStatusCode()).as("Verify status code is OK when all races with cars are retrieved").isEqualTo(HttpStatus.OK);
+        assertThat(response.join().getBody()).as("Ensure the body matches the expected list of races with cars").isEqualTo(races);
+    }
 }
@@ -0,0 +1,130 @@
+package org.muni.pa165.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestRaceFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.DefaultOAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthentication;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncExternalServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private HttpResponse<byte[]> response;
+
+    private AsyncExternalServiceImpl asyncExternalService;
+
+    @BeforeEach
+    void setUp() {
+        asyncExternalService = new AsyncExternalServiceImpl(httpClient, objectMapper, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getCars_returnsCarsFromResponse() throws Exception {
+        List<Car> cars = TestRaceFactory.getCarEntities(List.of(1L, 2L));
+        when(response.statusCode()).thenReturn(200);
+        when(response.body()).thenReturn(objectMapper.writeValueAsBytes(cars));
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        when(httpClient.sendAsync(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        CompletableFuture<List<Car>> result = asyncExternalService.getCars(List.of(1L, 2L));
+
+        assertThat(result).as("Ensure the cars of the response are returned")
+                .succeedsWithin(Duration.ofSeconds(1))
+                .isEqualTo(cars);
+        assertThat(request.getValue().uri()).as("Ensure all ids are requested in a single call")
+                .isEqualTo(URI.create("http://car-service:8084/cars?ids=1,2"));
+    }
+
+    @Test
+    void getCars_withOpaqueToken_forwardsToken() {
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "opaque-token",
+                Instant.now(), Instant.now().plusSeconds(60));
+        SecurityContextHolder.getContext().setAuthentication(new BearerTokenAuthentication(
+                new DefaultOAuth2AuthenticatedPrincipal(Map.of("sub", "tester"), List.of()), token, List.of()));
+        when(response.statusCode()).thenReturn(200);
+        when(response.body()).thenReturn("[]".getBytes());
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        when(httpClient.sendAsync(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        assertThat(asyncExternalService.getCars(List.of(1L))).succeedsWithin(Duration.ofSeconds(1));
+        assertThat(request.getValue().headers().firstValue("Authorization"))
+                .as("Ensure the opaque token of the caller is forwarded")
+                .contains("Bearer opaque-token");
+    }
+
+    @Test
+    void getDrivers_whenServiceUnreachable_failsWithExternalCallException() {
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")));
+
+        assertThat(asyncExternalService.getDrivers(List.of(1L)))
+                .as("Expect ExternalCallException when the driver service cannot be reached")
+                .failsWithin(Duration.ofSeconds(1))
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(ExternalCallException.class)
+                .withMessageContaining("Connection refused");
+    }
+
+    @Test
+    void getComponents_whenServiceRespondsWithError_failsWithExternalCallException() {
+        when(response.statusCode()).thenReturn(500);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        assertThat(asyncExternalService.getComponents(List.of(1L)))
+                .as("Expect ExternalCallException when the component service fails")
+                .failsWithin(Duration.ofSeconds(1))
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(ExternalCallException.class)
+                .withMessageContaining("status 500");
+    }
+
+    @Test
+    void getCars_withoutIds_doesNotCallCarService() {
+        assertThat(asyncExternalService.getCars(List.of())).as("Ensure no ids resolve to no cars")
+                .succeedsWithin(Duration.ofSeconds(1))
+                .isEqualTo(List.of());
+        verifyNoInteractions(httpClient);
+    }
+}
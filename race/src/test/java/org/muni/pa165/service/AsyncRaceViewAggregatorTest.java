@@ -0,0 +1,96 @@
+package org.muni.pa165.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestRaceFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncRaceViewAggregatorTest {
+
+    @Mock
+    private AsyncExternalService asyncExternalService;
+
+    private AsyncRaceViewAggregator asyncRaceViewAggregator;
+
+    @BeforeEach
+    void setUp() {
+        asyncRaceViewAggregator = new AsyncRaceViewAggregator(asyncExternalService, 100, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void aggregate_resolvesCarsDriversAndComponents() {
+        when(asyncExternalService.getCars(anyCollection())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(TestRaceFactory.getCarEntities(invocation.getArgument(0))));
+        when(asyncExternalService.getDrivers(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(TestRaceFactory.getDriverEntity())));
+        when(asyncExternalService.getComponents(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(TestRaceFactory.getComponentEntity())));
+
+        CompletableFuture<List<RaceView>> result = asyncRaceViewAggregator.aggregate(TestRaceFactory.getListOfRaceEntities());
+
+        assertThat(result).as("Ensure every race is aggregated with both of its cars")
+                .succeedsWithin(Duration.ofSeconds(1))
+                .isEqualTo(TestRaceFactory.getListOfRaceViews());
+        verify(asyncExternalService).getCars(List.of(1L, 2L));
+    }
+
+    @Test
+    void aggregate_whenLookupsExceedTimeout_failsWithExternalCallException() {
+        asyncRaceViewAggregator = new AsyncRaceViewAggregator(asyncExternalService, 100, Duration.ofMillis(100));
+        when(asyncExternalService.getCars(anyCollection())).thenReturn(new CompletableFuture<>());
+
+        CompletableFuture<List<RaceView>> result = asyncRaceViewAggregator.aggregate(List.of(TestRaceFactory.getRaceEntity()));
+
+        assertThat(result).as("Expect ExternalCallException when the aggregation misses its deadline")
+                .failsWithin(Duration.ofSeconds(1))
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(ExternalCallException.class)
+                .withMessageContaining("did not finish within");
+    }
+
+    @Test
+    void aggregate_whenExternalCallFails_failsWithOriginalException() {
+        when(asyncExternalService.getCars(anyCollection()))
+                .thenReturn(CompletableFuture.failedFuture(new ExternalCallException("Service unavailable")));
+
+        CompletableFuture<List<RaceView>> result = asyncRaceViewAggregator.aggregate(List.of(TestRaceFactory.getRaceEntity()));
+
+        assertThat(result).as("Expect the original exception of a failed lookup to be propagated")
+                .failsWithin(Duration.ofSeconds(1))
+                .withThrowableThat()
+                .havingRootCause()
+                .isInstanceOf(ExternalCallException.class)
+                .withMessageContaining("Service unavailable");
+    }
+
+    @Test
+    void aggregate_raceWithoutCars_doesNotCallOtherServices() {
+        Race race = TestRaceFactory.getRaceEntity();
+        race.setCar1Id(null);
+        race.setCar2Id(null);
+
+        CompletableFuture<List<RaceView>> result = asyncRaceViewAggregator.aggregate(List.of(race));
+
+        assertThat(result).as("Ensure a race without assigned cars is returned without car views")
+                .succeedsWithin(Duration.ofSeconds(1))
+                .satisfies(views -> assertThat(views.get(0).getCar1()).isNull());
+        verify(asyncExternalService, never()).getCars(anyCollection());
+    }
+}
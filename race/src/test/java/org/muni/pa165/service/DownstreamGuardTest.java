@@ -0,0 +1,105 @@
+package org.muni.pa165.service;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class DownstreamGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DownstreamGuard downstreamGuard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        downstreamGuard = new DownstreamGuard(meterRegistry, 50, Duration.ofSeconds(3), 4,
+                Duration.ofMinutes(1), 1, Duration.ZERO);
+    }
+
+    @Test
+    void call_whenServiceKeepsFailing_opensCircuitAndRejectsWithoutCalling() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> downstreamGuard.call("car", () -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("Connection refused");
+            })).as("Expect ExternalCallException when the service cannot be reached")
+                    .isInstanceOf(ExternalCallException.class);
+        }
+
+        assertThatThrownBy(() -> downstreamGuard.call("car", calls::incrementAndGet))
+                .as("Expect the call to be rejected while the circuit is open")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("suspended");
+        assertThat(calls.get()).as("Ensure the rejected call does not reach the service").isEqualTo(4);
+        assertThat(downstreamGuard.getState("car")).as("Ensure the circuit of the failing service is open")
+                .isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(downstreamGuard.getState("driver")).as("Ensure circuits of other services stay closed")
+                .isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.counter(DownstreamGuard.REJECTIONS_METRIC_NAME,
+                "service", "car", "reason", "circuit-open").count())
+                .as("Ensure the rejection is counted").isEqualTo(1);
+    }
+
+    @Test
+    void call_whenServiceRespondsNotFound_keepsCircuitClosed() {
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> downstreamGuard.call("car", () -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            })).as("Expect the client error to be propagated").isInstanceOf(HttpClientErrorException.class);
+        }
+
+        assertThat(downstreamGuard.getState("car")).as("Ensure not found responses are not counted as failures")
+                .isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void call_whenBulkheadIsFull_rejectsConcurrentCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> slowCall = CompletableFuture.supplyAsync(() -> downstreamGuard.call("component", () -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).as("Ensure the slow call is in progress").isTrue();
+
+        assertThatThrownBy(() -> downstreamGuard.call("component", () -> true))
+                .as("Expect the call over the concurrency limit to be rejected")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("Too many concurrent calls");
+        release.countDown();
+
+        assertThat(slowCall.get(5, TimeUnit.SECONDS)).as("Ensure the call within the limit completes").isTrue();
+        assertThat(meterRegistry.counter(DownstreamGuard.REJECTIONS_METRIC_NAME,
+                "service", "component", "reason", "bulkhead-full").count())
+                .as("Ensure the rejection is counted").isEqualTo(1);
+    }
+
+    @Test
+    void call_exportsCircuitBreakerState() {
+        downstreamGuard.call("driver", () -> true);
+
+        assertThat(meterRegistry.find("resilience4j.circuitbreaker.state").tag("name", "driver").gauges())
+                .as("Ensure the circuit breaker state is exported").isNotEmpty();
+    }
+}
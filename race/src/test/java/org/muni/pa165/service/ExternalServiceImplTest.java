@@ -1,23 +1,43 @@
 package org.muni.pa165.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.muni.pa165.api.Car;
 import org.muni.pa165.api.Component;
+import org.muni.pa165.api.DeletionFeed;
 import org.muni.pa165.api.Driver;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class ExternalServiceImplTest {
@@ -42,7 +62,11 @@ public class ExternalServiceImplTest {
         mockedStatic.when(RestClient::create).thenReturn(mockRestClient);
 
         mockRestTemplate = mock(RestTemplate.class);
-        externalService = new ExternalServiceImpl(mockRestTemplate);
+        externalService = new ExternalServiceImpl(mockRestTemplate, new DownstreamGuard(new SimpleMeterRegistry(),
+                50, Duration.ofSeconds(3), 20, Duration.ofSeconds(10), 32, Duration.ofMillis(100)),
+                new HedgedReads(new SimpleMeterRegistry(), Executors.newVirtualThreadPerTaskExecutor(),
+                        false, Duration.ofMillis(100), 3, Duration.ofMillis(1)),
+                Duration.ofMinutes(10), 100, 100, 2);
 
         when(mockRestClient.get()).thenReturn(mockRequestHeadersUriSpec);
         when(mockRequestHeadersUriSpec.uri(anyString())).thenReturn(mockRequestHeadersSpec);
@@ -58,7 +82,7 @@ public class ExternalServiceImplTest {
     void carExists_WhenCarExists_ReturnsTrue() {
         when(mockResponseSpec.toEntity(Car.class)).thenReturn(ResponseEntity.ok(new Car()));
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Car.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
                 .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.OK));
         assertTrue(externalService.carExists(1L));
     }
@@ -66,7 +90,7 @@ public class ExternalServiceImplTest {
     @Test
     void carExists_WhenCarDoesNotExist_ReturnsFalse() {
         when(mockResponseSpec.toEntity(Car.class)).thenReturn(ResponseEntity.notFound().build());
-        when(mockRestTemplate.getForEntity(anyString(), eq(Car.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
                 .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.NOT_FOUND));
 
         assertFalse(externalService.carExists(99L));
@@ -76,7 +100,7 @@ public class ExternalServiceImplTest {
     void getCar_WhenCarExists_ReturnsCar() {
         when(mockResponseSpec.toEntity(Car.class)).thenReturn(ResponseEntity.ok(new Car()));
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Car.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
                 .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.OK));
         ResponseEntity<Car> actualCar = externalService.getCar(1L);
         assertTrue(actualCar.getStatusCode().is2xxSuccessful());
@@ -86,7 +110,7 @@ public class ExternalServiceImplTest {
     void getCar_WhenCarDoesNotExist_ReturnsNotFound() {
         when(mockResponseSpec.toEntity(Car.class)).thenReturn(ResponseEntity.notFound().build());
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Car.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
                 .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.NOT_FOUND));
         ResponseEntity<Car> actualCar = externalService.getCar(99L);
         assertTrue(actualCar.getStatusCode().is4xxClientError());
@@ -96,7 +120,7 @@ public class ExternalServiceImplTest {
     void getDriver_WhenDriverExists_ReturnsDriver() {
         when(mockResponseSpec.toEntity(Driver.class)).thenReturn(ResponseEntity.ok(new Driver()));
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Driver.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
                 .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.OK));
         ResponseEntity<Driver> actualDriver = externalService.getDriver(1L);
         assertTrue(actualDriver.getStatusCode().is2xxSuccessful());
@@ -106,7 +130,7 @@ public class ExternalServiceImplTest {
     void getDriver_WhenDriverDoesNotExist_ReturnsNotFound() {
         when(mockResponseSpec.toEntity(Driver.class)).thenReturn(ResponseEntity.notFound().build());
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Driver.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
                 .thenReturn(new ResponseEntity<>(new Driver(), HttpStatus.NOT_FOUND));
         ResponseEntity<Driver> actualDriver = externalService.getDriver(99L);
         assertTrue(actualDriver.getStatusCode().is4xxClientError());
@@ -116,7 +140,7 @@ public class ExternalServiceImplTest {
     void getComponent_WhenComponentExists_ReturnsComponent() {
         when(mockResponseSpec.toEntity(Component.class)).thenReturn(ResponseEntity.ok(new Component()));
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Component.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
                 .thenReturn(new ResponseEntity<>(new Component(), HttpStatus.OK));
         ResponseEntity<Component> actualComponent = externalService.getComponent(1L);
         assertTrue(actualComponent.getStatusCode().is2xxSuccessful());
@@ -126,9 +150,117 @@ public class ExternalServiceImplTest {
     void getComponent_WhenComponentDoesNotExist_ReturnsNotFound() {
         when(mockResponseSpec.toEntity(Component.class)).thenReturn(ResponseEntity.notFound().build());
 
-        when(mockRestTemplate.getForEntity(anyString(), eq(Component.class)))
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Component.class)))
                 .thenReturn(new ResponseEntity<>(new Component(), HttpStatus.NOT_FOUND));
         ResponseEntity<Component> actualComponent = externalService.getComponent(99L);
         assertTrue(actualComponent.getStatusCode().is4xxClientError());
     }
+
+    @Test
+    void getCars_WhenCarsExist_ReturnsCarsInOneCall() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Car[].class), eq("1,2")))
+                .thenReturn(new Car[]{new Car(), new Car()});
+
+        List<Car> actualCars = externalService.getCars(List.of(1L, 2L));
+        assertEquals(2, actualCars.size());
+    }
+
+    @Test
+    void getCars_WhenMoreIdsThanBatchSize_ReadsCarsInBatches() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Car[].class), eq("1,2")))
+                .thenReturn(new Car[]{new Car(), new Car()});
+        when(mockRestTemplate.getForObject(anyString(), eq(Car[].class), eq("3")))
+                .thenReturn(new Car[]{new Car()});
+
+        List<Car> actualCars = externalService.getCars(List.of(1L, 2L, 3L));
+        assertEquals(3, actualCars.size());
+    }
+
+    @Test
+    void getDrivers_WhenNoIdsGiven_DoesNotCallService() {
+        List<Driver> actualDrivers = externalService.getDrivers(List.of());
+        assertTrue(actualDrivers.isEmpty());
+        verifyNoInteractions(mockRestTemplate);
+    }
+
+    @Test
+    void getComponents_WhenServiceUnavailable_ThrowsExternalCallException() {
+        when(mockRestTemplate.getForObject(anyString(), eq(Component[].class), eq("1")))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        assertThrows(ExternalCallException.class, () -> externalService.getComponents(List.of(1L)));
+    }
+
+    @Test
+    void carExists_whenCached_doesNotCallCarService() {
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
+                .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.OK));
+
+        externalService.carExists(1L);
+
+        assertTrue(externalService.carExists(1L));
+        verify(mockRestTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class));
+    }
+
+    @Test
+    void findMissingCars_readsUnknownCarsInOneCallAndCachesFound() {
+        Car car = new Car();
+        car.setId(1L);
+        when(mockRestTemplate.getForObject(anyString(), eq(Car[].class), eq("1,2")))
+                .thenReturn(new Car[]{car});
+
+        assertEquals(Set.of(2L), externalService.findMissingCars(List.of(1L, 2L)));
+        assertTrue(externalService.carExists(1L));
+        verify(mockRestTemplate, times(1)).getForObject(anyString(), eq(Car[].class), eq("1,2"));
+    }
+
+    @Test
+    void syncDeletions_deletedCar_isCheckedAgain() {
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
+                .thenReturn(new ResponseEntity<>(new Car(), HttpStatus.OK))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        when(mockRestTemplate.getForObject(anyString(), eq(DeletionFeed.class)))
+                .thenReturn(new DeletionFeed(3L, List.of(), true));
+        when(mockRestTemplate.getForObject(anyString(), eq(DeletionFeed.class), eq(3L)))
+                .thenReturn(new DeletionFeed(4L, List.of(1L), false));
+
+        externalService.syncDeletions();
+        externalService.carExists(1L);
+        externalService.syncDeletions();
+
+        assertFalse(externalService.carExists(1L));
+    }
+
+    @Test
+    void getCar_whenNotModified_returnsCachedCarAfterRevalidation() {
+        Car car = Car.builder().id(1L).carMake("Ferrari").build();
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Car.class)))
+                .thenReturn(ResponseEntity.ok().eTag("3").body(car))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("3").build());
+
+        externalService.getCar(1L);
+        ResponseEntity<Car> actualCar = externalService.getCar(1L);
+
+        assertEquals(HttpStatus.OK, actualCar.getStatusCode());
+        assertSame(car, actualCar.getBody());
+        ArgumentCaptor<HttpEntity> requests = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(mockRestTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), requests.capture(), eq(Car.class));
+        assertTrue(requests.getAllValues().get(0).getHeaders().getIfNoneMatch().isEmpty());
+        assertEquals(List.of("\"3\""), requests.getAllValues().get(1).getHeaders().getIfNoneMatch());
+    }
+
+    @Test
+    void getDriver_whenModified_returnsAndCachesNewDriver() {
+        Driver driver = Driver.builder().id(1L).name("Lewis").build();
+        Driver updatedDriver = Driver.builder().id(1L).name("Max").build();
+        when(mockRestTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(Driver.class)))
+                .thenReturn(ResponseEntity.ok().eTag("0").body(driver))
+                .thenReturn(ResponseEntity.ok().eTag("1").body(updatedDriver))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("1").build());
+
+        externalService.getDriver(1L);
+        externalService.getDriver(1L);
+
+        assertSame(updatedDriver, externalService.getDriver(1L).getBody());
+    }
 }
@@ -0,0 +1,196 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class HedgedReadsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private HedgedReads hedgedReads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        hedgedReads = new HedgedReads(meterRegistry, executor, true, Duration.ofMillis(50), 3, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void get_whenFirstReadIsSlow_returnsResultOfHedge() {
+        CountDownLatch hedgeReturned = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = hedgedReads.get("car", () -> {
+            if (reads.incrementAndGet() == 1) {
+                await(hedgeReturned);
+                return "primary";
+            }
+            return "hedge";
+        });
+        hedgeReturned.countDown();
+
+        assertThat(result).as("Ensure the faster duplicate read is used").isEqualTo("hedge");
+        assertThat(reads.get()).as("Ensure exactly one duplicate read is sent").isEqualTo(2);
+        assertThat(hedges("car", "hedge")).as("Ensure the winning hedge is counted").isEqualTo(1);
+    }
+
+    @Test
+    void get_whenExecutorIsFull_readsOnCallingThreadWithoutHedge() {
+        HedgedReads saturated = new HedgedReads(meterRegistry, task -> {
+            throw new RejectedExecutionException("No free thread");
+        }, true, Duration.ofMillis(50), 3, Duration.ofMillis(1));
+        Thread caller = Thread.currentThread();
+
+        String result = saturated.get("car", () -> Thread.currentThread() == caller ? "caller" : "executor");
+
+        assertThat(result).as("Ensure a read rejected by the executor runs on the calling thread").isEqualTo("caller");
+        assertThat(meterRegistry.find(HedgedReads.HEDGES_METRIC_NAME).counters())
+                .as("Ensure no hedge is counted").isEmpty();
+    }
+
+    @Test
+    void get_whenReadIsFast_sendsNoHedge() {
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = hedgedReads.get("driver", () -> {
+            reads.incrementAndGet();
+            return "driver";
+        });
+
+        assertThat(result).as("Ensure the result of the read is returned").isEqualTo("driver");
+        assertThat(reads.get()).as("Ensure no duplicate read is sent").isEqualTo(1);
+        assertThat(meterRegistry.find(HedgedReads.HEDGES_METRIC_NAME).counters())
+                .as("Ensure no hedge is counted").isEmpty();
+    }
+
+    @Test
+    void get_whenReadFailsOnConnection_retriesIt() {
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = hedgedReads.get("component", () -> {
+            if (reads.incrementAndGet() < 3) {
+                throw new ResourceAccessException("Connection reset");
+            }
+            return "component";
+        });
+
+        assertThat(result).as("Ensure the result of the successful attempt is returned").isEqualTo("component");
+        assertThat(meterRegistry.counter(HedgedReads.RETRIES_METRIC_NAME, "service", "component").count())
+                .as("Ensure both retries are counted").isEqualTo(2);
+    }
+
+    @Test
+    void get_whenServerErrorPersists_throwsAfterMaxAttempts() {
+        AtomicInteger reads = new AtomicInteger();
+
+        assertThatThrownBy(() -> hedgedReads.get("component", () -> {
+            reads.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        })).as("Expect the last server error to be rethrown").isInstanceOf(HttpServerErrorException.class);
+        assertThat(reads.get()).as("Ensure the read is attempted at most three times").isEqualTo(3);
+    }
+
+    @Test
+    void get_whenNotFound_doesNotRetry() {
+        AtomicInteger reads = new AtomicInteger();
+
+        assertThatThrownBy(() -> hedgedReads.get("car", () -> {
+            reads.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        })).as("Expect not found to be rethrown").isInstanceOf(HttpClientErrorException.class);
+        assertThat(reads.get()).as("Ensure a not found answer is not retried").isEqualTo(1);
+    }
+
+    @Test
+    void get_whenGuardedReadFailsOnConnection_retriesIt() {
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = hedgedReads.get("car", () -> {
+            if (reads.incrementAndGet() == 1) {
+                throw new ExternalCallException("Connection refused", new ResourceAccessException("Connection refused"));
+            }
+            return "car";
+        });
+
+        assertThat(result).as("Ensure an unreachable service reported by the guard is retried").isEqualTo("car");
+    }
+
+    @Test
+    void get_withoutBackoff_retriesAtOnce() {
+        HedgedReads withoutBackoff = new HedgedReads(meterRegistry, executor, false, Duration.ofMillis(50), 3, Duration.ZERO);
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = withoutBackoff.get("car", () -> {
+            if (reads.incrementAndGet() == 1) {
+                throw new ResourceAccessException("Connection refused");
+            }
+            return "car";
+        });
+
+        assertThat(result).as("Ensure a zero backoff is a valid configuration").isEqualTo("car");
+    }
+
+    @Test
+    void get_whenBulkheadIsFull_hedgeIsRejectedAndPrimaryIsUsed() {
+        DownstreamGuard guard = new DownstreamGuard(meterRegistry, 50, Duration.ofSeconds(3), 20,
+                Duration.ofSeconds(10), 1, Duration.ZERO);
+        AtomicInteger reads = new AtomicInteger();
+
+        String result = hedgedReads.get("car", () -> guard.call("car", () -> {
+            reads.incrementAndGet();
+            // holds the only slot until the hedge was turned away
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bulkheadRejections("car") == 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return "primary";
+        }));
+
+        assertThat(result).as("Ensure the read holding the only slot answers").isEqualTo("primary");
+        assertThat(reads.get()).as("Ensure the hedge did not run without a slot of its own").isEqualTo(1);
+        assertThat(bulkheadRejections("car")).as("Ensure the hedge is counted against the bulkhead").isEqualTo(1);
+    }
+
+    private double bulkheadRejections(String service) {
+        return meterRegistry.counter(DownstreamGuard.REJECTIONS_METRIC_NAME, "service", service,
+                "reason", "bulkhead-full").count();
+    }
+
+    private double hedges(String service, String winner) {
+        return meterRegistry.counter(HedgedReads.HEDGES_METRIC_NAME, "service", service, "winner", winner).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
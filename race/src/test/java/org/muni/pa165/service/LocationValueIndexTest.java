@@ -0,0 +1,66 @@
+package org.muni.pa165.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationValueIndexTest {
+
+    private LocationValueIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LocationValueIndex();
+        index.add("Brno");
+        index.add("Bratislava");
+        index.add(" Barcelona ");
+        index.add("BRNO");
+        index.add(null);
+    }
+
+    @Test
+    void startingWith_returnsValuesWithPrefixIgnoringCase() {
+        assertThat(index.startingWith("bR", 10)).as("Ensure values starting with the prefix are suggested in order")
+                .containsExactly("Bratislava", "Brno");
+    }
+
+    @Test
+    void startingWith_returnsAtMostLimitValues() {
+        assertThat(index.startingWith("b", 2)).as("Ensure the number of suggestions is limited").hasSize(2);
+    }
+
+    @Test
+    void containing_returnsNormalizedValuesContainingText() {
+        assertThat(index.containing("SLAV")).as("Ensure values are found by a part of them")
+                .containsExactly("bratislava");
+        assertThat(index.containing("rn")).as("Ensure values are found by a text shorter than a trigram")
+                .containsExactly("brno");
+        assertThat(index.containing("barcelona")).as("Ensure values are trimmed before they are indexed")
+                .containsExactly("barcelona");
+    }
+
+    @Test
+    void remove_whenAnotherRaceHasTheValue_keepsIt() {
+        index.remove("brno");
+
+        assertThat(index.containing("brno")).as("Ensure a value of another race is kept").containsExactly("brno");
+
+        index.remove("Brno ");
+
+        assertThat(index.containing("brno")).as("Ensure a value no race has is dropped").isEmpty();
+        assertThat(index.startingWith("br", 10)).as("Ensure a dropped value is not suggested")
+                .containsExactly("Bratislava");
+    }
+
+    @Test
+    void normalize_trimsOnlySpacesLikeTheDatabase() {
+        assertThat(LocationValueIndex.normalize(" Monte Carlo\t ")).as("Ensure other whitespace is kept")
+                .isEqualTo("monte carlo\t");
+    }
+
+    @Test
+    void containing_whenNoValueContainsText_returnsNothing() {
+        assertThat(index.containing("brx")).as("Ensure no value is matched by a text it does not contain").isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package org.muni.pa165.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.muni.pa165.data.domain.Location;
+import org.muni.pa165.data.domain.LocationField;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.repository.RaceRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RaceLocationIndexTest {
+
+    private RaceLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        RaceRepository raceRepository = mock(RaceRepository.class);
+        when(raceRepository.findAll()).thenReturn(List.of(
+                race(1L, new Location("Monaco", "Monte Carlo", "Circuit de Monaco")),
+                race(2L, new Location("Italy", "Monza", "Autodromo Nazionale")),
+                race(3L, new Location("Italy", "Imola", "Autodromo Enzo e Dino Ferrari"))));
+        index = new RaceLocationIndex(raceRepository);
+        index.load();
+    }
+
+    @Test
+    void put_existingRace_replacesItsValues() {
+        index.put(List.of(race(1L, new Location("Belgium", "Spa", "Circuit de Spa-Francorchamps"))));
+
+        assertThat(index.matching(LocationField.COUNTRY, "monaco")).as("Ensure the previous value is dropped").isEmpty();
+        assertThat(index.matching(LocationField.COUNTRY, "belg")).as("Ensure the race is found by its new value")
+                .containsExactly("belgium");
+    }
+
+    @Test
+    void remove_race_dropsOnlyValuesNoOtherRaceHas() {
+        index.remove(2L);
+
+        assertThat(index.matching(LocationField.CITY, "monza")).as("Ensure the value of the removed race is dropped")
+                .isEmpty();
+        assertThat(index.matching(LocationField.COUNTRY, "italy")).as("Ensure a value shared with another race is kept")
+                .containsExactly("italy");
+    }
+
+    @Test
+    void clear_dropsAllValues() {
+        index.clear();
+
+        assertThat(index.suggest(LocationField.STREET, "", 10)).as("Ensure no value is suggested after clearing")
+                .isEmpty();
+    }
+
+    private static Race race(Long id, Location location) {
+        return Race.builder()
+                .id(id)
+                .name("Grand Prix")
+                .location(location)
+                .date(LocalDate.of(2023, 5, 28))
+                .build();
+    }
+}
@@ -1,32 +1,54 @@
 package org.muni.pa165.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.LocationField;
 import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.domain.RaceCar;
+import org.muni.pa165.data.repository.RaceCarRepository;
 import org.muni.pa165.data.repository.RaceRepository;
 import org.muni.pa165.exceptions.DataStorageException;
+import org.muni.pa165.exceptions.RaceConflictException;
 import org.muni.pa165.exceptions.RaceNotFoundException;
 import org.muni.pa165.exceptions.RaceValidationException;
+import org.muni.pa165.exceptions.RaceVersionRequiredException;
 import org.muni.pa165.utils.TestRaceFactory;
-import org.springframework.http.ResponseEntity;
-
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,34 +57,65 @@ class RaceServiceImplTest {
     @Mock
     private RaceRepository raceRepository;
 
+    @Mock
+    private RaceCarRepository raceCarRepository;
+
     @Mock
     private ExternalService externalService;
 
-    @InjectMocks
+    @Mock
+    private AsyncExternalService asyncExternalService;
+
+    @Mock
+    private RaceWithCarsProjection raceWithCarsProjection;
+
+    @Mock
+    private RaceLocationIndex raceLocationIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
     private RaceServiceImpl raceServiceImpl;
 
     private Race testRace;
 
     @BeforeEach
     void setUp() {
+        AsyncRaceViewAggregator asyncRaceViewAggregator = new AsyncRaceViewAggregator(asyncExternalService,
+                100, Duration.ofSeconds(5));
+        raceServiceImpl = new RaceServiceImpl(raceRepository, raceCarRepository, externalService,
+                raceWithCarsProjection, asyncRaceViewAggregator, raceLocationIndex, entityManager, Runnable::run);
         testRace = TestRaceFactory.getRaceEntity();
     }
 
     @Test
     void saveRace_validRace_savesAndReturnsRace() {
         when(raceRepository.save(any(Race.class))).thenReturn(testRace);
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         Race result = raceServiceImpl.save(testRace);
 
         verify(raceRepository).save(testRace);
+        verify(raceWithCarsProjection).refresh(testRace);
         assertThat(result).as("Ensure the race saved is the same as the race returned").isSameAs(testRace);
     }
 
+    @Test
+    void saveRace_validRace_assignsBothCars() {
+        when(raceRepository.save(any(Race.class))).thenReturn(testRace);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        raceServiceImpl.save(testRace);
+
+        verify(raceCarRepository).saveAll(List.of(
+                RaceCar.builder().raceId(testRace.getId()).slot(RaceCar.SLOT_ONE).carId(1L).build(),
+                RaceCar.builder().raceId(testRace.getId()).slot(RaceCar.SLOT_TWO).carId(2L).build()));
+    }
+
     @Test
     void saveRace_invalidRace_throwsException() {
         testRace.setName(null);
-        when(externalService.carExists(anyLong())).thenReturn(true); // Invalid name
+        when(externalService.findMissingCars(any())).thenReturn(Set.of()); // Invalid name
 
         assertThatThrownBy(() -> raceServiceImpl.save(testRace))
                 .as("Expect RaceValidationException when race data is invalid")
@@ -70,6 +123,33 @@ class RaceServiceImplTest {
                 .hasMessageContaining("Race name cannot be empty");
     }
 
+    @Test
+    void saveAllRaces_checksAllCarsAtOnce() {
+        List<Race> races = List.of(testRace, TestRaceFactory.getRaceEntity());
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        List<Race> result = raceServiceImpl.saveAll(races);
+
+        verify(externalService).findMissingCars(Set.of(1L, 2L));
+        verify(raceRepository).saveAll(races);
+        verify(raceWithCarsProjection).refresh(races);
+        verify(entityManager).flush();
+        assertThat(result).as("Ensure all the saved races are returned").isEqualTo(races);
+    }
+
+    @Test
+    void saveAllRaces_invalidRace_savesNothing() {
+        Race invalidRace = TestRaceFactory.getRaceEntity();
+        invalidRace.setName(null);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        assertThatThrownBy(() -> raceServiceImpl.saveAll(List.of(testRace, invalidRace)))
+                .as("Expect RaceValidationException when any of the races is invalid")
+                .isInstanceOf(RaceValidationException.class)
+                .hasMessageContaining("Race name cannot be empty");
+        verify(raceRepository, never()).saveAll(any());
+    }
+
     @Test
     void findRaceById_whenFound_returnsRace() {
         when(raceRepository.findById(testRace.getId())).thenReturn(Optional.of(testRace));
@@ -101,6 +181,36 @@ class RaceServiceImplTest {
         assertThat(result).as("Check if the list of all races matches the expected list").isEqualTo(expectedRaces);
     }
 
+    @Test
+    void findPage_sizeOverLimit_readsAtMostMaxPageSize() {
+        when(raceRepository.findAllBy(PageRequest.of(2, RaceServiceImpl.MAX_PAGE_SIZE, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(List.of(testRace)));
+
+        List<Race> result = raceServiceImpl.findPage(2, 5000);
+
+        assertThat(result).as("Ensure only the requested slice is read").containsExactly(testRace);
+    }
+
+    @Test
+    void findAllAfter_returnsRacesFollowingId() {
+        when(raceRepository.findByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(List.of(testRace));
+
+        List<Race> result = raceServiceImpl.findAllAfter(5L, 10);
+
+        assertThat(result).as("Ensure the races following the given id are returned").containsExactly(testRace);
+    }
+
+    @Test
+    void streamAll_passesEachRaceAndDetachesIt() {
+        when(raceRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(testRace));
+        List<Race> passed = new ArrayList<>();
+
+        raceServiceImpl.streamAll(passed::add);
+
+        assertThat(passed).as("Ensure every race is passed to the action").containsExactly(testRace);
+        verify(entityManager).detach(testRace);
+    }
+
     @Test
     void findAllRaces_whenNoneFound_throwsException() {
         when(raceRepository.findAll()).thenReturn(Collections.emptyList());
@@ -113,18 +223,20 @@ class RaceServiceImplTest {
 
     @Test
     void deleteRaceById_deletesRace() {
-        when(raceRepository.existsById(anyLong())).thenReturn(true);
-        doNothing().when(raceRepository).deleteById(anyLong());
+        when(raceRepository.removeById(anyLong())).thenReturn(1);
 
         raceServiceImpl.deleteById(testRace.getId());
 
-        verify(raceRepository).deleteById(testRace.getId());
+        verify(raceRepository).removeById(testRace.getId());
+        verify(raceCarRepository).deleteByRaceIds(List.of(testRace.getId()));
+        verify(raceWithCarsProjection).remove(testRace.getId());
+        verify(raceLocationIndex).remove(testRace.getId());
         assertThat(true).as("Ensure the method deleteRaceById effectively requests deletion of the race").isTrue();
     }
 
     @Test
     void deleteRaceById_whenNotFound_throwsException() {
-        when(raceRepository.existsById(anyLong())).thenReturn(false);
+        when(raceRepository.removeById(anyLong())).thenReturn(0);
 
         assertThatThrownBy(() -> raceServiceImpl.deleteById(testRace.getId()))
                 .as("Expect RaceNotFoundException when trying to delete a component that does not exist")
@@ -134,30 +246,45 @@ class RaceServiceImplTest {
 
     @Test
     void deleteAllRaces_deletesAllRaces() {
-        doNothing().when(raceRepository).deleteAll();
+        doNothing().when(raceRepository).deleteAllInBatch();
 
         raceServiceImpl.deleteAll();
 
-        verify(raceRepository).deleteAll();
+        verify(raceRepository).deleteAllInBatch();
+        verify(raceWithCarsProjection).removeAll();
+        verify(raceLocationIndex).clear();
         assertThat(true).as("Confirm that deleteAllRaces requests deletion of all races").isTrue();
     }
 
     @Test
     void updateRace_whenRaceExists_updatesRace() {
-        when(raceRepository.existsById(testRace.getId())).thenReturn(true);
-        when(raceRepository.save(any(Race.class))).thenReturn(testRace);
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        testRace.setVersion(2L);
+        when(raceRepository.updateIfVersionMatches(testRace)).thenReturn(1);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         raceServiceImpl.update(testRace);
 
-        verify(raceRepository).save(testRace);
+        verify(raceRepository).updateIfVersionMatches(testRace);
+        verify(raceWithCarsProjection).refresh(testRace);
         assertThat(true).as("Verify that updateRace updates and saves the race").isTrue();
     }
 
+    @Test
+    void updateRace_withoutVersion_throwsVersionRequiredException() {
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        assertThatThrownBy(() -> raceServiceImpl.update(testRace))
+                .as("Expect RaceVersionRequiredException when the race is sent without the version it was read in")
+                .isInstanceOf(RaceVersionRequiredException.class);
+        verify(raceRepository, never()).updateIfVersionMatches(any());
+    }
+
     @Test
     void updateRace_whenRaceDoesNotExist_throwException() {
+        testRace.setVersion(2L);
+        when(raceRepository.updateIfVersionMatches(testRace)).thenReturn(0);
         when(raceRepository.existsById(testRace.getId())).thenReturn(false);
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceNotFoundException when trying to update a care that does not exist")
@@ -165,10 +292,36 @@ class RaceServiceImplTest {
                 .hasMessageContaining("Cannot update, race not found with id: " + testRace.getId());
     }
 
+    @Test
+    void updateRace_whenVersionIsStale_throwsConflictException() {
+        testRace.setVersion(2L);
+        when(raceRepository.updateIfVersionMatches(testRace)).thenReturn(0);
+        when(raceRepository.existsById(testRace.getId())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        assertThatThrownBy(() -> raceServiceImpl.update(testRace))
+                .as("Expect RaceConflictException when the race was changed since it was read")
+                .isInstanceOf(RaceConflictException.class)
+                .hasMessageContaining("version 2 is no longer current");
+        verify(raceWithCarsProjection, never()).refresh(any(Race.class));
+    }
+
+    @Test
+    void updateRace_whenRaceIsDeletedMeanwhile_throwsNotFoundException() {
+        testRace.setVersion(2L);
+        when(raceRepository.updateIfVersionMatches(testRace)).thenReturn(0);
+        when(raceRepository.existsById(testRace.getId())).thenReturn(false);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
+
+        assertThatThrownBy(() -> raceServiceImpl.update(testRace))
+                .as("Expect RaceNotFoundException when the race was deleted since it was read")
+                .isInstanceOf(RaceNotFoundException.class);
+    }
+
     @Test
     void updateRace_whenRaceLocationIsEmpty_throwsException() {
         testRace.setLocation(null); // Empty location
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceValidationException when trying to update a race with an empty location")
@@ -179,7 +332,7 @@ class RaceServiceImplTest {
     @Test
     void updateRace_whenRaceLocationCountryIsEmpty_throwsException() {
         testRace.getLocation().setCountry(""); // Empty country
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceValidationException when trying to update a race location with an empty country")
@@ -190,7 +343,7 @@ class RaceServiceImplTest {
     @Test
     void updateRace_whenRaceLocationCityIsEmpty_throwsException() {
         testRace.getLocation().setCity(""); // Empty city
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceValidationException when trying to update a race location with an empty city")
@@ -201,7 +354,7 @@ class RaceServiceImplTest {
     @Test
     void updateRace_whenRaceLocationStreetIsEmpty_throwsException() {
         testRace.getLocation().setStreet(""); // Empty street
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceValidationException when trying to update a race location with an empty street")
@@ -212,7 +365,7 @@ class RaceServiceImplTest {
     @Test
     void updateRace_whenRaceDateIsEmpty_throwsException() {
         testRace.setDate(null); // Empty date
-        when(externalService.carExists(anyLong())).thenReturn(true);
+        when(externalService.findMissingCars(any())).thenReturn(Set.of());
 
         assertThatThrownBy(() -> raceServiceImpl.update(testRace))
                 .as("Expect RaceValidationException when trying to update a race date that is empty")
@@ -231,6 +384,19 @@ class RaceServiceImplTest {
         assertThat(testRace.getCar1Id()).as("Ensure car one is assigned to the race").isEqualTo(carId);
     }
 
+    @Test
+    void assignCarOne_replacesCarsAssignedToRace() {
+        testRace.setCar2Id(null);
+        when(raceRepository.findById(testRace.getId())).thenReturn(Optional.of(testRace));
+        when(externalService.carExists(anyLong())).thenReturn(true);
+
+        raceServiceImpl.assignCarOne(testRace.getId(), 3L);
+
+        verify(raceCarRepository).deleteByRaceIds(List.of(testRace.getId()));
+        verify(raceCarRepository).saveAll(List.of(
+                RaceCar.builder().raceId(testRace.getId()).slot(RaceCar.SLOT_ONE).carId(3L).build()));
+    }
+
     @Test
     void assignCarOne_whenRaceDoesNotExist_throwsException() {
         Long carId = 1L;
@@ -263,24 +429,69 @@ class RaceServiceImplTest {
     }
 
     @Test
-    void findByLocation_whenFound_returnsRacesByLocation() {
+    void findByLocation_whenFound_readsRacesWithMatchingValues() {
         List<Race> expectedRaces = Collections.singletonList(testRace);
-        when(raceRepository.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "")).thenReturn(expectedRaces);
+        when(raceLocationIndex.matching(LocationField.COUNTRY, "czech")).thenReturn(Set.of("czech republic"));
+        when(raceRepository.findAll(ArgumentMatchers.<Specification<Race>>any(), eq(Sort.by("id")))).thenReturn(expectedRaces);
 
-        List<Race> result = raceServiceImpl.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
+        List<Race> result = raceServiceImpl.findByLocation("czech", null, " ");
 
-        verify(raceRepository).findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
+        verify(raceLocationIndex, never()).matching(eq(LocationField.STREET), anyString());
         assertThat(result).as("Ensure the races returned by location match the expected races").isEqualTo(expectedRaces);
     }
 
     @Test
-    void findByLocation_whenNotFound_returnsEmptyList() {
-        when(raceRepository.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "")).thenReturn(Collections.emptyList());
+    void findByLocation_whenNoValueMatches_returnsEmptyListWithoutQuery() {
+        when(raceLocationIndex.matching(LocationField.CITY, "Atlantis")).thenReturn(Set.of());
+
+        List<Race> result = raceServiceImpl.findByLocation(null, "Atlantis", null);
+
+        verify(raceRepository, never()).findAll(ArgumentMatchers.<Specification<Race>>any(), any(Sort.class));
+        assertThat(result).as("Verify that an empty list is returned when no location value matches").isEmpty();
+    }
+
+    @Test
+    void findByLocation_withoutFilter_returnsEmptyList() {
+        assertThat(raceServiceImpl.findByLocation(null, "", null)).as("Verify that a search without a filter finds nothing")
+                .isEmpty();
+        verifyNoInteractions(raceLocationIndex);
+    }
+
+    @Test
+    void suggestLocations_limitIsBounded() {
+        raceServiceImpl.suggestLocations(LocationField.CITY, "br", 100_000);
+
+        verify(raceLocationIndex).suggest(LocationField.CITY, "br", RaceServiceImpl.MAX_SUGGESTIONS);
+    }
+
+    @Test
+    void findBetween_firstPage_readsRacesByDate() {
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        when(raceRepository.findByDateBetweenOrderByDateAscIdAsc(from, to, Limit.of(50))).thenReturn(List.of(testRace));
+
+        List<Race> result = raceServiceImpl.findBetween(from, to, null, null, 50);
+
+        assertThat(result).as("Ensure the races between the dates are returned").containsExactly(testRace);
+    }
+
+    @Test
+    void findBetween_afterRace_readsFollowingRaces() {
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        LocalDate afterDate = LocalDate.of(2024, 3, 10);
+
+        raceServiceImpl.findBetween(from, to, afterDate, 7L, 5000);
 
-        List<Race> result = raceServiceImpl.findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
+        verify(raceRepository).findByDateBetweenAfter(from, to, afterDate, 7L, Limit.of(RaceServiceImpl.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void findBySeason_readsRacesOfTheYear() {
+        raceServiceImpl.findBySeason(2024, null, null, 100);
 
-        verify(raceRepository).findByLocation_CountryOrLocation_CityOrLocation_Street("", "Czech Republic", "");
-        assertThat(result).as("Verify that an empty list is returned when no races are found with the specified location").isEmpty();
+        verify(raceRepository).findByDateBetweenOrderByDateAscIdAsc(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                Limit.of(100));
     }
 
     @Test
@@ -320,7 +531,7 @@ class RaceServiceImplTest {
 
     @Test
     void deleteAllRaces_whenRepositoryThrowsException_throwsException() {
-        doThrow(new DataStorageException("Database error")).when(raceRepository).deleteAll();
+        doThrow(new DataStorageException("Database error")).when(raceRepository).deleteAllInBatch();
 
         assertThatThrownBy(() -> raceServiceImpl.deleteAll())
                 .as("Expect DataStorageException when repository operation fails")
@@ -331,7 +542,7 @@ class RaceServiceImplTest {
     @Test
     void validateRace_WithNonExistentCar1_ThrowsDataStorageException() {
         testRace.setCar1Id(1L);  // Set a car ID that presumably doesn't exist.
-        when(externalService.carExists(1L)).thenReturn(false);  // Mock the external service to simulate the car does not exist.
+        when(externalService.findMissingCars(any())).thenReturn(Set.of(1L));  // Mock the external service to simulate the car does not exist.
 
         assertThatThrownBy(() -> raceServiceImpl.save(testRace))
                 .as("Expect DataStorageException when car1 does not exist")
@@ -345,8 +556,8 @@ class RaceServiceImplTest {
         testRace.setCar1Id(1L);
         testRace.setCar2Id(2L);
 
-        // Stubbing to return false for any long value
-        when(externalService.carExists(anyLong())).thenReturn(false);
+        // Stubbing to report both cars as missing
+        when(externalService.findMissingCars(any())).thenReturn(new LinkedHashSet<>(List.of(1L, 2L)));
 
         // Execute and verify
         assertThatThrownBy(() -> raceServiceImpl.save(testRace))
@@ -386,9 +597,8 @@ class RaceServiceImplTest {
         testRace.setCar1Id(1L);
         testRace.setCar2Id(2L);  // Assume 2L is an ID for a car that does not exist
 
-        // Stubbing both potential calls to carExists
-        when(externalService.carExists(1L)).thenReturn(true);  // Assuming car1 exists
-        when(externalService.carExists(2L)).thenReturn(false);  // car2 does not exist
+        // car1 exists, car2 does not exist
+        when(externalService.findMissingCars(Set.of(1L, 2L))).thenReturn(Set.of(2L));
 
         // Execute and verify that an exception is thrown for car2
         assertThatThrownBy(() -> raceServiceImpl.save(testRace))
@@ -399,14 +609,27 @@ class RaceServiceImplTest {
 
     @Test
     void findAllWithRaces_returnsAllRaces() {
-        when(raceServiceImpl.findAll()).thenReturn(TestRaceFactory.getListOfRaceEntities());
-        when(externalService.getCar(anyLong())).thenReturn(ResponseEntity.ok(TestRaceFactory.getCarEntity()));
-        when(externalService.getDriver(anyLong())).thenReturn(ResponseEntity.ok(TestRaceFactory.getDriverEntity()));
-        when(externalService.getComponent(anyLong())).thenReturn(ResponseEntity.ok(TestRaceFactory.getComponentEntity()));
-
         List<RaceView> expectedRaces = TestRaceFactory.getListOfRaceViews();
+        when(raceWithCarsProjection.findAll()).thenReturn(expectedRaces);
 
         List<RaceView> foundRaces = raceServiceImpl.findAllWithCars();
         assertThat(foundRaces).as("Ensure returned races match the expected races").isEqualTo(expectedRaces);
     }
+
+    @Test
+    void findAllWithCarsAsync_returnsSameRacesAsBlockingVariant() {
+        when(raceRepository.findAll()).thenReturn(TestRaceFactory.getListOfRaceEntities());
+        when(asyncExternalService.getCars(anyCollection())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(TestRaceFactory.getCarEntities(invocation.getArgument(0))));
+        when(asyncExternalService.getDrivers(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(TestRaceFactory.getDriverEntity())));
+        when(asyncExternalService.getComponents(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(TestRaceFactory.getComponentEntity())));
+
+        CompletableFuture<List<RaceView>> foundRaces = raceServiceImpl.findAllWithCarsAsync();
+
+        assertThat(foundRaces).as("Ensure returned races match the expected races")
+                .succeedsWithin(Duration.ofSeconds(1))
+                .isEqualTo(TestRaceFactory.getListOfRaceViews());
+    }
 }
@@ -0,0 +1,168 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestRaceFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RaceViewAggregatorTest {
+
+    @Mock
+    private ExternalService externalService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private RaceViewAggregator raceViewAggregator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        raceViewAggregator = new RaceViewAggregator(externalService, meterRegistry, executor,
+                16, 100, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void aggregate_resolvesCarsDriversAndComponents() {
+        stubLookups();
+
+        List<RaceView> result = raceViewAggregator.aggregate(TestRaceFactory.getListOfRaceEntities());
+
+        assertThat(result).as("Ensure every race is aggregated with both of its cars")
+                .isEqualTo(TestRaceFactory.getListOfRaceViews());
+    }
+
+    @Test
+    void aggregate_sharedCarsDriversAndComponents_areFetchedInOneCallPerEntity() {
+        stubLookups();
+
+        raceViewAggregator.aggregate(TestRaceFactory.getListOfRaceEntities());
+
+        verify(externalService, times(1)).getCars(Set.of(1L, 2L));
+        verify(externalService, times(1)).getDrivers(Set.of(1L));
+        verify(externalService, times(1)).getComponents(Set.of(1L));
+        assertThat(meterRegistry.counter(RequestScopedExternalService.METRIC_NAME,
+                "entity", "car", "result", "miss").count())
+                .as("Ensure each car shared by the five races is looked up once").isEqualTo(2);
+    }
+
+    @Test
+    void aggregate_raceWithoutCars_returnsViewWithoutCars() {
+        Race race = TestRaceFactory.getRaceEntity();
+        race.setCar1Id(null);
+        race.setCar2Id(null);
+
+        List<RaceView> result = raceViewAggregator.aggregate(List.of(race));
+
+        assertThat(result).as("Ensure a race without assigned cars is returned without car views").hasSize(1);
+        assertThat(result.get(0).getCar1()).as("Ensure the first car is empty").isNull();
+        assertThat(result.get(0).getCar2()).as("Ensure the second car is empty").isNull();
+    }
+
+    @Test
+    void aggregate_missingCar_returnsViewWithoutThatCar() {
+        when(externalService.getCars(anyCollection())).thenReturn(TestRaceFactory.getCarEntities(List.of(1L)));
+        when(externalService.getDrivers(anyCollection())).thenReturn(List.of(TestRaceFactory.getDriverEntity()));
+        when(externalService.getComponents(anyCollection())).thenReturn(List.of(TestRaceFactory.getComponentEntity()));
+
+        List<RaceView> result = raceViewAggregator.aggregate(List.of(TestRaceFactory.getRaceEntity()));
+
+        assertThat(result.get(0).getCar1()).as("Ensure the existing car is resolved").isNotNull();
+        assertThat(result.get(0).getCar2()).as("Ensure the car that no longer exists is left out").isNull();
+    }
+
+    @Test
+    void aggregate_fetchesBatchesConcurrently() {
+        raceViewAggregator = new RaceViewAggregator(externalService, meterRegistry, executor,
+                16, 1, Duration.ofSeconds(5));
+        Set<Long> componentIds = Set.of(1L, 2L, 3L, 4L);
+        Car car = TestRaceFactory.getCarEntity();
+        car.setComponents(componentIds);
+        CountDownLatch allBatchesRequested = new CountDownLatch(componentIds.size());
+        when(externalService.getCars(anyCollection())).thenReturn(List.of(car));
+        when(externalService.getDrivers(anyCollection())).thenReturn(List.of(TestRaceFactory.getDriverEntity()));
+        when(externalService.getComponents(anyCollection())).thenAnswer(invocation -> {
+            allBatchesRequested.countDown();
+            if (!allBatchesRequested.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Batches were not requested concurrently");
+            }
+            Collection<Long> ids = invocation.getArgument(0);
+            Component component = TestRaceFactory.getComponentEntity();
+            component.setId(ids.iterator().next());
+            component.setVersion(String.valueOf(component.getId()));
+            return List.of(component);
+        });
+        Race race = TestRaceFactory.getRaceEntity();
+        race.setCar2Id(null);
+
+        List<RaceView> result = raceViewAggregator.aggregate(List.of(race));
+
+        assertThat(result.get(0).getCar1().getComponents()).as("Ensure components of all batches are collected")
+                .hasSize(componentIds.size());
+    }
+
+    @Test
+    void aggregate_whenLookupsExceedTimeout_throwsExternalCallException() {
+        raceViewAggregator = new RaceViewAggregator(externalService, meterRegistry, executor,
+                16, 100, Duration.ofMillis(100));
+        when(externalService.getCars(anyCollection())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return TestRaceFactory.getCarEntities(invocation.getArgument(0));
+        });
+
+        assertThatThrownBy(() -> raceViewAggregator.aggregate(List.of(TestRaceFactory.getRaceEntity())))
+                .as("Expect ExternalCallException when the aggregation misses its deadline")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("did not finish within");
+    }
+
+    @Test
+    void aggregate_whenExternalCallFails_propagatesException() {
+        when(externalService.getCars(anyCollection())).thenThrow(new ExternalCallException("Service unavailable"));
+
+        assertThatThrownBy(() -> raceViewAggregator.aggregate(List.of(TestRaceFactory.getRaceEntity())))
+                .as("Expect the original exception of a failed lookup to be rethrown")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("Service unavailable");
+    }
+
+    private void stubLookups() {
+        when(externalService.getCars(anyCollection()))
+                .thenAnswer(invocation -> TestRaceFactory.getCarEntities(invocation.getArgument(0)));
+        when(externalService.getDrivers(anyCollection())).thenReturn(List.of(TestRaceFactory.getDriverEntity()));
+        when(externalService.getComponents(anyCollection())).thenReturn(List.of(TestRaceFactory.getComponentEntity()));
+    }
+}
@@ -0,0 +1,226 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.ChangeFeed;
+import org.muni.pa165.api.RaceView;
+import org.muni.pa165.data.domain.Race;
+import org.muni.pa165.data.domain.RaceWithCars;
+import org.muni.pa165.data.repository.RaceRepository;
+import org.muni.pa165.data.repository.RaceWithCarsRepository;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestRaceFactory;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RaceWithCarsProjectionTest {
+
+    @Mock
+    private RaceRepository raceRepository;
+
+    @Mock
+    private RaceWithCarsRepository raceWithCarsRepository;
+
+    @Mock
+    private ExternalService externalService;
+
+    private RaceWithCarsProjection raceWithCarsProjection;
+
+    @BeforeEach
+    void setUp() {
+        RaceViewAggregator raceViewAggregator = new RaceViewAggregator(externalService, new SimpleMeterRegistry(),
+                Executors.newVirtualThreadPerTaskExecutor(), 4, 100, Duration.ofSeconds(5));
+        raceWithCarsProjection = new RaceWithCarsProjection(raceRepository, raceWithCarsRepository,
+                raceViewAggregator, externalService, TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    void refresh_savesSnapshotOfCarsWithReferencedIds() {
+        stubLookups();
+        Race race = TestRaceFactory.getRaceEntity();
+        when(raceRepository.findAllById(Set.of(race.getId()))).thenReturn(List.of(race));
+
+        raceWithCarsProjection.refresh(race);
+
+        RaceWithCars copy = savedCopy();
+        assertThat(copy.isStale()).as("Ensure the refreshed copy is not stale").isFalse();
+        assertThat(copy.getCar1()).as("Ensure the snapshot of the first car is stored")
+                .isEqualTo(TestRaceFactory.getRaceView().getCar1());
+        assertThat(copy.getDriverIds()).as("Ensure drivers of the cars are referenced").containsExactly(1L);
+        assertThat(copy.getComponentIds()).as("Ensure components of the cars are referenced").containsExactly(1L);
+    }
+
+    @Test
+    void refresh_whenOtherServicesFail_keepsLastSnapshotAndMarksStale() {
+        Race race = TestRaceFactory.getRaceEntity();
+        RaceWithCars previous = RaceWithCars.builder()
+                .raceId(race.getId())
+                .car1(TestRaceFactory.getRaceView().getCar1())
+                .build();
+        when(externalService.getCars(anyCollection())).thenThrow(new ExternalCallException("Service unavailable"));
+        when(raceWithCarsRepository.findAllById(List.of(race.getId()))).thenReturn(List.of(previous));
+        when(raceRepository.findAllById(Set.of(race.getId()))).thenReturn(List.of(race));
+
+        raceWithCarsProjection.refresh(race);
+
+        RaceWithCars copy = savedCopy();
+        assertThat(copy.isStale()).as("Ensure the copy is refreshed again later").isTrue();
+        assertThat(copy.getName()).as("Ensure race data is updated anyway").isEqualTo(race.getName());
+        assertThat(copy.getCar1()).as("Ensure the last snapshot of the car is kept")
+                .isEqualTo(TestRaceFactory.getRaceView().getCar1());
+    }
+
+    @Test
+    void refresh_inTransaction_callsOtherServicesOnlyAfterCommit() {
+        Race race = TestRaceFactory.getRaceEntity();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            raceWithCarsProjection.refresh(race);
+
+            assertThat(savedCopy().isStale()).as("Ensure the copy is written as stale within the transaction").isTrue();
+            verify(externalService, never()).getCars(anyCollection());
+
+            stubLookups();
+            when(raceRepository.findAllById(Set.of(race.getId()))).thenReturn(List.of(race));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(savedCopy().isStale()).as("Ensure the copy is refreshed once the transaction commits").isFalse();
+    }
+
+    @Test
+    void findAll_returnsCopiesWithoutCallingOtherServices() {
+        RaceWithCars stale = RaceWithCars.builder()
+                .raceId(1L)
+                .name("Monaco Grand Prix")
+                .stale(true)
+                .build();
+        when(raceWithCarsRepository.findAllByOrderByRaceIdAsc()).thenReturn(List.of(stale));
+
+        List<RaceView> races = raceWithCarsProjection.findAll();
+
+        assertThat(races).as("Ensure the stale copy is returned with its last snapshot")
+                .extracting(RaceView::getName).containsExactly("Monaco Grand Prix");
+        verify(externalService, never()).getCars(anyCollection());
+        verify(raceWithCarsRepository, never()).findStaleRaceIds();
+    }
+
+    @Test
+    void backfill_copiesRacesWithoutCopyAsStale() {
+        when(raceRepository.findAllWithoutCopy()).thenReturn(List.of(TestRaceFactory.getRaceEntity()));
+
+        raceWithCarsProjection.backfill();
+
+        RaceWithCars copy = savedCopy();
+        assertThat(copy.isStale()).as("Ensure the copy is refreshed by the next sync").isTrue();
+        assertThat(copy.getRaceId()).as("Ensure the race is copied").isEqualTo(TestRaceFactory.getRaceEntity().getId());
+        verify(externalService, never()).getCars(anyCollection());
+    }
+
+    @Test
+    void syncChanges_refreshesStaleCopies() {
+        stubFeedsWithoutChanges();
+        stubLookups();
+        when(raceWithCarsRepository.findStaleRaceIds()).thenReturn(Set.of(1L));
+        when(raceRepository.findAllById(Set.of(1L))).thenReturn(List.of(TestRaceFactory.getRaceEntity()));
+
+        raceWithCarsProjection.syncChanges();
+
+        assertThat(savedCopy().isStale()).as("Ensure the stale copy is refreshed by the sync").isFalse();
+    }
+
+    @Test
+    void syncChanges_whenRaceWasUpdatedDuringRefresh_keepsCopyOfTheUpdate() {
+        stubFeedsWithoutChanges();
+        stubLookups();
+        Race read = TestRaceFactory.getRaceEntity();
+        read.setVersion(1L);
+        Race updated = TestRaceFactory.getRaceEntity();
+        updated.setVersion(2L);
+        when(raceWithCarsRepository.findStaleRaceIds()).thenReturn(Set.of(1L));
+        when(raceRepository.findAllById(Set.of(1L))).thenReturn(List.of(read), List.of(updated));
+
+        raceWithCarsProjection.syncChanges();
+
+        verify(raceWithCarsRepository).saveAll(List.of());
+    }
+
+    @Test
+    void syncChanges_marksCopiesReferencingChangedEntitiesStale() {
+        when(externalService.getCarChanges(null)).thenReturn(new ChangeFeed(3L, List.of(2L), false));
+        when(externalService.getDriverChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), false));
+        when(externalService.getComponentChanges(null)).thenReturn(new ChangeFeed(5L, List.of(7L), false));
+        when(raceWithCarsRepository.findRaceIdsByCarIds(List.of(2L))).thenReturn(Set.of(1L));
+        when(raceWithCarsRepository.findRaceIdsByComponentIds(List.of(7L))).thenReturn(Set.of(4L));
+
+        raceWithCarsProjection.syncChanges();
+
+        verify(raceWithCarsRepository).markStale(Set.of(1L));
+        verify(raceWithCarsRepository).markStale(Set.of(4L));
+
+        when(externalService.getCarChanges(3L)).thenReturn(new ChangeFeed(3L, List.of(), false));
+        when(externalService.getDriverChanges(0L)).thenReturn(new ChangeFeed(0L, List.of(), false));
+        when(externalService.getComponentChanges(5L)).thenReturn(new ChangeFeed(5L, List.of(), false));
+
+        raceWithCarsProjection.syncChanges();
+
+        verify(externalService).getCarChanges(3L);
+    }
+
+    @Test
+    void syncChanges_whenFeedIsReset_marksAllCopiesStale() {
+        when(externalService.getCarChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), true));
+        when(externalService.getDriverChanges(null)).thenThrow(new ExternalCallException("Service unavailable"));
+        when(externalService.getComponentChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), false));
+
+        raceWithCarsProjection.syncChanges();
+
+        verify(raceWithCarsRepository).markAllStale();
+        verify(raceWithCarsRepository, never()).markStale(anyCollection());
+    }
+
+    private void stubFeedsWithoutChanges() {
+        when(externalService.getCarChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), false));
+        when(externalService.getDriverChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), false));
+        when(externalService.getComponentChanges(null)).thenReturn(new ChangeFeed(0L, List.of(), false));
+    }
+
+    private void stubLookups() {
+        when(externalService.getCars(anyCollection()))
+                .thenAnswer(invocation -> TestRaceFactory.getCarEntities(invocation.getArgument(0)));
+        when(externalService.getDrivers(anyCollection())).thenReturn(List.of(TestRaceFactory.getDriverEntity()));
+        when(externalService.getComponents(anyCollection())).thenReturn(List.of(TestRaceFactory.getComponentEntity()));
+    }
+
+    @SuppressWarnings("unchecked")
+    /**
+     * @return the copy saved last
+     */
+    private RaceWithCars savedCopy() {
+        ArgumentCaptor<List<RaceWithCars>> copies = ArgumentCaptor.forClass(List.class);
+        verify(raceWithCarsRepository, atLeastOnce()).saveAll(copies.capture());
+        assertThat(copies.getValue()).as("Ensure a single copy is saved").hasSize(1);
+        return copies.getValue().get(0);
+    }
+}
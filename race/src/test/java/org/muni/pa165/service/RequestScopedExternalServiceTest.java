@@ -0,0 +1,125 @@
+package org.muni.pa165.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.muni.pa165.api.Car;
+import org.muni.pa165.api.Component;
+import org.muni.pa165.api.Driver;
+import org.muni.pa165.exceptions.ExternalCallException;
+import org.muni.pa165.utils.TestRaceFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequestScopedExternalServiceTest {
+
+    @Mock
+    private ExternalService externalService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RequestScopedExternalService requestScopedExternalService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requestScopedExternalService = new RequestScopedExternalService(externalService, meterRegistry);
+    }
+
+    @Test
+    void getCar_sameIdTwice_callsDelegateOnce() {
+        when(externalService.getCar(1L)).thenReturn(ResponseEntity.ok(TestRaceFactory.getCarEntity()));
+
+        ResponseEntity<Car> first = requestScopedExternalService.getCar(1L);
+        ResponseEntity<Car> second = requestScopedExternalService.getCar(1L);
+
+        verify(externalService, times(1)).getCar(1L);
+        assertThat(second.getBody()).as("Ensure the second lookup returns the memoized car").isSameAs(first.getBody());
+        assertThat(count("car", "hit")).as("Ensure the second lookup is counted as a hit").isEqualTo(1);
+        assertThat(count("car", "miss")).as("Ensure the first lookup is counted as a miss").isEqualTo(1);
+    }
+
+    @Test
+    void getDriver_differentIds_callsDelegateForEachId() {
+        when(externalService.getDriver(1L)).thenReturn(ResponseEntity.ok(TestRaceFactory.getDriverEntity()));
+        when(externalService.getDriver(2L)).thenReturn(ResponseEntity.ok(TestRaceFactory.getDriverEntity()));
+
+        ResponseEntity<Driver> first = requestScopedExternalService.getDriver(1L);
+        ResponseEntity<Driver> second = requestScopedExternalService.getDriver(2L);
+
+        assertThat(first.getBody()).as("Ensure the first driver is returned").isEqualTo(second.getBody());
+        assertThat(count("driver", "miss")).as("Ensure both lookups are counted as misses").isEqualTo(2);
+        assertThat(count("driver", "hit")).as("Ensure no lookup is counted as a hit").isZero();
+    }
+
+    @Test
+    void getComponent_sameIdTwice_callsDelegateOnce() {
+        when(externalService.getComponent(1L)).thenReturn(ResponseEntity.ok(TestRaceFactory.getComponentEntity()));
+
+        requestScopedExternalService.getComponent(1L);
+        ResponseEntity<Component> second = requestScopedExternalService.getComponent(1L);
+
+        verify(externalService, times(1)).getComponent(1L);
+        assertThat(second.getBody()).as("Ensure the memoized component is returned")
+                .isEqualTo(TestRaceFactory.getComponentEntity());
+    }
+
+    @Test
+    void getCar_whenDelegateFails_rethrowsForEveryLookup() {
+        when(externalService.getCar(1L)).thenThrow(new ExternalCallException("Service unavailable"));
+
+        assertThatThrownBy(() -> requestScopedExternalService.getCar(1L))
+                .as("Expect the failure of the first lookup to be propagated")
+                .isInstanceOf(ExternalCallException.class);
+        assertThatThrownBy(() -> requestScopedExternalService.getCar(1L))
+                .as("Expect the memoized failure to be propagated without another call")
+                .isInstanceOf(ExternalCallException.class)
+                .hasMessageContaining("Service unavailable");
+        verify(externalService, times(1)).getCar(1L);
+    }
+
+    @Test
+    void getCars_partlyLookedUpIds_fetchesOnlyNewIds() {
+        when(externalService.getCar(1L)).thenReturn(ResponseEntity.ok(TestRaceFactory.getCarEntity()));
+        when(externalService.getCars(Set.of(2L, 3L))).thenReturn(TestRaceFactory.getCarEntities(List.of(2L)));
+
+        requestScopedExternalService.getCar(1L);
+        List<Car> cars = requestScopedExternalService.getCars(List.of(1L, 2L, 3L));
+
+        assertThat(cars).as("Ensure memoized and fetched cars are returned and the missing one is skipped")
+                .extracting(Car::getId)
+                .containsExactly(1L, 2L);
+        assertThat(count("car", "hit")).as("Ensure the car looked up before is counted as a hit").isEqualTo(1);
+        assertThat(count("car", "miss")).as("Ensure every new id is counted as a miss").isEqualTo(3);
+    }
+
+    @Test
+    void getComponent_afterBulkLookupWithoutIt_returnsNotFound() {
+        when(externalService.getComponents(Set.of(5L))).thenReturn(List.of());
+
+        requestScopedExternalService.getComponents(List.of(5L));
+        ResponseEntity<Component> response = requestScopedExternalService.getComponent(5L);
+
+        verify(externalService, never()).getComponent(5L);
+        assertThat(response.getStatusCode().is4xxClientError())
+                .as("Ensure a component missing in the bulk response is reported as not found").isTrue();
+    }
+
+    private double count(String entity, String result) {
+        return meterRegistry.counter(RequestScopedExternalService.METRIC_NAME,
+                "entity", entity, "result", result).count();
+    }
+}
@@ -15,6 +15,7 @@ import org.muni.pa165.data.enums.ComponentType;
 import org.muni.pa165.data.enums.DriverPerk;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -30,6 +31,7 @@ public class TestRaceFactory {
                 .date(LocalDate.of(2022, 12, 24))
                 .car1Id(1L)
                 .car2Id(2L)
+                .version(0L)
                 .build();
     }
 
@@ -134,6 +136,16 @@ public class TestRaceFactory {
                 .build();
     }
 
+    public static List<Car> getCarEntities(Collection<Long> ids) {
+        return ids.stream()
+                .map(id -> {
+                    Car car = getCarEntity();
+                    car.setId(id);
+                    return car;
+                })
+                .toList();
+    }
+
     public static Driver getDriverEntity() {
         return Driver.builder()
                 .id(1L)